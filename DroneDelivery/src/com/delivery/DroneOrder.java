@@ -14,6 +14,11 @@ import com.delivery.interfaces.OrderTime;
 
 public class DroneOrder implements Order {
 
+    /**
+     * Deadline of the orders which can wait
+     */
+    public final static long NO_DEADLINE = Long.MAX_VALUE;
+
     /**
      * A DroneOrder id is represented as: WMXXXX
      */
@@ -54,6 +59,11 @@ public class DroneOrder implements Order {
      * eg: 01:00:00 --> eTime = 3600s
      */
     private long eTime;
+    /**
+     * Latest time the order can be delivered, in seconds as eTime,
+     * eg: flowers, vegetables, food. NO_DEADLINE if it can wait.
+     */
+    private long deadline = NO_DEADLINE;
 
     /**
      * Constructed using orderID, orderDirection and orderTime.
@@ -69,6 +79,34 @@ public class DroneOrder implements Order {
         setDirection(direction);
     }
 
+    /**
+     * Used by stored(), the fields are set without any check
+     */
+    private DroneOrder() {
+    }
+
+    /**
+     * Rebuild an order of an OrderStore, whose fields were validated when
+     * it was stored: the regex checks are skipped, and the id and direction
+     * Strings are only formatted when they are asked for.
+     * @param eID easy ID, eg: 1234 for WM1234
+     * @param location signed coordinates, packed by Coordinates
+     * @param distance Manhattan distance, with the detour of opposite legs
+     * @param eTime in seconds, epoch seconds if dated
+     * @param dated
+     * @return DroneOrder
+     */
+    static DroneOrder stored(int eID, long location, long distance, long eTime, boolean dated) {
+        DroneOrder order = new DroneOrder();
+        order.id = new DroneOrderID(eID);
+        order.direction = new DroneOrderDirection(location, distance);
+        order.time = new DroneOrderTime(eTime, dated);
+        order.eID = eID;
+        order.edistance = distance;
+        order.eTime = eTime;
+        return order;
+    }
+
 
     @Override
     public OrderID getOrderID() {
@@ -136,6 +174,33 @@ public class DroneOrder implements Order {
         return false;
     }
 
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the latest time the order can be delivered,
+     * when it is not before the order time.
+     * @param deadline in seconds as eTime, NO_DEADLINE if it can wait
+     * @return whether the deadline is valid
+     */
+    @Override
+    public boolean setDeadline(long deadline) {
+        if(deadline >= eTime) {
+            this.deadline = deadline;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the order must be delivered by its deadline
+     */
+    public boolean hasDeadline() {
+        return deadline != NO_DEADLINE;
+    }
+
     /**
      * Check whether an orderID is valid using regex.
      * In this task, an orderID is valid if it follows the
@@ -2,6 +2,7 @@ package com.delivery;
 
 
 import com.delivery.interfaces.OrderDirection;
+import com.tools.Coordinates;
 
 /**
  * DroneOrderDirection has a String represented direction
@@ -23,6 +24,11 @@ public class DroneOrderDirection implements OrderDirection {
      * based on the distance
      */
     private long distance;
+    /**
+     * Signed coordinates of the destination, packed by Coordinates:
+     * East and North are positive
+     */
+    private long location;
 
     /**
      * Initiate DroneOrderDirection with the String
@@ -34,15 +40,26 @@ public class DroneOrderDirection implements OrderDirection {
         setOrderDirection(direction);
     }
 
+    /**
+     * Direction of an order already validated, such as an order of an OrderStore:
+     * the String is only formatted when it is asked for
+     * @param location signed coordinates, packed by Coordinates
+     * @param distance Manhattan distance, with the detour of opposite legs
+     */
+    DroneOrderDirection(long location, long distance) {
+        this.location = location;
+        this.distance = distance;
+    }
+
     /**
      * Get the String represented direction.
-     * @return direction or null(if not found)
+     * @return direction
      */
     @Override
     public String getOrderDirection() {
-        if(direction != null)
-            return direction;
-        return null;
+        if(direction == null)
+            direction = Coordinates.format(location, distance);
+        return direction;
     }
 
     /**
@@ -66,6 +83,8 @@ public class DroneOrderDirection implements OrderDirection {
         int xDistance = Integer.parseInt(direction.substring(1, i));
         int yDistance = Integer.parseInt(direction.substring(i+1));
         distance = xDistance + yDistance;
+        // keep where the destination is, not only how far
+        location = Coordinates.parse(direction);
         return true;
     }
 
@@ -75,5 +94,20 @@ public class DroneOrderDirection implements OrderDirection {
         return distance;
     }
 
+    @Override
+    public long getLocation() {
+        return location;
+    }
+
+    @Override
+    public int getX() {
+        return Coordinates.x(location);
+    }
+
+    @Override
+    public int getY() {
+        return Coordinates.y(location);
+    }
+
 
 }
@@ -29,6 +29,15 @@ public class DroneOrderID implements OrderID {
         setOrderID(id);
     }
 
+    /**
+     * ID of an order already validated, such as an order of an OrderStore:
+     * the String is only formatted when it is asked for
+     * @param eid easy ID, eg: 1234 for WM1234
+     */
+    DroneOrderID(int eid) {
+        this.eid = eid;
+    }
+
     /**
      * If there is an OrderID, then return.
      * else return null.
@@ -36,10 +45,9 @@ public class DroneOrderID implements OrderID {
      */
     @Override
     public String getOrderID() {
-        if(id != null) {
-            return this.id;
-        }
-        return null; // or throw an exception
+        if(id == null)
+            id = DroneOrderStore.formatID(eid);
+        return this.id;
     }
 
     /**
@@ -0,0 +1,216 @@
+package com.delivery;
+
+import com.delivery.interfaces.Order;
+import com.delivery.interfaces.OrderDirection;
+import com.delivery.interfaces.OrderStore;
+import com.tools.Coordinates;
+
+import java.util.*;
+
+/**
+ * DroneOrderStore is a columnar OrderStore: parallel primitive arrays
+ * of easy ID, signed x, signed y, distance and time, addressed by an
+ * int handle. It costs 24 bytes per order, instead of a DroneOrder
+ * plus its DroneOrderID, DroneOrderDirection, DroneOrderTime and Strings.
+ *
+ * Orders should be added in time sequence, schedulers read the handles
+ * from 0 to size() - 1 as the upcoming tasks stream.
+ *
+ *
+ */
+public class DroneOrderStore implements OrderStore {
+
+    private final static int DEFAULT_CAPACITY = 1024;
+
+    private int[] ids;
+    /**
+     * Signed coordinates, East and North are positive
+     */
+    private int[] xs;
+    private int[] ys;
+    /**
+     * Manhattan distance, the sum of the two legs of the direction
+     */
+    private int[] distances;
+    /**
+     * Time in seconds
+     */
+    private long[] times;
+    private int size;
+    /**
+     * Whether the times are epoch seconds
+     */
+    private boolean dated;
+
+    public DroneOrderStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity expected number of orders
+     */
+    public DroneOrderStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new int[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        distances = new int[capacity];
+        times = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * Add an order to the end of the store
+     * @param eID easy ID
+     * @param x signed x coordinate, East is positive
+     * @param y signed y coordinate, North is positive
+     * @param distance Manhattan distance
+     * @param eTime time in seconds
+     * @return handle of the order
+     */
+    public int add(int eID, int x, int y, int distance, long eTime) {
+        if(size == ids.length)
+            grow();
+        ids[size] = eID;
+        xs[size] = x;
+        ys[size] = y;
+        distances[size] = distance;
+        times[size] = eTime;
+        return size++;
+    }
+
+    /**
+     * Add a parsed DroneOrder to the end of the store
+     * @param order
+     * @return handle of the order
+     */
+    public int add(DroneOrder order) {
+        OrderDirection direction = order.getDirection();
+        return add(order.geteID(), direction.getX(), direction.getY(), (int) order.getEdistance(), order.geteTime());
+    }
+
+    /**
+     * Convert a direction such as "N50E40" to signed coordinates.
+     * A leg goes along the y-axis for N/S, along the x-axis for E/W.
+     * @param direction
+     * @return {x, y}, East and North are positive
+     */
+    public static int[] parseCoordinates(String direction) {
+        long location = Coordinates.parse(direction);
+        return new int[] {Coordinates.x(location), Coordinates.y(location)};
+    }
+
+    /**
+     * Copy a sequence of orders into a new store
+     * @param orders orders in time sequence
+     * @return store
+     */
+    public static DroneOrderStore of(Collection<DroneOrder> orders) {
+        DroneOrderStore store = new DroneOrderStore(orders.size());
+        for(DroneOrder cur : orders) {
+            store.add(cur);
+            if(cur.getOrderTime().isDated())
+                store.setDated(true);
+        }
+        return store;
+    }
+
+    /**
+     * Shrink the arrays to the number of orders
+     */
+    public void trimToSize() {
+        resize(size);
+    }
+
+    /**
+     * Get a queue view of the store, which can be used as the tasks
+     * of the DroneOrder based schedulers. Polling the view never changes the store.
+     * @return queue view from the first order
+     */
+    public OrderStoreCursor cursor() {
+        return new OrderStoreCursor(this, 0, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int geteID(int handle) {
+        return ids[handle];
+    }
+
+    @Override
+    public int getX(int handle) {
+        return xs[handle];
+    }
+
+    @Override
+    public int getY(int handle) {
+        return ys[handle];
+    }
+
+    @Override
+    public long getEdistance(int handle) {
+        return distances[handle];
+    }
+
+    @Override
+    public long geteTime(int handle) {
+        return times[handle];
+    }
+
+    @Override
+    public boolean isDated() {
+        return dated;
+    }
+
+    public void setDated(boolean dated) {
+        this.dated = dated;
+    }
+
+    @Override
+    public DroneOrder getOrder(int handle) {
+        return toDroneOrder(this, handle);
+    }
+
+    /**
+     * Materialize an order of any OrderStore as a DroneOrder.
+     * The order is built from the stored id, coordinates and distance, so opposite
+     * legs such as "N30S30" keep their distance, and nothing is parsed again.
+     * @param store
+     * @param handle
+     * @return DroneOrder
+     */
+    public static DroneOrder toDroneOrder(OrderStore store, int handle) {
+        return DroneOrder.stored(store.geteID(handle), Coordinates.pack(store.getX(handle), store.getY(handle)),
+                store.getEdistance(handle), store.geteTime(handle), store.isDated());
+    }
+
+    /**
+     * Convert easy ID back to OrderID, 1234 --> WM1234
+     * @param eID
+     * @return OrderID String
+     */
+    public static String formatID(int eID) {
+        String digits = Integer.toString(eID);
+        StringBuilder id = new StringBuilder("WM");
+        for(int i = digits.length(); i < 4; i++)
+            id.append('0');
+        return id.append(digits).toString();
+    }
+
+    private void grow() {
+        resize(ids.length + (ids.length >> 1) + 1);
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        times = Arrays.copyOf(times, capacity);
+    }
+
+}
@@ -5,10 +5,13 @@ import com.delivery.interfaces.OrderTime;
 import com.tools.TimeConvert;
 
 /**
- * Since there is no date information,
+ * When there is no date information,
  * DroneOrderTime is represented as seconds of the day,
  * starting at 00:00:00.
  * eg: 01:00:00 --> 3600
+ * When there is a date, it is represented as epoch seconds,
+ * starting at 1970-01-01 00:00:00.
+ * eg: 1970-01-02 01:00:00 --> 90000
  *
  *
  */
@@ -19,9 +22,13 @@ public class DroneOrderTime implements OrderTime {
      * Time in seconds
      */
     private long time;  // time in seconds
+    /**
+     * Whether time is in epoch seconds
+     */
+    private boolean dated;
 
     /**
-     * Initiate DroneOrderTime with String formatted as "HH:MM:SS".
+     * Initiate DroneOrderTime with String formatted as "HH:MM:SS" or "YYYY-MM-DD HH:MM:SS".
      * Use setter to check the input orderTime
      * @param orderTime
      */
@@ -29,6 +36,24 @@ public class DroneOrderTime implements OrderTime {
         setOrderTime(orderTime);
     }
 
+    /**
+     * Initiate DroneOrderTime with time already converted to seconds.
+     * @param orderTime in seconds
+     */
+    public DroneOrderTime(long orderTime) {
+        this(orderTime, false);
+    }
+
+    /**
+     * Initiate DroneOrderTime with time already converted to seconds.
+     * @param orderTime in seconds, epoch seconds if dated
+     * @param dated
+     */
+    public DroneOrderTime(long orderTime, boolean dated) {
+        this.time = orderTime >= 0 ? orderTime : -1;
+        this.dated = dated;
+    }
+
     /**
      * Get order's coming time, in seconds
      * @return time in seconds; if time < 0, return -1;
@@ -40,14 +65,28 @@ public class DroneOrderTime implements OrderTime {
         return -1;
     }
 
+    @Override
+    public boolean isDated() {
+        return dated;
+    }
+
     /**
-     * Set time only the String matches "HH:MM:SS" format.
-     * @return true, if it matches "HH:MM:SS"; false, if it doesn't match "HH:MM:SS"
+     * Set time only the String matches "HH:MM:SS" or "YYYY-MM-DD HH:MM:SS" format.
+     * @return true, if it matches; false, if it doesn't match or the date doesn't exist
      */
     @Override
     public boolean setOrderTime(String orderTime) {
         if(orderTime.matches("\\d{2}:\\d{2}:\\d{2}")) {
             time = TimeConvert.strToInt(orderTime);
+            dated = false;
+            return true;
+        }
+        if(orderTime.matches("\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}")) {
+            long epoch = TimeConvert.dateTimeToEpoch(orderTime.substring(0, 10), orderTime.substring(11));
+            if(epoch < 0)
+                return false;
+            time = epoch;
+            dated = true;
             return true;
         }
 
@@ -0,0 +1,180 @@
+package com.delivery;
+
+import com.delivery.interfaces.OrderStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * MappedOrderStore is an OrderStore read straight from a memory-mapped
+ * binary trace: nothing is parsed or copied when the file is opened, and
+ * every getter reads the record bytes in place, so a day can be replayed
+ * as many times as needed for the cost of the page cache.
+ *
+ * Binary trace format, little-endian:
+ *      header, 32 bytes:
+ *          magic "DDTR", version (int), record size (int), flags (int),
+ *          number of orders (long), reserved (long)
+ *      records, 24 bytes each, in time sequence:
+ *          easy ID (int), signed x (int), signed y (int), distance (int),
+ *          time in seconds (long)
+ * The flag DATED means the times are epoch seconds.
+ * The distance is kept as parsed, since a direction such as "N30S30"
+ * flies further than its coordinates.
+ *
+ * The file is mapped in windows, so traces larger than 2GB can be read.
+ * The file is closed once mapped, the mapping stays valid until the store
+ * is garbage collected.
+ *
+ *
+ */
+public class MappedOrderStore implements OrderStore {
+
+    public final static byte[] MAGIC = {'D', 'D', 'T', 'R'};
+    public final static int VERSION = 2;
+    public final static int HEADER_SIZE = 32;
+    public final static int RECORD_SIZE = 24;
+    public final static int FLAG_DATED = 1;
+
+    /**
+     * Records of one mapped window, a power of 2
+     */
+    private final static int WINDOW_SHIFT = 26;
+    private final static int WINDOW_MASK = (1 << WINDOW_SHIFT) - 1;
+
+    private ByteBuffer[] windows;
+    private int size;
+    private boolean dated;
+
+    /**
+     * Open and map a binary trace
+     * @param path
+     * @throws IOException, NoSuchFileException, or if the file is not a binary trace
+     */
+    public MappedOrderStore(String path) throws IOException {
+        this(Paths.get(path));
+    }
+
+    /**
+     * Open and map a binary trace
+     * @param path
+     * @throws IOException, NoSuchFileException, or if the file is not a binary trace
+     */
+    public MappedOrderStore(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if(fileSize < HEADER_SIZE)
+                throw new IOException(path + " is not a binary trace");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for(int i = 0; i < MAGIC.length; i++) {
+                if(header.get(i) != MAGIC[i])
+                    throw new IOException(path + " is not a binary trace");
+            }
+            int version = header.getInt(4);
+            if(version != VERSION)
+                throw new IOException("Unsupported binary trace version " + version);
+            if(header.getInt(8) != RECORD_SIZE)
+                throw new IOException("Unsupported record size " + header.getInt(8));
+            dated = (header.getInt(12) & FLAG_DATED) != 0;
+            long count = header.getLong(16);
+            if(count < 0 || count > Integer.MAX_VALUE || HEADER_SIZE + count * RECORD_SIZE > fileSize)
+                throw new IOException(path + " is truncated: " + count + " orders in the header");
+            size = (int) count;
+
+            windows = new ByteBuffer[(int) ((count + WINDOW_MASK) >>> WINDOW_SHIFT)];
+            for(int w = 0; w < windows.length; w++) {
+                long first = (long) w << WINDOW_SHIFT;
+                long records = Math.min(1L << WINDOW_SHIFT, count - first);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+                windows[w] = window.order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    /**
+     * Check the magic bytes of a file
+     * @param path
+     * @return whether the file is a binary trace
+     * @throws IOException, NoSuchFileException
+     */
+    public static boolean isBinaryTrace(String path) throws IOException {
+        try(FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            while(magic.hasRemaining() && file.read(magic) >= 0);
+            if(magic.hasRemaining())
+                return false;
+            for(int i = 0; i < MAGIC.length; i++) {
+                if(magic.get(i) != MAGIC[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private ByteBuffer window(int handle) {
+        return windows[handle >>> WINDOW_SHIFT];
+    }
+
+    private static int offset(int handle) {
+        return (handle & WINDOW_MASK) * RECORD_SIZE;
+    }
+
+    /**
+     * Get a queue view of the store, which can be used as the tasks
+     * of the DroneOrder based schedulers
+     * @return queue view from the first order
+     */
+    public OrderStoreCursor cursor() {
+        return new OrderStoreCursor(this, 0, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int geteID(int handle) {
+        return window(handle).getInt(offset(handle));
+    }
+
+    @Override
+    public int getX(int handle) {
+        return window(handle).getInt(offset(handle) + 4);
+    }
+
+    @Override
+    public int getY(int handle) {
+        return window(handle).getInt(offset(handle) + 8);
+    }
+
+    @Override
+    public long getEdistance(int handle) {
+        return window(handle).getInt(offset(handle) + 12);
+    }
+
+    @Override
+    public long geteTime(int handle) {
+        return window(handle).getLong(offset(handle) + 16);
+    }
+
+    @Override
+    public boolean isDated() {
+        return dated;
+    }
+
+    @Override
+    public DroneOrder getOrder(int handle) {
+        return DroneOrderStore.toDroneOrder(this, handle);
+    }
+
+}
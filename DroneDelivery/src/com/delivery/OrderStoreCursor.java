@@ -0,0 +1,105 @@
+package com.delivery;
+
+import com.delivery.interfaces.OrderStore;
+
+import java.util.*;
+
+/**
+ * A read only queue view over a range of an OrderStore.
+ * Polling only moves the cursor, so several schedulers can walk
+ * the same store. Each DroneOrder is materialized when it reaches the head.
+ *
+ *
+ */
+public class OrderStoreCursor extends AbstractQueue<DroneOrder> {
+
+    private final OrderStore store;
+    /**
+     * Next handle to be polled
+     */
+    private int next;
+    /**
+     * End handle, exclusive
+     */
+    private final int end;
+    /**
+     * Materialized order of the next handle
+     */
+    private DroneOrder head;
+
+    /**
+     * @param store
+     * @param from first handle, inclusive
+     * @param to last handle, exclusive
+     */
+    public OrderStoreCursor(OrderStore store, int from, int to) {
+        this.store = store;
+        this.next = from;
+        this.end = to;
+    }
+
+    /**
+     * @return handle of the head order
+     */
+    public int position() {
+        return next;
+    }
+
+    @Override
+    public DroneOrder peek() {
+        if(next >= end)
+            return null;
+        if(head == null)
+            head = DroneOrderStore.toDroneOrder(store, next);
+        return head;
+    }
+
+    @Override
+    public DroneOrder poll() {
+        DroneOrder order = peek();
+        if(order != null) {
+            next++;
+            head = null;
+        }
+        return order;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return next >= end;
+    }
+
+    @Override
+    public int size() {
+        return end - next;
+    }
+
+    /**
+     * The view is read only
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean offer(DroneOrder order) {
+        throw new UnsupportedOperationException("OrderStoreCursor is read only");
+    }
+
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        return new Iterator<DroneOrder>() {
+            private int cur = next;
+
+            @Override
+            public boolean hasNext() {
+                return cur < end;
+            }
+
+            @Override
+            public DroneOrder next() {
+                if(cur >= end)
+                    throw new NoSuchElementException();
+                return DroneOrderStore.toDroneOrder(store, cur++);
+            }
+        };
+    }
+
+}
@@ -50,6 +50,20 @@ public interface Order {
      */
     boolean setOrderTime(OrderTime orderTime);
 
+    /**
+     * Get the latest time the order can be delivered, in seconds,
+     * for the orders which must be delivered within a given time(flowers, food and etc)
+     * @return deadline, Long.MAX_VALUE if the order can wait
+     */
+    long getDeadline();
+
+    /**
+     * Set the deadline
+     * @param deadline
+     * @return whether set action is successful
+     */
+    boolean setDeadline(long deadline);
+
     /**
      * When setting an OrderID, firstly need to check whether it is valid
      * @param id
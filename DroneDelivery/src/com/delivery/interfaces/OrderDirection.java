@@ -30,4 +30,22 @@ public interface OrderDirection {
      * @return
      */
     long getOrderDistance();
+    /**
+     * Signed coordinates of the destination, packed in one long
+     * by com.tools.Coordinates
+     * @return
+     */
+    long getLocation();
+    /**
+     * East coordinate of the destination, the warehouse at 0,
+     * negative to the West
+     * @return
+     */
+    int getX();
+    /**
+     * North coordinate of the destination, the warehouse at 0,
+     * negative to the South
+     * @return
+     */
+    int getY();
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package com.delivery.interfaces;
+
+/**
+ * OrderStore interface defines a compact, read only table of orders.
+ * Every order is addressed by an int handle, from 0 to size() - 1,
+ * in the order the orders were added(time sequence).
+ *
+ * The columns are the same values DroneOrder caches(easy ID, easy
+ * distance and easy time), plus the signed coordinates of the customer.
+ * Schedulers can run directly on the handles, and an Order object is
+ * only built when getOrder() is called.
+ *
+ *
+ */
+public interface OrderStore {
+
+    /**
+     * Get the number of orders in the store
+     * @return number of orders
+     */
+    int size();
+
+    /**
+     * Get the easy ID of an order.
+     * eg: OrderID = "WM1234", easyID = 1234
+     * @param handle
+     * @return easyID
+     */
+    int geteID(int handle);
+
+    /**
+     * Get the signed x-axis coordinate of an order, East is positive.
+     * @param handle
+     * @return x coordinate
+     */
+    int getX(int handle);
+
+    /**
+     * Get the signed y-axis coordinate of an order, North is positive.
+     * @param handle
+     * @return y coordinate
+     */
+    int getY(int handle);
+
+    /**
+     * Get the Manhattan distance of an order
+     * @param handle
+     * @return distance
+     */
+    long getEdistance(int handle);
+
+    /**
+     * Get the time of the order in seconds
+     * @param handle
+     * @return second representation of time
+     */
+    long geteTime(int handle);
+
+    /**
+     * @return true if the times of the store have a date, and are in epoch seconds
+     */
+    boolean isDated();
+
+    /**
+     * Build an Order view of the order, the view is created on every call.
+     * @param handle
+     * @return Order
+     */
+    Order getOrder(int handle);
+}
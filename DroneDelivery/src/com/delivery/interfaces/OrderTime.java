@@ -5,6 +5,8 @@ package com.delivery.interfaces;
  * and convert it to a long integer, represents the seconds
  * of the day, in other words, 00:00:00 is time 0sec,
  * 01:00:00 is time 3600sec and etc.
+ * A dated OrderTime, such as "2024-03-01 01:00:00", is represented
+ * in epoch seconds instead, so orders of several days keep their order.
  *
  *
  */
@@ -12,13 +14,17 @@ package com.delivery.interfaces;
 public interface OrderTime {
 
     /**
-     * Get the time of the day in seconds.
+     * Get the time of the day in seconds, or epoch seconds if dated.
      * @return second representation of time
      */
     long getOrderTime();
+    /**
+     * @return true if the time has a date, and is in epoch seconds
+     */
+    boolean isDated();
     /**
      * Set the time represented in String format,
-     * such as 00:00:00.
+     * such as 00:00:00 or 2024-03-01 00:00:00.
      * Then convert it to seconds.
      * @param orderTime String
      * @return successful or not
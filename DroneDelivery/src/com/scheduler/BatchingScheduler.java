@@ -0,0 +1,413 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.delivery.interfaces.OrderDirection;
+import com.tools.NPSCalculator;
+import com.tools.TimeConvert;
+
+import java.util.*;
+
+
+/**
+ * Batching Scheduler is the dynamic scheduler with a drone carrying several items:
+ *  1. Algorithm:
+ *      |-- The drone leaves with the shortest waiting order, as the dynamic scheduler does,
+ *          then more waiting orders are loaded, up to the capacity of the drone
+ *      |-- An order is loaded if the trip with it scores at least as many NPS points
+ *          (promoters - detractors of the trip) as the trip without it followed by
+ *          its own round trip. The trip with it is never longer, so when the queue
+ *          grows in a peak, the drone delivers more orders per hour
+ *      |-- The candidates are the CANDIDATES waiting orders closest to the first stop, from the
+ *          grid of the SpatialOrderQueue the waiting queue is wrapped in. The ones which cost
+ *          the least to insert in the current tour are tried first
+ *      |-- With a capacity of 1, it delivers exactly as InputStreamScheduler does
+ *  2. Routing:
+ *      |-- Each trip is a tour from the warehouse through its stops and back, Manhattan
+ *          distance between two stops, 60 seconds per unit as for a single order
+ *      |-- The tour is solved exactly by dynamic programming over the subsets of the stops:
+ *          shortest tour first, then the most NPS points, then the least total delivery time.
+ *          capacity^2 * 2^capacity steps, the tables are allocated once
+ *      |-- The drone is busy for the actual tour time, and each order is delivered when
+ *          the drone reaches its stop
+ *  3. Output:
+ *      |-- The orders of a trip are recorded in the order of the tour, with the same departure time
+ *      |-- The outcome of the first order of a trip carries the flight time of the whole trip,
+ *          the other ones 0, so SchedulerMetrics counts the busy time right
+ *
+ * The candidates which are not loaded stay where they are in the waiting queue.
+ * Checkpoints are not taken.
+ *
+ *
+ */
+public class BatchingScheduler extends InputStreamScheduler {
+
+    public final static int DEFAULT_CAPACITY = 4;
+    public final static int MAX_CAPACITY = 8;
+    /**
+     * Number of waiting orders around the first stop looked at when loading a trip
+     */
+    public final static int CANDIDATES = 16;
+    /**
+     * Number of orders tried, cheapest insertion first, before the trip is closed
+     */
+    private final static int TRIES = 3;
+
+    private final int capacity;
+
+    /**
+     * Stops of the current trip, in the order they were loaded
+     */
+    private final DroneOrder[] stops;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] promoterDeadlines;
+    private final long[] neutralDeadlines;
+    /**
+     * Best tour of the current trip: stop indexes in the order of the tour,
+     * and time from the departure to each of them
+     */
+    private final int[] route;
+    private final long[] arrivals;
+    private long tourLength;
+    private int tourScore;
+    /**
+     * Tour solved for a candidate, copied to route when it is loaded,
+     * and the state of its last stop
+     */
+    private final int[] trialRoute;
+    private final long[] trialArrivals;
+    private long trialLength;
+    private int trialLast;
+    /**
+     * For each subset of the stops and last stop: path length, NPS score,
+     * total delivery time, and the stop before the last one
+     */
+    private final long[] lengths;
+    private final int[] scores;
+    private final long[] costs;
+    private final byte[] previous;
+    /**
+     * Waiting orders looked at for the current trip
+     */
+    private final DroneOrder[] pool = new DroneOrder[CANDIDATES];
+    private final long[] extras = new long[CANDIDATES];
+    private final int[] ranks = new int[CANDIDATES];
+
+    private long trips;
+    private long flightTime;
+
+    public BatchingScheduler(Queue<DroneOrder> tasks) {
+        this(tasks, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param tasks orders, in time sequence
+     * @param capacity number of items the drone carries, 1 to MAX_CAPACITY
+     */
+    public BatchingScheduler(Queue<DroneOrder> tasks, int capacity) {
+        super(tasks);
+        if(capacity < 1 || capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        this.capacity = capacity;
+        stops = new DroneOrder[capacity];
+        xs = new int[capacity];
+        ys = new int[capacity];
+        promoterDeadlines = new long[capacity];
+        neutralDeadlines = new long[capacity];
+        route = new int[capacity];
+        arrivals = new long[capacity];
+        trialRoute = new int[capacity];
+        trialArrivals = new long[capacity];
+        lengths = new long[(1 << capacity) * capacity];
+        scores = new int[(1 << capacity) * capacity];
+        costs = new long[(1 << capacity) * capacity];
+        previous = new byte[(1 << capacity) * capacity];
+        setQueue(getQueue());
+    }
+
+    /**
+     * Start scheduling
+     */
+    @Override
+    public void start() {
+        Queue<DroneOrder> queue = getQueue();
+        // Edge case: if there is no tasks, return
+        if(getTasks().isEmpty())
+            return;
+        // push the first task
+        long finishTime = initQueue();
+
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
+            long departureTime = finishTime;
+            DroneOrder first = queue.poll();
+            // the orders which came with the first one can be loaded too
+            admitTasks(departureTime);
+            int n = loadTrip(first, departureTime);
+            finishTime = departureTime + tourLength;
+            trips++;
+            flightTime += tourLength;
+
+            // Calculate NPS and add result, in the order of the tour
+            for(int k = 0; k < n; k++) {
+                recordDispatch(stops[route[k]], departureTime, arrivals[k], k == 0 ? tourLength : 0);
+                stops[route[k]] = null;
+            }
+
+            // Add all tasks which starts before the drone is back
+            admitTasks(finishTime);
+            //if currently no task
+            if(queue.isEmpty() && hasUpcomingTasks())
+                finishTime = initQueue();
+        }
+
+        finishScheduling();
+    }
+
+    /**
+     * Load the trip which starts with the given order, and solve its tour
+     * @param first shortest waiting order, already out of the waiting queue
+     * @param departureTime in seconds
+     * @return number of orders of the trip
+     */
+    private int loadTrip(DroneOrder first, long departureTime) {
+        setStop(0, first);
+        solveTour(1, departureTime);
+        acceptTour(1);
+        if(capacity == 1)
+            return 1;
+
+        // the orders around the first stop, they stay in the waiting queue until loaded
+        SpatialOrderQueue queue = (SpatialOrderQueue) getQueue();
+        int candidates = queue.nearest(xs[0], ys[0], CANDIDATES, pool);
+
+        int n = 1;
+        while(n < capacity && candidates > 0) {
+            rankCandidates(n, candidates);
+            int loaded = -1;
+            for(int t = 0; t < TRIES && t < candidates && loaded < 0; t++) {
+                int c = ranks[t];
+                setStop(n, pool[c]);
+                // the other choice: this trip, then the candidate on its own
+                long alone = departureTime + tourLength + leg(n);
+                int separate = tourScore + value(n, alone);
+                solveTour(n + 1, departureTime);
+                if(scores[trialLast] >= separate) {
+                    acceptTour(n + 1);
+                    loaded = c;
+                }
+            }
+            if(loaded < 0) {
+                stops[n] = null;
+                break;
+            }
+            n++;
+            queue.remove(pool[loaded]);
+            // keep the pool closest first, for the ties of the ranking
+            System.arraycopy(pool, loaded + 1, pool, loaded, candidates - loaded - 1);
+            pool[--candidates] = null;
+        }
+        Arrays.fill(pool, 0, candidates, null);
+        return n;
+    }
+
+    /**
+     * Sort the candidates by the extra tour length of their cheapest insertion in the current tour
+     */
+    private void rankCandidates(int n, int candidates) {
+        for(int c = 0; c < candidates; c++) {
+            OrderDirection direction = pool[c].getDirection();
+            int x = direction.getX();
+            int y = direction.getY();
+            long extra = Long.MAX_VALUE;
+            int fromX = 0;
+            int fromY = 0;
+            for(int k = 0; k <= n; k++) {
+                int toX = k < n ? xs[route[k]] : 0;
+                int toY = k < n ? ys[route[k]] : 0;
+                long insertion = Math.abs(x - fromX) + Math.abs(y - fromY)
+                        + Math.abs(toX - x) + Math.abs(toY - y)
+                        - Math.abs(toX - fromX) - Math.abs(toY - fromY);
+                extra = Math.min(extra, insertion);
+                fromX = toX;
+                fromY = toY;
+            }
+            extras[c] = extra;
+            // insertion sort, shorter orders first on a tie
+            int i = c;
+            while(i > 0 && extras[ranks[i - 1]] > extra) {
+                ranks[i] = ranks[i - 1];
+                i--;
+            }
+            ranks[i] = c;
+        }
+    }
+
+    private void setStop(int i, DroneOrder order) {
+        NPSCalculator calculator = getCalculator();
+        OrderDirection direction = order.getDirection();
+        stops[i] = order;
+        xs[i] = direction.getX();
+        ys[i] = direction.getY();
+        promoterDeadlines[i] = order.geteTime() + calculator.getPromotersCutoff();
+        neutralDeadlines[i] = order.geteTime() + calculator.getNeutralCutoff();
+    }
+
+    /**
+     * Solve the tour of the first n stops exactly, into trialRoute, trialArrivals and trialLength
+     */
+    private void solveTour(int n, long departureTime) {
+        int full = (1 << n) - 1;
+        for(int mask = 1; mask <= full; mask++) {
+            for(int bits = mask; bits != 0; bits &= bits - 1) {
+                int last = Integer.numberOfTrailingZeros(bits);
+                int rest = mask ^ (1 << last);
+                int state = mask * capacity + last;
+                if(rest == 0) {
+                    long length = leg(last);
+                    lengths[state] = length;
+                    scores[state] = value(last, departureTime + length);
+                    costs[state] = length;
+                    continue;
+                }
+                long bestLength = Long.MAX_VALUE;
+                int bestScore = Integer.MIN_VALUE;
+                long bestCost = Long.MAX_VALUE;
+                int bestPrevious = 0;
+                for(int others = rest; others != 0; others &= others - 1) {
+                    int prev = Integer.numberOfTrailingZeros(others);
+                    int from = rest * capacity + prev;
+                    long length = lengths[from] + leg(prev, last);
+                    int score = scores[from] + value(last, departureTime + length);
+                    long cost = costs[from] + length;
+                    if(length < bestLength || (length == bestLength && (score > bestScore
+                            || (score == bestScore && cost < bestCost)))) {
+                        bestLength = length;
+                        bestScore = score;
+                        bestCost = cost;
+                        bestPrevious = prev;
+                    }
+                }
+                lengths[state] = bestLength;
+                scores[state] = bestScore;
+                costs[state] = bestCost;
+                previous[state] = (byte) bestPrevious;
+            }
+        }
+
+        // close the tour: back to the warehouse from the last stop
+        long bestTour = Long.MAX_VALUE;
+        int best = -1;
+        for(int last = 0; last < n; last++) {
+            int state = full * capacity + last;
+            long tour = lengths[state] + leg(last);
+            if(best < 0 || tour < bestTour || (tour == bestTour && (scores[state] > scores[best]
+                    || (scores[state] == scores[best] && costs[state] < costs[best])))) {
+                bestTour = tour;
+                best = state;
+            }
+        }
+        int mask = full;
+        int last = best - full * capacity;
+        for(int k = n - 1; k >= 0; k--) {
+            int state = mask * capacity + last;
+            trialRoute[k] = last;
+            trialArrivals[k] = lengths[state];
+            mask ^= 1 << last;
+            last = previous[state];
+        }
+        trialLength = bestTour;
+        trialLast = best;
+    }
+
+    /**
+     * The tour just solved becomes the tour of the trip
+     */
+    private void acceptTour(int n) {
+        System.arraycopy(trialRoute, 0, route, 0, n);
+        System.arraycopy(trialArrivals, 0, arrivals, 0, n);
+        tourLength = trialLength;
+        tourScore = scores[trialLast];
+    }
+
+    /**
+     * @return flight time between the warehouse and stop i, in seconds
+     */
+    private long leg(int i) {
+        return (Math.abs(xs[i]) + Math.abs(ys[i])) * 60L;
+    }
+
+    /**
+     * @return flight time between stops i and j, in seconds
+     */
+    private long leg(int i, int j) {
+        return (Math.abs(xs[i] - xs[j]) + Math.abs(ys[i] - ys[j])) * 60L;
+    }
+
+    /**
+     * @return NPS points of stop i delivered at the given time: 1 promoter, 0 neutral, -1 detractor
+     */
+    private int value(int i, long delivered) {
+        if(delivered <= promoterDeadlines[i])
+            return 1;
+        if(delivered > neutralDeadlines[i])
+            return -1;
+        return 0;
+    }
+
+    /**
+     * The waiting queue is wrapped in a SpatialOrderQueue, to look for the orders around a trip
+     * @param queue empty waiting queue
+     */
+    @Override
+    public void setQueue(Queue<DroneOrder> queue) {
+        super.setQueue(queue instanceof SpatialOrderQueue ? queue : new SpatialOrderQueue(queue));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of trips flown
+     */
+    public long getTrips() {
+        return trips;
+    }
+
+    /**
+     * @return time the drone spent flying, in seconds
+     */
+    public long getFlightTime() {
+        return flightTime;
+    }
+
+    /**
+     * @return average number of orders delivered per trip
+     */
+    public double getOrdersPerTrip() {
+        if(trips == 0)
+            return 0;
+        return getTotalOrder() / (double) trips;
+    }
+
+    /**
+     * @return orders delivered per hour of flight
+     */
+    public double getDeliveriesPerDroneHour() {
+        if(flightTime == 0)
+            return 0;
+        return getTotalOrder() * 3600.0 / flightTime;
+    }
+
+    /**
+     * eg: trips 812, orders per trip 2.31, flight 13:32:00, deliveries per drone-hour 138.55
+     * @return formatted report
+     */
+    public String getTripReport() {
+        return "trips " + trips
+                + ", orders per trip " + String.format("%.2f", getOrdersPerTrip())
+                + ", flight " + TimeConvert.longToStr(flightTime)
+                + ", deliveries per drone-hour " + String.format("%.2f", getDeliveriesPerDroneHour());
+    }
+
+}
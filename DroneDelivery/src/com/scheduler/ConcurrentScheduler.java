@@ -0,0 +1,184 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.tools.MpscOrderQueue;
+import com.tools.Satisfaction;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Concurrent Scheduler runs the dynamic algorithm(shortest order first) for
+ * orders submitted by many threads at the same time:
+ *  1. Producer threads submit() orders into a lock-free MpscOrderQueue,
+ *     they never wait for the dispatcher or for each other.
+ *  2. One dispatcher thread owns the waiting PriorityQueue and the drone,
+ *     it is the only thread which reads the tasks queue.
+ *  3. The NPS counters are LongAdders, any thread can read them while the
+ *     dispatcher goes on, without any lock.
+ *
+ * Orders from different producers are not in time sequence. An order which
+ * comes before the drone's current time waits as if it came at that time,
+ * and the drone never departs before it is back.
+ *
+ * The waiting queue, the tasks queue and the counters can't be replaced
+ * from outside, they belong to the dispatcher.
+ *
+ *
+ */
+public class ConcurrentScheduler extends InputStreamScheduler {
+
+    private final MpscOrderQueue tasks;
+    private final LongAdder totalOrder = new LongAdder();
+    private final LongAdder promoters = new LongAdder();
+    private final LongAdder neutral = new LongAdder();
+    private final LongAdder detractors = new LongAdder();
+    /**
+     * Time the drone is back from the last delivery, dispatcher thread only
+     */
+    private long lastFinishTime = Long.MIN_VALUE;
+    private Thread dispatcher;
+
+    public ConcurrentScheduler() {
+        this(new MpscOrderQueue());
+    }
+
+    private ConcurrentScheduler(MpscOrderQueue tasks) {
+        super(tasks);
+        this.tasks = tasks;
+    }
+
+    /**
+     * Submit an order, from any thread
+     * @param order
+     * @return false if the scheduler is shut down
+     */
+    public boolean submit(DroneOrder order) {
+        return tasks.offer(order);
+    }
+
+    /**
+     * Start the dispatcher thread, which runs start()
+     * @return the dispatcher thread
+     */
+    public synchronized Thread startDispatcher() {
+        if(dispatcher != null)
+            throw new IllegalStateException("The dispatcher is already started");
+        dispatcher = new Thread(this::start, "dispatcher");
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    /**
+     * Stop accepting orders, the dispatcher delivers the accepted ones then finishes
+     */
+    public void shutdown() {
+        tasks.close();
+    }
+
+    /**
+     * Wait until the dispatcher delivered all the accepted orders
+     * @throws InterruptedException
+     */
+    public void awaitTermination() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = dispatcher;
+        }
+        if(thread != null)
+            thread.join();
+    }
+
+    /**
+     * The drone can't leave before it is back, even for an order that came late
+     * @return departure time of the first order of the new group
+     */
+    @Override
+    protected long initQueue() {
+        return Math.max(super.initQueue(), lastFinishTime);
+    }
+
+    @Override
+    protected void recordDispatch(DroneOrder current, long departureTime, long deliveryTime) {
+        lastFinishTime = departureTime + deliveryTime * 2;
+        super.recordDispatch(current, departureTime, deliveryTime);
+    }
+
+    /**
+     * The LongAdders are the only counters, the int counters of the parent stay at 0
+     */
+    @Override
+    protected void countSatisfaction(Satisfaction satisfaction) {
+        totalOrder.increment();
+        if(satisfaction == Satisfaction.INVALID)
+            System.out.println("Invalid waiting time");
+        else if(satisfaction == Satisfaction.PROMOTERS)
+            promoters.increment();
+        else if(satisfaction == Satisfaction.NEUTRAL)
+            neutral.increment();
+        else if(satisfaction == Satisfaction.DETRACTORS)
+            detractors.increment();
+    }
+
+    /**
+     * @return NPS of the orders delivered so far, can be called from any thread
+     */
+    public double getNPS() {
+        long total = totalOrder.sum();
+        if(total == 0)
+            return 0;
+        return ((promoters.sum() - detractors.sum())/(double)total)*100;
+    }
+
+    @Override
+    public int getTotalOrder() {
+        return totalOrder.intValue();
+    }
+
+    @Override
+    public int getPromoters() {
+        return promoters.intValue();
+    }
+
+    @Override
+    public int getNeutral() {
+        return neutral.intValue();
+    }
+
+    @Override
+    public int getDetractors() {
+        return detractors.intValue();
+    }
+
+    @Override
+    public void setQueue(Queue<DroneOrder> queue) {
+        throw new UnsupportedOperationException("The waiting queue belongs to the dispatcher");
+    }
+
+    @Override
+    public void setTasks(Queue<DroneOrder> tasks) {
+        throw new UnsupportedOperationException("Orders are submitted with submit()");
+    }
+
+    @Override
+    public void setTotalOrder(int totalOrder) {
+        throw new UnsupportedOperationException("The counters belong to the dispatcher");
+    }
+
+    @Override
+    public void setPromoters(int promoters) {
+        throw new UnsupportedOperationException("The counters belong to the dispatcher");
+    }
+
+    @Override
+    public void setNeutral(int neutral) {
+        throw new UnsupportedOperationException("The counters belong to the dispatcher");
+    }
+
+    @Override
+    public void setDetractors(int detractors) {
+        throw new UnsupportedOperationException("The counters belong to the dispatcher");
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+
+import java.util.*;
+
+
+/**
+ * Deadline Order Queue is the waiting queue of the DeadlineScheduler, each waiting order
+ * is kept once, in a slot, and the slot is in two IndexedHeaps:
+ *      |-- shortest: every waiting order, shorter orders first, then in arrival order.
+ *          poll() is the shortest waiting order, as the other waiting queues
+ *      |-- urgent: the waiting orders with a deadline, by the latest time the drone can
+ *          leave with them(deadline - distance * 60), then in arrival order
+ *      |-- poll(departureTime) takes the shortest order, unless its round trip would make
+ *          the most urgent order miss its deadline: the most urgent order is taken instead
+ *      |-- expire(departureTime) gives the orders which miss their deadline even if the drone
+ *          leaves with them now: they are no longer urgent, the scheduler drops them with
+ *          remove(order) or delivers them as ordinary orders
+ *      |-- remove(order), contains(order) and reprioritize(order, deadline) are for the
+ *          perishable orders: their slot is found in an identity map, O(log n). Ordinary
+ *          orders are not in the map, which would cost more than the heaps, so these calls
+ *          don't find them and return false. Ordinary orders only leave with poll()
+ *
+ * The deadline of a waiting order is changed with reprioritize(), not on the order itself.
+ * Freed slots are used again, the heaps do not grow past the largest number of waiting orders.
+ * Iterating goes through the waiting orders in no particular order.
+ *
+ *
+ */
+public class DeadlineOrderQueue extends AbstractQueue<DroneOrder> {
+
+    private final IndexedHeap shortest;
+    private final IndexedHeap urgent;
+    /**
+     * orders[slot]: waiting order in the slot, null if the slot is free
+     */
+    private DroneOrder[] orders;
+    private int[] freeSlots;
+    private int freeCount;
+    private int slotCount;
+    /**
+     * Slots of the waiting perishable orders
+     */
+    private final Map<DroneOrder, Integer> slots = new IdentityHashMap<DroneOrder, Integer>();
+    /**
+     * Arrival sequence, ties of both heaps
+     */
+    private long sequence;
+
+    public DeadlineOrderQueue() {
+        this(64);
+    }
+
+    /**
+     * @param capacity expected number of waiting orders
+     */
+    public DeadlineOrderQueue(int capacity) {
+        capacity = Math.max(capacity, 1);
+        shortest = new IndexedHeap(capacity);
+        urgent = new IndexedHeap(capacity);
+        orders = new DroneOrder[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    @Override
+    public boolean offer(DroneOrder order) {
+        if(order == null)
+            throw new NullPointerException();
+        int slot;
+        if(freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = slotCount++;
+            if(slot == orders.length) {
+                orders = Arrays.copyOf(orders, orders.length * 2);
+                freeSlots = Arrays.copyOf(freeSlots, orders.length);
+            }
+        }
+        orders[slot] = order;
+        long tie = sequence++;
+        shortest.insert(slot, order.getEdistance(), tie);
+        if(order.hasDeadline()) {
+            slots.put(order, slot);
+            urgent.insert(slot, latestDeparture(order), tie);
+        }
+        return true;
+    }
+
+    /**
+     * @return shortest waiting order, first arrived on a tie, null if none
+     */
+    @Override
+    public DroneOrder poll() {
+        int slot = shortest.peek();
+        return slot < 0 ? null : take(slot);
+    }
+
+    /**
+     * The order the drone leaves with at the given time: the shortest one, unless
+     * delivering it first would make the most urgent order miss its deadline
+     * @param departureTime in seconds
+     * @return the order, null if none is waiting
+     */
+    public DroneOrder poll(long departureTime) {
+        int slot = shortest.peek();
+        if(slot < 0)
+            return null;
+        int first = urgent.peek();
+        if(first >= 0 && first != slot
+                && departureTime + orders[slot].getEdistance() * 120 > urgent.getKey(first))
+            slot = first;
+        return take(slot);
+    }
+
+    /**
+     * The next perishable order which is late even if the drone leaves with it at the
+     * given time. It is no longer urgent, but still waiting.
+     * @param departureTime in seconds
+     * @return the order, null if none
+     */
+    public DroneOrder expire(long departureTime) {
+        int slot = urgent.peek();
+        if(slot < 0 || urgent.getKey(slot) >= departureTime)
+            return null;
+        urgent.remove(slot);
+        return orders[slot];
+    }
+
+    /**
+     * Give a waiting perishable order a new deadline, or none with DroneOrder.NO_DEADLINE
+     * @param order waiting order with a deadline
+     * @param deadline in seconds, not before the order time
+     * @return whether the order is a waiting perishable order and the deadline valid
+     */
+    public boolean reprioritize(DroneOrder order, long deadline) {
+        int slot = slotOf(order);
+        if(slot < 0 || !order.setDeadline(deadline))
+            return false;
+        if(!order.hasDeadline()) {
+            urgent.remove(slot);
+            slots.remove(order);
+        } else if(!urgent.update(slot, latestDeparture(order))) {
+            // expired, urgent again with its new deadline
+            urgent.insert(slot, latestDeparture(order), sequence++);
+        }
+        return true;
+    }
+
+    @Override
+    public DroneOrder peek() {
+        int slot = shortest.peek();
+        return slot < 0 ? null : orders[slot];
+    }
+
+    /**
+     * @return most urgent waiting order, null if none has a deadline
+     */
+    public DroneOrder peekUrgent() {
+        int slot = urgent.peek();
+        return slot < 0 ? null : orders[slot];
+    }
+
+    /**
+     * Take a waiting perishable order out of the queue, wherever it is
+     * @param o
+     * @return whether the order was a waiting perishable order
+     */
+    @Override
+    public boolean remove(Object o) {
+        int slot = slotOf(o);
+        if(slot < 0)
+            return false;
+        take(slot);
+        return true;
+    }
+
+    /**
+     * @param o
+     * @return whether the order is a waiting perishable order
+     */
+    @Override
+    public boolean contains(Object o) {
+        return slotOf(o) >= 0;
+    }
+
+    /**
+     * @return slot of a waiting perishable order, -1 if it is not one
+     */
+    private int slotOf(Object o) {
+        Integer slot = slots.get(o);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return number of waiting orders with a deadline which can still make it
+     */
+    public int urgentSize() {
+        return urgent.size();
+    }
+
+    @Override
+    public int size() {
+        return shortest.size();
+    }
+
+    @Override
+    public void clear() {
+        shortest.clear();
+        urgent.clear();
+        Arrays.fill(orders, 0, slotCount, null);
+        slots.clear();
+        slotCount = 0;
+        freeCount = 0;
+    }
+
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        return new Iterator<DroneOrder>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < shortest.size();
+            }
+
+            @Override
+            public DroneOrder next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return orders[shortest.get(next++)];
+            }
+        };
+    }
+
+    private DroneOrder take(int slot) {
+        DroneOrder order = orders[slot];
+        shortest.remove(slot);
+        urgent.remove(slot);
+        orders[slot] = null;
+        if(order.hasDeadline())
+            slots.remove(order);
+        freeSlots[freeCount++] = slot;
+        return order;
+    }
+
+    /**
+     * @return latest time the drone can leave with the order and deliver it by its deadline
+     */
+    private static long latestDeparture(DroneOrder order) {
+        return order.getDeadline() - order.getEdistance() * 60;
+    }
+
+}
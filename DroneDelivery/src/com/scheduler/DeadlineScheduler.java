@@ -0,0 +1,165 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+
+import java.util.*;
+
+
+/**
+ * Deadline Scheduler is the dynamic scheduler for a mix of ordinary and perishable orders
+ * (flowers, vegetables, food), a perishable order having a deadline:
+ *  1. Algorithm:
+ *      |-- The drone leaves with the shortest waiting order, as the dynamic scheduler does,
+ *          unless that round trip would make the most urgent perishable order miss its
+ *          deadline: then it leaves with the most urgent one(earliest latest departure,
+ *          deadline - distance * 60), the earliest deadline first among the ones which can make it
+ *      |-- Before each departure, the perishable orders which are late even if the drone
+ *          leaves with them now have expired: they are dropped(not delivered, counted as
+ *          detractors, written as "WMXXXX dropped HH:MM:SS"), or delivered as ordinary orders, late
+ *      |-- Without any deadline, it delivers exactly as InputStreamScheduler does,
+ *          ties in arrival order as with a DistanceBucketQueue
+ *  2. Implementation:
+ *      |-- The waiting queue is a DeadlineOrderQueue: two indexed 4-ary heaps over the same
+ *          slots, by distance and by latest departure, so taking the most urgent order out
+ *          of the shortest ones, dropping an expired order, or giving a waiting order a new
+ *          deadline is O(log n)
+ *      |-- The orders of an arrival group are all waiting when the drone leaves, so an
+ *          urgent order is not held back behind a shorter one of the same group
+ *
+ * Checkpoints are not taken.
+ *
+ *
+ */
+public class DeadlineScheduler extends InputStreamScheduler {
+
+    /**
+     * What becomes of an expired perishable order
+     */
+    public enum Expired {
+        DROP, DELIVER
+    }
+
+    private final Expired expired;
+
+    private long dropped;
+    private long onTime;
+    private long late;
+
+    public DeadlineScheduler(Queue<DroneOrder> tasks) {
+        this(tasks, Expired.DROP);
+    }
+
+    /**
+     * @param tasks orders, in time sequence
+     * @param expired what becomes of the perishable orders which can no longer make their deadline
+     */
+    public DeadlineScheduler(Queue<DroneOrder> tasks, Expired expired) {
+        super(tasks);
+        this.expired = expired;
+        setQueue(new DeadlineOrderQueue());
+    }
+
+    /**
+     * Start scheduling
+     */
+    @Override
+    public void start() {
+        DeadlineOrderQueue queue = (DeadlineOrderQueue) getQueue();
+        // Edge case: if there is no tasks, return
+        if(getTasks().isEmpty())
+            return;
+        // push the first task
+        long finishTime = initQueue();
+
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
+            long departureTime = finishTime;
+            // the orders which came with the first one are waiting too
+            admitTasks(departureTime);
+            for(DroneOrder order = queue.expire(departureTime); order != null; order = queue.expire(departureTime)) {
+                if(expired == Expired.DROP) {
+                    queue.remove(order);
+                    drop(order, departureTime);
+                }
+            }
+            DroneOrder current = queue.poll(departureTime);
+            if(current != null) {
+                long deliveryTime = current.getEdistance() * 60;
+                finishTime = departureTime + deliveryTime * 2;
+                if(current.hasDeadline()) {
+                    if(departureTime + deliveryTime <= current.getDeadline())
+                        onTime++;
+                    else
+                        late++;
+                }
+                // Calculate NPS and add result
+                recordDispatch(current, departureTime, deliveryTime);
+                // Add all tasks which starts before previous task finish
+                admitTasks(finishTime);
+            }
+            //if currently no task
+            if(queue.isEmpty() && hasUpcomingTasks())
+                finishTime = initQueue();
+        }
+
+        finishScheduling();
+    }
+
+    /**
+     * A dropped order is not delivered, it counts as a detractor, and goes
+     * to the consumers and the dispatch sink as any decision
+     * @param order expired order, no longer waiting
+     * @param time when it is dropped, in seconds
+     */
+    private void drop(DroneOrder order, long time) {
+        dropped++;
+        recordDrop(order, time);
+    }
+
+    /**
+     * The waiting queue must be a DeadlineOrderQueue
+     * @param queue empty waiting queue
+     */
+    @Override
+    public void setQueue(Queue<DroneOrder> queue) {
+        if(!(queue instanceof DeadlineOrderQueue))
+            throw new IllegalArgumentException("DeadlineScheduler needs a DeadlineOrderQueue");
+        super.setQueue(queue);
+    }
+
+    public Expired getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return number of perishable orders dropped
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return number of perishable orders delivered by their deadline
+     */
+    public long getOnTime() {
+        return onTime;
+    }
+
+    /**
+     * @return number of perishable orders delivered after their deadline
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * eg: perishable 420, on time 401, late 0, dropped 19
+     * @return formatted report
+     */
+    public String getDeadlineReport() {
+        return "perishable " + (onTime + late + dropped)
+                + ", on time " + onTime
+                + ", late " + late
+                + ", dropped " + dropped;
+    }
+
+}
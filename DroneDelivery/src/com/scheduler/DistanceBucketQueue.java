@@ -0,0 +1,238 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+
+import java.util.*;
+
+
+/**
+ * Distance Bucket Queue is a waiting queue for the schedulers, shorter tasks come
+ * first as with DroneOrderComparator, for the small integer distances of the orders:
+ *      |-- bucket d is a FIFO of the waiting orders at distance d, so orders with
+ *          the same distance are delivered in the order they were offered
+ *      |-- a two-level bitmap tells which buckets are not empty: finding the next
+ *          shortest order looks at a few words, whatever the number of buckets
+ *      |-- offer and poll are O(1) amortized, no comparison and no allocation once
+ *          the buckets grew, against O(log n) comparisons for a PriorityQueue
+ *      |-- the buckets grow up to the largest distance offered, and maxBuckets at most:
+ *          farther orders go to an overflow TreeMap of FIFOs, ordered the same way
+ *
+ * Iterating goes from the shortest distance to the longest, FIFO in each bucket:
+ * offering the orders again in that order rebuilds the same queue, as checkpoints do.
+ * It is a drop-in replacement of the PriorityQueue of InputStreamScheduler, see
+ * setQueue(). With it, ties are broken in arrival order, as OrderStoreScheduler does.
+ *
+ *
+ */
+public class DistanceBucketQueue extends AbstractQueue<DroneOrder> {
+
+    public final static int DEFAULT_MAX_BUCKETS = 1 << 16;
+    private final static int NONE = Integer.MAX_VALUE;
+
+    private final int maxBuckets;
+    /**
+     * buckets[d]: orders at distance d, created the first time d is offered
+     */
+    private ArrayDeque<DroneOrder>[] buckets;
+    /**
+     * Bit d of words: buckets[d] is not empty. Bit w of summary: words[w] is not 0
+     */
+    private long[] words;
+    private long[] summary;
+    /**
+     * Orders at distance maxBuckets or more
+     */
+    private final TreeMap<Long, ArrayDeque<DroneOrder>> overflow = new TreeMap<Long, ArrayDeque<DroneOrder>>();
+    private int overflowSize;
+    private int size;
+    /**
+     * Shortest not empty bucket, NONE if they are all empty
+     */
+    private int min = NONE;
+
+    public DistanceBucketQueue() {
+        this(DEFAULT_MAX_BUCKETS);
+    }
+
+    /**
+     * @param maxBuckets largest number of buckets, rounded up to a power of 2, at least 64
+     */
+    public DistanceBucketQueue(int maxBuckets) {
+        if(maxBuckets < 1 || maxBuckets > 1 << 30)
+            throw new IllegalArgumentException("Invalid number of buckets " + maxBuckets);
+        this.maxBuckets = Math.max(64, Integer.highestOneBit(maxBuckets - 1) << 1);
+        resize(64);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int length) {
+        buckets = buckets == null ? (ArrayDeque<DroneOrder>[]) new ArrayDeque<?>[length] : Arrays.copyOf(buckets, length);
+        words = words == null ? new long[length >>> 6] : Arrays.copyOf(words, length >>> 6);
+        summary = new long[(words.length + 63) >>> 6];
+        for(int w = 0; w < words.length; w++)
+            if(words[w] != 0)
+                summary[w >>> 6] |= 1L << w;
+    }
+
+    @Override
+    public boolean offer(DroneOrder order) {
+        insert(order, false);
+        return true;
+    }
+
+    /**
+     * Put an order back at the head of its bucket, before the orders of the same
+     * distance, eg: an order polled and not delivered keeps its place.
+     * Orders polled together are put back in the reverse order.
+     * @param order
+     */
+    public void offerFirst(DroneOrder order) {
+        insert(order, true);
+    }
+
+    private void insert(DroneOrder order, boolean first) {
+        long distance = order.getEdistance();
+        if(distance < 0)
+            throw new IllegalArgumentException("Negative distance " + distance);
+        if(distance >= maxBuckets) {
+            ArrayDeque<DroneOrder> bucket = overflow.computeIfAbsent(distance, d -> new ArrayDeque<DroneOrder>());
+            if(first)
+                bucket.offerFirst(order);
+            else
+                bucket.offerLast(order);
+            overflowSize++;
+            size++;
+            return;
+        }
+        int d = (int) distance;
+        if(d >= buckets.length)
+            resize(Math.min(maxBuckets, Math.max(buckets.length * 2, Integer.highestOneBit(d) << 1)));
+        ArrayDeque<DroneOrder> bucket = buckets[d];
+        if(bucket == null)
+            bucket = buckets[d] = new ArrayDeque<DroneOrder>();
+        if(bucket.isEmpty()) {
+            words[d >>> 6] |= 1L << d;
+            summary[d >>> 12] |= 1L << (d >>> 6);
+            if(d < min)
+                min = d;
+        }
+        if(first)
+            bucket.offerFirst(order);
+        else
+            bucket.offerLast(order);
+        size++;
+    }
+
+    @Override
+    public DroneOrder poll() {
+        if(size == 0)
+            return null;
+        size--;
+        if(min != NONE) {
+            ArrayDeque<DroneOrder> bucket = buckets[min];
+            DroneOrder order = bucket.poll();
+            if(bucket.isEmpty()) {
+                words[min >>> 6] &= ~(1L << min);
+                if(words[min >>> 6] == 0)
+                    summary[min >>> 12] &= ~(1L << (min >>> 6));
+                min = next(min + 1);
+            }
+            return order;
+        }
+        Map.Entry<Long, ArrayDeque<DroneOrder>> first = overflow.firstEntry();
+        DroneOrder order = first.getValue().poll();
+        if(first.getValue().isEmpty())
+            overflow.remove(first.getKey());
+        overflowSize--;
+        return order;
+    }
+
+    @Override
+    public DroneOrder peek() {
+        if(size == 0)
+            return null;
+        if(min != NONE)
+            return buckets[min].peek();
+        return overflow.firstEntry().getValue().peek();
+    }
+
+    /**
+     * @param from bucket to start from
+     * @return first not empty bucket from it, NONE if there is none
+     */
+    private int next(int from) {
+        int w = from >>> 6;
+        if(w >= words.length)
+            return NONE;
+        long bits = words[w] & (-1L << from);
+        if(bits != 0)
+            return (w << 6) | Long.numberOfTrailingZeros(bits);
+        // the next not empty word, from the summary
+        w++;
+        if(w >= words.length)
+            return NONE;
+        int s = w >>> 6;
+        long summaryBits = summary[s] & (-1L << w);
+        while(summaryBits == 0) {
+            if(++s >= summary.length)
+                return NONE;
+            summaryBits = summary[s];
+        }
+        w = (s << 6) | Long.numberOfTrailingZeros(summaryBits);
+        return (w << 6) | Long.numberOfTrailingZeros(words[w]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for(int d = min; d != NONE; d = next(d + 1))
+            buckets[d].clear();
+        Arrays.fill(words, 0);
+        Arrays.fill(summary, 0);
+        overflow.clear();
+        overflowSize = 0;
+        size = 0;
+        min = NONE;
+    }
+
+    /**
+     * @return orders from the shortest distance to the longest, FIFO in each bucket
+     */
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        List<Iterator<DroneOrder>> parts = new ArrayList<Iterator<DroneOrder>>();
+        for(int d = min; d != NONE; d = next(d + 1))
+            parts.add(buckets[d].iterator());
+        for(ArrayDeque<DroneOrder> bucket : overflow.values())
+            parts.add(bucket.iterator());
+        return new Iterator<DroneOrder>() {
+            private int part;
+
+            @Override
+            public boolean hasNext() {
+                while(part < parts.size() && !parts.get(part).hasNext())
+                    part++;
+                return part < parts.size();
+            }
+
+            @Override
+            public DroneOrder next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return parts.get(part).next();
+            }
+        };
+    }
+
+    /**
+     * @return number of orders in the overflow, beyond the buckets
+     */
+    public int getOverflowSize() {
+        return overflowSize;
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.tools.TimeConvert;
+
+import java.util.*;
+
+
+/**
+ * Fleet Scheduler runs the dynamic algorithm(shortest order first) with
+ * several drones sharing one warehouse, as a discrete-event simulation:
+ *  1. Events are the times the drones become free. They are kept in a min-heap
+ *     of drone free times, the drone which frees up first is served first.
+ *  2. When a drone is free, all the tasks which came by that time are offered
+ *     to the shared waiting queue(PriorityQueue ordered by DroneOrderComparator),
+ *     and the drone takes the shortest one.
+ *  3. When no task is waiting, the drone waits for the next task to come.
+ *     Several drones waiting for the same tasks take them in the order they freed up.
+ * Decisions are made in time sequence, so the dispatch sink gets them sorted by departure time.
+ *
+ * With one drone, it delivers exactly as InputStreamScheduler does.
+ * Besides the fleet-wide NPS, it reports per-drone deliveries and utilization.
+ *
+ *
+ */
+public class FleetScheduler extends InputStreamScheduler {
+
+    /**
+     * Min-heap of drone indexes, ordered by free time then index
+     */
+    private int[] drones;
+    /**
+     * Time each drone is free, in seconds
+     */
+    private long[] freeTime;
+    /**
+     * Time each drone spent flying, in seconds
+     */
+    private long[] busyTime;
+    /**
+     * Number of orders each drone delivered
+     */
+    private int[] deliveries;
+    /**
+     * Simulation time range: the first order comes, the last drone comes back
+     */
+    private long firstTime;
+    private long lastTime;
+
+    /**
+     * @param tasks Orders stream
+     * @param droneCount number of drones in the warehouse
+     */
+    public FleetScheduler(Queue<DroneOrder> tasks, int droneCount) {
+        super(tasks);
+        if(droneCount < 1)
+            throw new IllegalArgumentException("A fleet needs at least one drone");
+        drones = new int[droneCount];
+        freeTime = new long[droneCount];
+        busyTime = new long[droneCount];
+        deliveries = new int[droneCount];
+        for(int i = 0; i < droneCount; i++)
+            drones[i] = i;
+    }
+
+    /**
+     * Start scheduling
+     */
+    @Override
+    public void start() {
+        // Waiting tasks, shared by all the drones
+        Queue<DroneOrder> queue = getQueue();
+        // Edge case: if there is no tasks, return
+        if(getTasks().isEmpty())
+            return;
+        // push the first task, all the drones are free when it comes
+        long clock = initQueue();  // time of the next dispatch decision
+        firstTime = clock;
+        lastTime = clock;
+        Arrays.fill(freeTime, clock);
+
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
+            // Process current task with the drone which frees up first
+            int drone = drones[0];
+            DroneOrder current = queue.poll();
+            long departureTime = clock;
+            long deliveryTime = current.getEdistance() * 60; // deliveryTime = distance * 60 (sec)
+            long flyBackTime = deliveryTime;
+            long finishTime = departureTime + deliveryTime + flyBackTime;
+
+            // Calculate NPS and add result
+            recordDispatch(current, departureTime, deliveryTime);
+
+            busyTime[drone] += deliveryTime + flyBackTime;
+            deliveries[drone] ++;
+            freeTime[drone] = finishTime;
+            lastTime = Math.max(lastTime, finishTime);
+            siftDownTop();
+
+            // Next decision: when the next drone is free. A drone can't go back in time,
+            // if it freed up before the latest decision, no task came in between
+            clock = Math.max(freeTime[drones[0]], clock);
+            // Add all tasks which come before the next drone is free
+            admitTasks(clock);
+            //if currently no task, the drone waits for the next one
+            if(queue.isEmpty() && hasUpcomingTasks())
+                clock = initQueue();
+        }
+
+        finishScheduling();
+    }
+
+    /**
+     * The top drone's free time grew, move it down the heap
+     */
+    private void siftDownTop() {
+        int n = drones.length;
+        int drone = drones[0];
+        int i = 0;
+        while(2 * i + 1 < n) {
+            int child = 2 * i + 1;
+            if(child + 1 < n && earlier(drones[child + 1], drones[child]))
+                child++;
+            if(!earlier(drones[child], drone))
+                break;
+            drones[i] = drones[child];
+            i = child;
+        }
+        drones[i] = drone;
+    }
+
+    private boolean earlier(int a, int b) {
+        return freeTime[a] < freeTime[b] || (freeTime[a] == freeTime[b] && a < b);
+    }
+
+    @Override
+    public int getDroneCount() {
+        return drones.length;
+    }
+
+    /**
+     * @param drone index of the drone
+     * @return number of orders the drone delivered
+     */
+    public int getDeliveries(int drone) {
+        return deliveries[drone];
+    }
+
+    /**
+     * @param drone index of the drone
+     * @return time the drone spent flying, in seconds
+     */
+    public long getBusyTime(int drone) {
+        return busyTime[drone];
+    }
+
+    /**
+     * Utilization = flying time / time from the first order to the last drone back
+     * @param drone index of the drone
+     * @return utilization between 0 and 1
+     */
+    public double getUtilization(int drone) {
+        if(lastTime == firstTime)
+            return 0;
+        return busyTime[drone] / (double) (lastTime - firstTime);
+    }
+
+    /**
+     * @return average utilization of the drones
+     */
+    public double getFleetUtilization() {
+        double total = 0;
+        for(int i = 0; i < drones.length; i++)
+            total += getUtilization(i);
+        return total / drones.length;
+    }
+
+    /**
+     * Per-drone report, one line per drone:
+     * eg: drone 0: deliveries 120, busy 10:20:00, utilization 64.58%
+     * @return formatted report
+     */
+    public String getUtilizationReport() {
+        StringBuilder report = new StringBuilder();
+        for(int i = 0; i < drones.length; i++) {
+            report.append("drone ").append(i)
+                    .append(": deliveries ").append(deliveries[i])
+                    .append(", busy ").append(TimeConvert.longToStr(busyTime[i]))
+                    .append(", utilization ").append(String.format("%.2f%%", getUtilization(i) * 100))
+                    .append('\n');
+        }
+        report.append("fleet utilization ").append(String.format("%.2f%%", getFleetUtilization() * 100));
+        return report.toString();
+    }
+
+}
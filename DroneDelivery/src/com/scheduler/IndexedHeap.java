@@ -0,0 +1,215 @@
+package com.scheduler;
+
+import java.util.Arrays;
+
+
+/**
+ * Indexed Heap is a min-heap of int slots, each with a long key, which also knows
+ * where every slot is in the heap:
+ *      |-- a slot is a small index chosen by the caller, eg: where an order is kept
+ *      |-- the smallest key comes first, the smallest tie on equal keys(eg: an arrival sequence)
+ *      |-- positions[slot] is the place of the slot in the heap, so a slot is removed
+ *          or given a new key in O(log n), without looking for it
+ *      |-- the heap is 4-ary: half the depth of a binary heap, and the 4 children of a node
+ *          are next to each other in the array
+ *
+ * Nothing is allocated once the arrays grew to the largest slot.
+ *
+ *
+ */
+public class IndexedHeap {
+
+    private final static int ARITY = 4;
+    private final static int ABSENT = -1;
+
+    /**
+     * heap[i]: slot at place i, the children of i are at 4i+1 to 4i+4
+     */
+    private int[] heap;
+    /**
+     * positions[slot]: place of the slot in heap, ABSENT if it is not in the heap
+     */
+    private int[] positions;
+    private long[] keys;
+    private long[] ties;
+    private int size;
+
+    public IndexedHeap() {
+        this(64);
+    }
+
+    /**
+     * @param capacity expected number of slots
+     */
+    public IndexedHeap(int capacity) {
+        capacity = Math.max(capacity, 1);
+        heap = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, ABSENT);
+        keys = new long[capacity];
+        ties = new long[capacity];
+    }
+
+    /**
+     * Add a slot which is not in the heap
+     * @param slot 0 or more
+     * @param key
+     * @param tie order of the slots with the same key
+     */
+    public void insert(int slot, long key, long tie) {
+        if(slot < 0)
+            throw new IllegalArgumentException("Invalid slot " + slot);
+        if(slot >= positions.length)
+            growSlots(slot + 1);
+        if(positions[slot] != ABSENT)
+            throw new IllegalStateException("Slot " + slot + " is already in the heap");
+        if(size == heap.length)
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        keys[slot] = key;
+        ties[slot] = tie;
+        heap[size] = slot;
+        positions[slot] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Give a slot of the heap a new key
+     * @param slot
+     * @param key
+     * @return whether the slot is in the heap
+     */
+    public boolean update(int slot, long key) {
+        if(!contains(slot))
+            return false;
+        long old = keys[slot];
+        keys[slot] = key;
+        if(key < old)
+            siftUp(positions[slot]);
+        else
+            siftDown(positions[slot]);
+        return true;
+    }
+
+    /**
+     * Take a slot out of the heap, wherever it is
+     * @param slot
+     * @return whether the slot was in the heap
+     */
+    public boolean remove(int slot) {
+        if(!contains(slot))
+            return false;
+        int i = positions[slot];
+        positions[slot] = ABSENT;
+        int last = heap[--size];
+        if(i < size) {
+            heap[i] = last;
+            positions[last] = i;
+            // the last slot may go either way
+            siftUp(i);
+            siftDown(positions[last]);
+        }
+        return true;
+    }
+
+    /**
+     * @return slot with the smallest key, -1 if the heap is empty
+     */
+    public int peek() {
+        return size == 0 ? ABSENT : heap[0];
+    }
+
+    /**
+     * @return slot with the smallest key, out of the heap, -1 if the heap is empty
+     */
+    public int poll() {
+        int slot = peek();
+        if(slot != ABSENT)
+            remove(slot);
+        return slot;
+    }
+
+    public boolean contains(int slot) {
+        return slot >= 0 && slot < positions.length && positions[slot] != ABSENT;
+    }
+
+    /**
+     * @param slot in the heap
+     * @return key of the slot
+     */
+    public long getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @param i place in the heap, 0 to size - 1
+     * @return slot at that place, the slots in no particular order
+     */
+    public int get(int i) {
+        if(i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+        return heap[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        for(int i = 0; i < size; i++)
+            positions[heap[i]] = ABSENT;
+        size = 0;
+    }
+
+    private void growSlots(int minLength) {
+        int length = Math.max(minLength, positions.length * 2);
+        int old = positions.length;
+        positions = Arrays.copyOf(positions, length);
+        Arrays.fill(positions, old, length, ABSENT);
+        keys = Arrays.copyOf(keys, length);
+        ties = Arrays.copyOf(ties, length);
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && ties[a] < ties[b]);
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while(i > 0) {
+            int parent = (i - 1) / ARITY;
+            if(!less(slot, heap[parent]))
+                break;
+            heap[i] = heap[parent];
+            positions[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = slot;
+        positions[slot] = i;
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        while(true) {
+            int first = i * ARITY + 1;
+            if(first >= size)
+                break;
+            int best = first;
+            int end = Math.min(first + ARITY, size);
+            for(int c = first + 1; c < end; c++)
+                if(less(heap[c], heap[best]))
+                    best = c;
+            if(!less(heap[best], slot))
+                break;
+            heap[i] = heap[best];
+            positions[heap[i]] = i;
+            i = best;
+        }
+        heap[i] = slot;
+        positions[slot] = i;
+    }
+
+}
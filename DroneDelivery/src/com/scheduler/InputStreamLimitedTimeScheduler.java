@@ -2,7 +2,6 @@ package com.scheduler;
 
 
 import com.delivery.DroneOrder;
-import com.tools.NPSCalculator;
 import com.tools.TimeConvert;
 
 import java.util.*;
@@ -15,8 +14,16 @@ import java.util.*;
  * starts waiting for orders at 6am, and it never work after 10pm. If an order
  * starts before 10pm but delivery time after 10pm, the drone doesn't deliver it.
  *
+ * Dated orders (epoch seconds) are checked against the working time of their own day,
+ * so a stream of several days doesn't stop at the first midnight.
+ *
+ * With carry over, nothing is dropped because of the clock:
+ *      |-- orders coming outside the working time wait for the next start
+ *      |-- when the shortest waiting order can't be back by the end, the drone stops
+ *          for the day, and the waiting orders are the first ones the next day
+ *      |-- only orders whose round trip is longer than the working time are dropped,
+ *          they count as detractors and are written as "WMXXXX dropped HH:MM:SS"
  *
-
  *
  */
 public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
@@ -29,35 +36,19 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
      * The end of the working time period
      */
     private int end;
-
     /**
-     * PriorityQueue to store waiting tasks.
-     * Shorter tasks come first
+     * Whether the orders not delivered in time wait for the next working day
      */
-    private PriorityQueue<DroneOrder> queue;
-    /**
-     * Task queue, simulate continuously coming tasks
-     */
-    private Queue<DroneOrder> tasks;
+    private boolean carryOver;
     /**
-     * Store the result DroneOrder sequence
+     * Orders which can never be delivered in the working time, with carry over
      */
-    private List<DroneOrder> result;
-    /**
-     * Store the result sequence in a readable way.
-     * Is formatted, can be output to file
-     * eg: WMXXXX 00:00:00
-     */
-    private List<String> printResult;
+    private int dropped;
+
     /**
-     * Total Order number, promoters number, neutral number and detractors number, in order to calculate NPS
+     * Task queue, simulate continuously coming tasks
      */
-    private int totalOrder;
-    private int promoters;
-    @SuppressWarnings("unused")
-    private int neutral;
-    private int detractors;
-
+    private Queue<DroneOrder> tasks;
 
     /**
      * Given several tasks, and the start working time and end working time,
@@ -68,7 +59,19 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
      * @param end   In seconds, the time the drone end working
      */
     public InputStreamLimitedTimeScheduler(Queue<DroneOrder> tasks, int start, int end) {
+        this(tasks, start, end, false);
+    }
+
+    /**
+     * Given several tasks, and the daily start working time and end working time
+     * @param tasks Orders stream
+     * @param start In seconds of the day, the time the drone start working
+     * @param end   In seconds of the day, the time the drone end working
+     * @param carryOver whether the orders not delivered by the end wait for the next day
+     */
+    public InputStreamLimitedTimeScheduler(Queue<DroneOrder> tasks, int start, int end, boolean carryOver) {
         super(tasks);
+        this.carryOver = carryOver;
         if(start < 0 || end < 0 || start > end) {
             System.out.println("Working time not permitted");
 //			throw new Exception();
@@ -77,13 +80,6 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
         this.start = start;
         this.end = end;
         this.tasks = super.getTasks();
-        this.queue = super.getQueue();
-        this.result=  super.getResult();
-        this.printResult = super.getPrintResult();
-        this.totalOrder = super.getTotalOrder();
-        this.promoters = super.getPromoters();
-        this.neutral = super.getNeutral();
-        this.detractors = super.getDetractors();
     }
 
     /**
@@ -91,9 +87,15 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
      */
     @Override
     public void start() {
+        Queue<DroneOrder> queue = getQueue();
         // Edge case
         if(tasks.isEmpty())
             return;
+        if(carryOver) {
+            super.setTasks(tasks);
+            startWithCarryOver();
+            return;
+        }
         // Filter out the out of time range tasks
         tasks = filterTasksWithTimeRange(tasks, start, end);
         super.setTasks(tasks);
@@ -104,7 +106,7 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
         // push the first task
         long finishTime = initQueue();
 
-        while(!queue.isEmpty() || !tasks.isEmpty()) {
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
             // Process current task
             DroneOrder current = queue.poll();  // get the task to be processed
             long departureTime = finishTime; // departure time = previous tasks finish time
@@ -113,65 +115,105 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
             finishTime = departureTime + deliveryTime + flyBackTime;
 
             // When out of devery time, break
-            if(finishTime < this.start || finishTime > this.end) {
+            long dayStart = dayStart(current);
+            if(finishTime < dayStart + this.start || finishTime > dayStart + this.end) {
                 //In case that:  when short task out of finish time, but longer task can be finished by that time
-                if(queue.isEmpty() && !tasks.isEmpty()) {
+                if(queue.isEmpty() && hasUpcomingTasks()) {
                     finishTime = initQueue();
                 }
                 continue;
             }
 
-            // Calculate NPS
-            long timeWait = departureTime + deliveryTime - current.geteTime();
-            totalOrder ++;
-            String cal = NPSCalculator.calculateSatisfaction(timeWait);
-            if("Invalid".equals(cal))
-                System.out.println("Invalid waiting time");
-            else if("Promoters".equals(cal))
-                promoters ++;
-            else if("Neutral".equals(cal))
-                neutral ++;
-            else if("Detractors".equals(cal))
-                detractors ++;
-
-            // Add result
-            result.add(current);
-            printResult.add(current.getOrderID().getOrderID()+" "+TimeConvert.longToStr(departureTime));
+            // Calculate NPS and add result
+            recordDispatch(current, departureTime, deliveryTime);
 
             // Add all tasks which starts before previous task finish
-            while(true) {
-                if(!tasks.isEmpty() && tasks.peek().geteTime() <= finishTime)
-                    queue.offer(tasks.poll());
-                else
-                    break;
-            }
+            admitTasks(finishTime);
             //if currently no task
-            if(queue.isEmpty() && !tasks.isEmpty()) {
+            if(queue.isEmpty() && hasUpcomingTasks()) {
                 finishTime = initQueue();
             }
 
         }
 
-        String nps = "NPS " +  ((promoters - detractors)/(double)totalOrder)*100;
-        printResult.add(nps);
+        finishScheduling();
 
     }
 
+    /**
+     * Deliver day after day, the orders which can't be delivered today wait for tomorrow
+     */
+    private void startWithCarryOver() {
+        Queue<DroneOrder> queue = getQueue();
+        dropped = 0;
+        long finishTime = initQueue();
+
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
+            //if currently no task, the drone waits for the next one
+            if(queue.isEmpty())
+                finishTime = Math.max(finishTime, initQueue());
+            long departureTime = workingTime(finishTime);
+            // Add all tasks which come before the drone leaves
+            admitTasks(departureTime);
+
+            DroneOrder current = queue.poll();  // the shortest waiting task
+            long deliveryTime = current.getEdistance() * 60;
+            if(deliveryTime * 2 > end - start) {
+                dropped ++;
+                recordDrop(current, departureTime);
+                continue;
+            }
+            long dayStart = departureTime - Math.floorMod(departureTime, TimeConvert.SECONDS_OF_DAY);
+            if(departureTime + deliveryTime * 2 > dayStart + end) {
+                // the shortest one can't be back in time, neither can the others: stop for today
+                queue.offer(current);
+                finishTime = dayStart + TimeConvert.SECONDS_OF_DAY + start;
+                continue;
+            }
+            finishTime = departureTime + deliveryTime * 2;
+
+            // Calculate NPS and add result
+            recordDispatch(current, departureTime, deliveryTime);
+        }
+
+        finishScheduling();
+    }
+
+    /**
+     * @param time in seconds
+     * @return the first working time no earlier than time
+     */
+    private long workingTime(long time) {
+        long timeOfDay = Math.floorMod(time, TimeConvert.SECONDS_OF_DAY);
+        long dayStart = time - timeOfDay;
+        if(timeOfDay < start)
+            return dayStart + start;
+        if(timeOfDay > end)
+            return dayStart + TimeConvert.SECONDS_OF_DAY + start;
+        return time;
+    }
+
+    /**
+     * @param order
+     * @return start of the order's day, 0 if the order has no date
+     */
+    static long dayStart(DroneOrder order) {
+        if(!order.getOrderTime().isDated())
+            return 0;
+        return order.geteTime() - Math.floorMod(order.geteTime(), TimeConvert.SECONDS_OF_DAY);
+    }
+
     /**
      * Filter out the tasks outside of specified time range.
+     * The filter is lazy: orders are only checked when they reach the head
+     * of the returned queue, so a streaming input stays streaming.
      * @param orders
      * @param start time range's start
      * @param end time range's end
      * @return Queue of filtered tasks
      */
     protected Queue<DroneOrder> filterTasksWithTimeRange(Queue<DroneOrder> orders, int start, int end) {
-        Queue<DroneOrder> tasks = new LinkedList<>();
-        while(!orders.isEmpty()) {
-            DroneOrder temp = orders.poll();
-            if(start <= temp.geteTime() && temp.geteTime() <= end)
-                tasks.offer(temp);
-        }
-        return tasks;
+        return new TimeRangeQueue(orders, start, end);
     }
 
     public int getStart() {
@@ -190,6 +232,21 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
         this.end = end;
     }
 
+    public boolean isCarryOver() {
+        return carryOver;
+    }
+
+    public void setCarryOver(boolean carryOver) {
+        this.carryOver = carryOver;
+    }
+
+    /**
+     * @return orders dropped because their round trip is longer than the working time, with carry over
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
     public Queue<DroneOrder> getTasks() {
         return tasks;
     }
@@ -202,3 +259,100 @@ public class InputStreamLimitedTimeScheduler extends InputStreamScheduler {
 
 }
 
+/**
+ * A lazy Queue view of the orders within a time range,
+ * starting and ending time inclusive. The range applies to
+ * the time of the day of dated orders.
+ * The orders out of range are dropped when they reach the head.
+ *
+ *
+ */
+class TimeRangeQueue extends AbstractQueue<DroneOrder> {
+
+    private Queue<DroneOrder> orders;
+    private int start;
+    private int end;
+
+    TimeRangeQueue(Queue<DroneOrder> orders, int start, int end) {
+        this.orders = orders;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public DroneOrder peek() {
+        while(!orders.isEmpty()) {
+            DroneOrder temp = orders.peek();
+            if(inRange(temp))
+                return temp;
+            orders.poll();
+        }
+        return null;
+    }
+
+    private boolean inRange(DroneOrder order) {
+        long time = order.geteTime() - InputStreamLimitedTimeScheduler.dayStart(order);
+        return start <= time && time <= end;
+    }
+
+    @Override
+    public DroneOrder poll() {
+        DroneOrder temp = peek();
+        if(temp != null)
+            orders.poll();
+        return temp;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public boolean offer(DroneOrder order) {
+        return orders.offer(order);
+    }
+
+    /**
+     * Counts the remaining orders in range, only supported when the source can be iterated
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for(DroneOrder temp : this)
+            size++;
+        return size;
+    }
+
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        final Iterator<DroneOrder> source = orders.iterator();
+        return new Iterator<DroneOrder>() {
+            private DroneOrder next = advance();
+
+            private DroneOrder advance() {
+                while(source.hasNext()) {
+                    DroneOrder temp = source.next();
+                    if(inRange(temp))
+                        return temp;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public DroneOrder next() {
+                if(next == null)
+                    throw new NoSuchElementException();
+                DroneOrder temp = next;
+                next = advance();
+                return temp;
+            }
+        };
+    }
+
+}
@@ -27,7 +27,18 @@ public class InputStreamLimitedTimeWithWaitScheduler extends InputStreamLimitedT
      * @param end   In seconds, the time the drone end working
      */
     public InputStreamLimitedTimeWithWaitScheduler(Queue<DroneOrder> tasks, int start, int end) {
-        super(tasks, start, end);
+        this(tasks, start, end, false);
+    }
+
+    /**
+     * Deliver in limited time + Do detractor tasks at very last
+     * @param tasks Orders stream
+     * @param start In seconds of the day, the time the drone start working
+     * @param end   In seconds of the day, the time the drone end working
+     * @param carryOver whether the orders not delivered by the end wait for the next day
+     */
+    public InputStreamLimitedTimeWithWaitScheduler(Queue<DroneOrder> tasks, int start, int end, boolean carryOver) {
+        super(tasks, start, end, carryOver);
         if(start < 0 || end < 0 || start > end) {
             System.out.println("Working time not permitted");
 //			throw new Exception();
@@ -43,7 +54,10 @@ public class InputStreamLimitedTimeWithWaitScheduler extends InputStreamLimitedT
         if(tasks.isEmpty())
             return;
         // Move the detractors to the back of the task
-        tasks = new InputWithWaitScheduler(new LinkedList<DroneOrder>()).rearrangeTasks(tasks);
+        // with the cutoffs of this scheduler, not the default ones
+        InputWithWaitScheduler unfair = new InputWithWaitScheduler(new LinkedList<DroneOrder>());
+        unfair.setCalculator(getCalculator());
+        tasks = unfair.rearrangeTasks(tasks);
 
         super.setTasks(tasks);
         super.start();
@@ -1,9 +1,18 @@
 package com.scheduler;
 
 import com.delivery.DroneOrder;
+import com.tools.ChannelDispatchSink;
+import com.tools.CheckpointWriter;
+import com.tools.DeliveryOutcome;
+import com.tools.DispatchSink;
 import com.tools.NPSCalculator;
+import com.tools.OrderStream;
+import com.tools.OutcomeConsumer;
+import com.tools.Satisfaction;
 import com.tools.TimeConvert;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 
@@ -33,6 +42,20 @@ import java.util.*;
  *  		<--Deliver	   WaitingTasksQueue      <--Offer tasks               Upcoming Tasks
  *  					 ---------------------                         -----------------------------
  *                        Ascending                                Simulate Continuously Coming Tasks
+ *  5. Checkpoints:
+ *      |-- With enableCheckpoints(), the state is encoded between two deliveries
+ *          every interval, and written to the disk by a background CheckpointWriter
+ *      |-- With resume(), start() goes on from a checkpoint instead of the first order,
+ *          the stream and the output being reopened at the checkpoint offsets
+ *  6. Outcomes:
+ *      |-- Each decision is classified by an NPSCalculator(the given table by default)
+ *          into a Satisfaction, and counted
+ *      |-- An order which is not delivered(eg: an expired perishable order) is a detractor,
+ *          recorded with recordDrop()
+ *      |-- The outcome of each decision is then handed to the OutcomeConsumers added with
+ *          addOutcomeConsumer(), eg: SchedulerMetrics(waiting time histogram, queue depth,
+ *          busy and idle time, decision rate), RollingNPS(NPS of the last minutes or hours).
+ *          One DeliveryOutcome is filled again for every order, nothing is allocated per order.
  *
  *
  *
@@ -43,12 +66,18 @@ public class InputStreamScheduler {
     /**
      * PriorityQueue to store waiting tasks.
      * Shorter tasks come first
+     * Can be replaced by a DistanceBucketQueue with setQueue()
      */
-    private PriorityQueue<DroneOrder> queue;
+    private Queue<DroneOrder> queue;
     /**
      * Task queue, simulate continuously coming tasks
      */
     private Queue<DroneOrder> tasks;
+    /**
+     * Orders which came at the same time as the one picked by initQueue(),
+     * they are the head of the upcoming tasks, kept in arrival order
+     */
+    private Queue<DroneOrder> arrivalGroup;
     /**
      * Store the result DroneOrder sequence
      */
@@ -59,6 +88,11 @@ public class InputStreamScheduler {
      * eg: WMXXXX 00:00:00
      */
     private List<String> printResult;
+    /**
+     * Receives the dispatch decisions as they are made. When it is null,
+     * the decisions are kept in result and printResult.
+     */
+    private DispatchSink sink;
     /**
      * Total Order number, promoters number, neutral number and detractors number, in order to calculate NPS
      */
@@ -66,6 +100,30 @@ public class InputStreamScheduler {
     private int promoters;
     private int neutral;
     private int detractors;
+    /**
+     * Checkpoints: writer, the stream the offset is taken from,
+     * the output the length is taken from, and the interval in ns
+     */
+    private CheckpointWriter checkpointWriter;
+    private OrderStream checkpointInput;
+    private ChannelDispatchSink checkpointOutput;
+    private long checkpointInterval;
+    private long nextCheckpoint;
+    private int checkpoints;
+    /**
+     * Checkpoint to go on from, null to start from the first order
+     */
+    private SchedulerCheckpoint resumeFrom;
+    /**
+     * Classifies the waiting times
+     */
+    private NPSCalculator calculator = NPSCalculator.DEFAULT;
+    /**
+     * Receive the outcome of every decision, besides the NPS counters.
+     * The outcome is filled again for every order.
+     */
+    private OutcomeConsumer[] consumers = new OutcomeConsumer[0];
+    private final DeliveryOutcome outcome = new DeliveryOutcome();
 
     /**
      * Initiate the scheduler with some upcoming tasks, which comes in time sequence
@@ -75,6 +133,7 @@ public class InputStreamScheduler {
         super();
         this.tasks = tasks;
         queue = new PriorityQueue<DroneOrder>(new DroneOrderComparator()); // Comparator let shorter task goes first
+        arrivalGroup = new ArrayDeque<DroneOrder>();
         result = new ArrayList<DroneOrder>();
         printResult = new ArrayList<String>();
         totalOrder = 0;
@@ -88,56 +147,224 @@ public class InputStreamScheduler {
      * Start scheduling
      */
     public void start() {
-        // Edge case: if there is no tasks, return
-        if(tasks.isEmpty())
-            return;
-        // push the first task
-        long finishTime = initQueue();
+        if(checkpointWriter != null && tasks != checkpointInput)
+            throw new IllegalStateException("Checkpoints need the orders straight from the OrderStream");
+        long finishTime;
+        if(resumeFrom != null) {
+            finishTime = restore(resumeFrom);
+        } else {
+            // Edge case: if there is no tasks, return
+            if(tasks.isEmpty())
+                return;
+            // push the first task
+            finishTime = initQueue();
+        }
 
-        while(!queue.isEmpty() || !tasks.isEmpty()) {
+        while(!queue.isEmpty() || hasUpcomingTasks()) {
             // Process current task
-            DroneOrder current = queue.poll();  // get the task to be processed
+            DroneOrder current = nextOrder(finishTime);  // get the task to be processed
             long departureTime = finishTime; // departure time = previous tasks finish time
             long deliveryTime = current.getEdistance() * 60; // deliveryTime = distance * 60 (sec)
             long flyBackTime = deliveryTime;
             finishTime = departureTime + deliveryTime + flyBackTime;
 
-            // Calculate NPS
-            long timeWait = departureTime + deliveryTime - current.geteTime();
-            totalOrder ++;
-            String cal = NPSCalculator.calculateSatisfaction(timeWait);
-            if("Invalid".equals(cal))
-                System.out.println("Invalid waiting time");
-            else if("Promoters".equals(cal))
-                promoters ++;
-            else if("Neutral".equals(cal))
-                neutral ++;
-            else if("Detractors".equals(cal))
-                detractors ++;
-
-            // Add result
-            result.add(current);
-            printResult.add(current.getOrderID().getOrderID()+" "+TimeConvert.longToStr(departureTime));
-//			printResult.add(current.getOrderID().getOrderID()+" "+TimeConvert.longToStr(departureTime)
-//							+" "+cal + ": "+current.geteTime()+ ", "+departureTime/60 +", "+finishTime/60 +", "+timeWait/60	);
+            // Calculate NPS and add result
+            recordDispatch(current, departureTime, deliveryTime);
 
             // Add all tasks which starts before previous task finish
-            while(true) {
-                if(!tasks.isEmpty() && tasks.peek().geteTime() <= finishTime)
-                    queue.offer(tasks.poll());
-                else
-                    break;
-            }
+            admitTasks(finishTime);
             //if currently no task
-            if(queue.isEmpty() && !tasks.isEmpty()) {
+            if(queue.isEmpty() && hasUpcomingTasks()) {
                 finishTime = initQueue();
             }
 
+            if(checkpointWriter != null && System.nanoTime() >= nextCheckpoint)
+                checkpoint(finishTime);
+        }
+
+        // the last checkpoint is before the NPS line, a resume writes it again
+        if(checkpointWriter != null)
+            checkpoint(finishTime);
+        finishScheduling();
+
+    }
+
+    /**
+     * Take checkpoints while scheduling. The orders are read from input and the
+     * decisions written to output, which becomes the dispatch sink.
+     * Only the loop of start() takes checkpoints, and the tasks must not be
+     * rearranged by the scheduler: the waiting orders are saved, not the held back ones.
+     * @param writer writes the checkpoints in the background
+     * @param input stream the scheduler reads
+     * @param output sink the decisions are written to
+     * @param intervalMillis time between two checkpoints
+     */
+    public void enableCheckpoints(CheckpointWriter writer, OrderStream input, ChannelDispatchSink output,
+                                  long intervalMillis) {
+        this.checkpointWriter = writer;
+        this.checkpointInput = input;
+        this.checkpointOutput = output;
+        this.checkpointInterval = intervalMillis * 1000000;
+        this.nextCheckpoint = System.nanoTime() + checkpointInterval;
+        setDispatchSink(output);
+    }
+
+    /**
+     * Go on from a checkpoint when start() is called. The tasks must be the
+     * stream reopened at the input offset of the checkpoint, and the dispatch
+     * sink the output reopened at its output offset.
+     * @param checkpoint
+     */
+    public void resume(SchedulerCheckpoint checkpoint) {
+        this.resumeFrom = checkpoint;
+    }
+
+    /**
+     * Restore the counters and the waiting orders of a checkpoint
+     * @return finish time of the drone
+     */
+    private long restore(SchedulerCheckpoint checkpoint) {
+        totalOrder = checkpoint.getTotalOrder();
+        promoters = checkpoint.getPromoters();
+        neutral = checkpoint.getNeutral();
+        detractors = checkpoint.getDetractors();
+        // offered in the queue's own order, every order stays where it was: same queue, same ties
+        queue.clear();
+        for(DroneOrder order : checkpoint.getWaiting())
+            queue.offer(order);
+        arrivalGroup.clear();
+        arrivalGroup.addAll(checkpoint.getArrivalGroup());
+        resumeFrom = null;
+        return checkpoint.getFinishTime();
+    }
+
+    /**
+     * Copy the state between two deliveries, and hand it to the writer.
+     * Only the references of the waiting orders are copied here, the orders
+     * never change, so they are encoded by the writer thread.
+     * @param finishTime finish time of the drone
+     */
+    private void checkpoint(long finishTime) {
+        SchedulerCheckpoint checkpoint = new SchedulerCheckpoint(finishTime, getTotalOrder(), getPromoters(),
+                getNeutral(), getDetractors(), checkpointInput.getPosition(), checkpointOutput.flushPosition(),
+                new ArrayList<>(queue), new ArrayList<>(arrivalGroup));
+        try {
+            checkpointWriter.submit(checkpoint::toBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        checkpoints++;
+        nextCheckpoint = System.nanoTime() + checkpointInterval;
+    }
+
+    /**
+     * @return number of checkpoints taken by this scheduler
+     */
+    public int getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Pick the order the drone delivers next, out of the waiting queue which is not empty.
+     * The dynamic scheduler takes the shortest one, LookaheadScheduler looks further.
+     * @param departureTime time the drone leaves with it, in seconds
+     * @return the order, removed from the waiting queue
+     */
+    protected DroneOrder nextOrder(long departureTime) {
+        return queue.poll();
+    }
+
+    /**
+     * Count the NPS category of a delivered order, then hand the decision
+     * to the dispatch sink, or keep it in the result lists if there is no sink.
+     * @param current delivered order
+     * @param departureTime in seconds
+     * @param deliveryTime one way delivery time, in seconds
+     */
+    protected void recordDispatch(DroneOrder current, long departureTime, long deliveryTime) {
+        recordDispatch(current, departureTime, deliveryTime, deliveryTime * 2);
+    }
+
+    /**
+     * Same as recordDispatch(current, departureTime, deliveryTime), for an order
+     * which is not a round trip of its own, eg: one stop of a BatchingScheduler trip.
+     * @param current delivered order
+     * @param departureTime in seconds
+     * @param deliveryTime time from the departure to the delivery, in seconds
+     * @param flightTime flight time charged to this order, in seconds
+     */
+    protected void recordDispatch(DroneOrder current, long departureTime, long deliveryTime, long flightTime) {
+        // Calculate NPS
+        long timeWait = departureTime + deliveryTime - current.geteTime();
+        Satisfaction satisfaction = calculator.classify(timeWait);
+        countSatisfaction(satisfaction);
+        if(consumers.length > 0) {
+            outcome.set(current, current.geteID(), departureTime, deliveryTime, flightTime, timeWait, satisfaction,
+                    queue.size());
+            for(OutcomeConsumer consumer : consumers)
+                consumer.accept(outcome);
+        }
+
+        // Add result
+        if(sink != null) {
+            sink.dispatch(current, departureTime);
+        } else {
+            result.add(current);
+            printResult.add(current.getOrderID().getOrderID()+" "
+                    +TimeConvert.timeToStr(departureTime, current.getOrderTime().isDated()));
         }
+    }
 
-        String nps = "NPS " +  ((promoters - detractors)/(double)totalOrder)*100;
-        printResult.add(nps);
+    /**
+     * Count an order which is dropped, not delivered, as a detractor, then hand it
+     * to the consumers and to the dispatch sink, or keep it in the printed result.
+     * @param current dropped order, no longer waiting
+     * @param time when the order is dropped, in seconds
+     */
+    protected void recordDrop(DroneOrder current, long time) {
+        countSatisfaction(Satisfaction.DETRACTORS);
+        if(consumers.length > 0) {
+            outcome.setDropped(current, current.geteID(), time, time - current.geteTime(), queue.size());
+            for(OutcomeConsumer consumer : consumers)
+                consumer.accept(outcome);
+        }
 
+        if(sink != null) {
+            sink.drop(current, time);
+        } else {
+            printResult.add(current.getOrderID().getOrderID()+" dropped "
+                    +TimeConvert.timeToStr(time, current.getOrderTime().isDated()));
+        }
+    }
+
+    /**
+     * Count a delivered order in the NPS counters, once per order.
+     * Subclasses keeping their own counters override it with the getters.
+     * @param satisfaction NPS category of the order
+     */
+    protected void countSatisfaction(Satisfaction satisfaction) {
+        totalOrder ++;
+        if(satisfaction == Satisfaction.INVALID)
+            System.out.println("Invalid waiting time");
+        else if(satisfaction == Satisfaction.PROMOTERS)
+            promoters ++;
+        else if(satisfaction == Satisfaction.NEUTRAL)
+            neutral ++;
+        else if(satisfaction == Satisfaction.DETRACTORS)
+            detractors ++;
+    }
+
+    /**
+     * Add the NPS line at the end of the result, or write it to the dispatch sink.
+     */
+    protected void finishScheduling() {
+        double nps = ((getPromoters() - getDetractors())/(double)getTotalOrder())*100;
+        for(OutcomeConsumer consumer : consumers)
+            consumer.finish();
+        if(sink != null)
+            sink.finish(nps);
+        else
+            printResult.add("NPS " + nps);
     }
 
 
@@ -145,32 +372,88 @@ public class InputStreamScheduler {
      * Initiate the waiting queue(waiting queue is initially empty):
      * 	1. When only one task comes at a certain time k --> add it to waiting queue as initiation
      *  2. When several tasks comes together at a certain time k --> add the shortest one to the queue as initiation
+     * Only the orders sharing the head time stamp are looked at, the rest of the stream is untouched.
+     * The other orders of that group are admitted to the waiting queue by admitTasks().
      * @return previous tasks finish time
      */
     protected long initQueue() {
-        ArrayList<DroneOrder> initHelper = new ArrayList<>(tasks);
-        // if many tasks come at the init time,choose the fastest one and push into queue
-        if(initHelper.size() > 1 && initHelper.get(0).geteTime() == initHelper.get(1).geteTime()) {
-            DroneOrder temp = initHelper.get(0);
-            long min = temp.getEdistance();
-            int i = 0;
-            // Find the shortest tasks
-            while(i < initHelper.size() - 1 && initHelper.get(i).geteTime() == initHelper.get(i + 1).geteTime()) {
-                if(initHelper.get(i + 1).getEdistance() < min) {
-                    temp = initHelper.get(i + 1);
-                    min = temp.getEdistance();
-                }
-                i++;
-            }
+        // pull the group of tasks which come at the init time
+        if(arrivalGroup.isEmpty()) {
+            DroneOrder first = tasks.poll();
+            arrivalGroup.offer(first);
+            while(!tasks.isEmpty() && tasks.peek().geteTime() == first.geteTime())
+                arrivalGroup.offer(tasks.poll());
+        }
+        // choose the fastest one and push into queue, the first one wins a tie
+        DroneOrder temp = null;
+        for(DroneOrder cur : arrivalGroup) {
+            if(temp == null || cur.getEdistance() < temp.getEdistance())
+                temp = cur;
+        }
+        arrivalGroup.remove(temp);
+        queue.offer(temp);
+        return temp.geteTime(); // init first finish time as it starts
+    }
 
-            queue.offer(temp);
-            initHelper.remove(temp);
-            tasks = new LinkedList<DroneOrder>(initHelper);
-            return queue.peek().geteTime();
-        } else {  // if only one tasks comes at the init time, push the task into queue
+    /**
+     * Offer all the upcoming tasks which come no later than finishTime
+     * to the waiting queue, in arrival order.
+     * @param finishTime finish time of the current delivery
+     */
+    protected void admitTasks(long finishTime) {
+        // the rest of the init group came before finishTime
+        while(!arrivalGroup.isEmpty())
+            queue.offer(arrivalGroup.poll());
+        while(!tasks.isEmpty() && tasks.peek().geteTime() <= finishTime)
             queue.offer(tasks.poll());
-            return queue.peek().geteTime(); // init first finish time as it starts
-        }
+    }
+
+    /**
+     * @return whether there are tasks which have not been offered to the waiting queue yet
+     */
+    protected boolean hasUpcomingTasks() {
+        return !arrivalGroup.isEmpty() || !tasks.isEmpty();
+    }
+
+    public NPSCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Classify the waiting times with other cutoffs than the given table
+     * @param calculator
+     */
+    public void setCalculator(NPSCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * Hand the outcome of every decision to a consumer too, from the next call of start()
+     * @param consumer
+     */
+    public void addOutcomeConsumer(OutcomeConsumer consumer) {
+        consumers = Arrays.copyOf(consumers, consumers.length + 1);
+        consumers[consumers.length - 1] = consumer;
+    }
+
+    /**
+     * @return number of drones delivering the orders
+     */
+    public int getDroneCount() {
+        return 1;
+    }
+
+    public DispatchSink getDispatchSink() {
+        return sink;
+    }
+
+    /**
+     * Write the dispatch decisions to a sink instead of the result lists.
+     * The sink is not closed by the scheduler.
+     * @param sink
+     */
+    public void setDispatchSink(DispatchSink sink) {
+        this.sink = sink;
     }
 
     public List<DroneOrder> getResult() {
@@ -190,11 +473,16 @@ public class InputStreamScheduler {
     }
 
 
-    public PriorityQueue<DroneOrder> getQueue() {
+    public Queue<DroneOrder> getQueue() {
         return queue;
     }
 
-    public void setQueue(PriorityQueue<DroneOrder> queue) {
+    /**
+     * Replace the waiting queue before start(), eg: by a DistanceBucketQueue.
+     * poll() must give the shortest waiting task.
+     * @param queue empty waiting queue
+     */
+    public void setQueue(Queue<DroneOrder> queue) {
         this.queue = queue;
     }
 
@@ -1,7 +1,6 @@
 package com.scheduler;
 
 import com.delivery.DroneOrder;
-import com.tools.NPSCalculator;
 
 import java.util.*;
 
@@ -38,10 +37,20 @@ import java.util.*;
 
 public class InputWithWaitScheduler extends InputStreamScheduler{
 
+    /**
+     * Detractor cutoff which follows the neutral cutoff of the calculator
+     */
+    public final static long NEUTRAL_CUTOFF = -1;
+
     /**
      * Task queue, simulate continuously coming tasks
      */
     private Queue<DroneOrder> tasks;
+    /**
+     * Longest one way delivery time not delivered last, in seconds.
+     * NEUTRAL_CUTOFF by default, SchedulerParameters.NO_DETRACTOR_CUTOFF to never wait
+     */
+    private long detractorCutoff = NEUTRAL_CUTOFF;
 
     /**
      * Set superclass's task, later superclass method will be used
@@ -72,37 +81,116 @@ public class InputWithWaitScheduler extends InputStreamScheduler{
 
     /**
      * Calculate whether an order must be detractors.
-     * Once one-way deliver time > detractorTime, it must be detractors
+     * Once one-way deliver time > the detractor cutoff, it must be detractors
      * @param order
      * @return whether the order must be detractors or not
      */
     public boolean mustBeDetractor(DroneOrder order) {
         long deliveryTime = order.getEdistance() * 60; // deliveryTime = distance * 60 (sec) (one way)
-        if(deliveryTime > NPSCalculator.DETRACTORS)
+        if(deliveryTime > getDetractorCutoff())
             return true;
         return false;
     }
 
     /**
-     * Rearrange the task queue, put all detractors at the end of the queue
+     * @return longest one way delivery time not delivered last, the neutral cutoff of the calculator by default
+     */
+    public long getDetractorCutoff() {
+        if(detractorCutoff == NEUTRAL_CUTOFF)
+            return getCalculator().getNeutralCutoff();
+        return detractorCutoff;
+    }
+
+    /**
+     * Tune the detractor cutoff apart from the NPS cutoffs, as ParameterSweep does
+     * @param detractorCutoff longest one way delivery time not delivered last, in seconds,
+     *                        NEUTRAL_CUTOFF to follow the calculator, SchedulerParameters.NO_DETRACTOR_CUTOFF to never wait
+     */
+    public void setDetractorCutoff(long detractorCutoff) {
+        if(detractorCutoff < 0 && detractorCutoff != NEUTRAL_CUTOFF)
+            throw new IllegalArgumentException("Detractor cutoff must not be negative");
+        this.detractorCutoff = detractorCutoff;
+    }
+
+    /**
+     * Rearrange the task queue, put all detractors at the end of the queue.
+     * The rearrangement is lazy: non-detractors are handed over as they come,
+     * and only the detractors are held back until the input is exhausted.
      * @param tasks
      * @return queue whose detractors always be at the end
      */
     public Queue<DroneOrder> rearrangeTasks(Queue<DroneOrder> tasks) {
-        Queue<DroneOrder> detractors = new LinkedList<>();
-        Queue<DroneOrder> originalSeq = new LinkedList<>();
-        while(!tasks.isEmpty()) {
-            DroneOrder temp = tasks.poll();
-            if(mustBeDetractor(temp))
-                detractors.offer(temp);
-            else
-                originalSeq.offer(temp);
-        }
-        while(!detractors.isEmpty())
-            originalSeq.offer(detractors.poll());
-        return originalSeq;
+        return new DetractorsLastQueue(tasks);
     }
 
-}
+    /**
+     * A lazy Queue view of the tasks, in which the orders that must be
+     * detractors are moved behind all the other orders.
+     *
+     *
+     */
+    private class DetractorsLastQueue extends AbstractQueue<DroneOrder> {
 
+        private Queue<DroneOrder> originalSeq;
+        private Queue<DroneOrder> detractors;
 
+        DetractorsLastQueue(Queue<DroneOrder> originalSeq) {
+            this.originalSeq = originalSeq;
+            this.detractors = new ArrayDeque<>();
+        }
+
+        @Override
+        public DroneOrder peek() {
+            while(!originalSeq.isEmpty()) {
+                DroneOrder temp = originalSeq.peek();
+                if(!mustBeDetractor(temp))
+                    return temp;
+                detractors.offer(originalSeq.poll());
+            }
+            return detractors.peek();
+        }
+
+        @Override
+        public DroneOrder poll() {
+            DroneOrder temp = peek();
+            if(temp == null)
+                return null;
+            if(!originalSeq.isEmpty())
+                return originalSeq.poll();
+            return detractors.poll();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return peek() == null;
+        }
+
+        @Override
+        public boolean offer(DroneOrder order) {
+            return originalSeq.offer(order);
+        }
+
+        @Override
+        public int size() {
+            return originalSeq.size() + detractors.size();
+        }
+
+        /**
+         * Iterates in the rearranged order, only supported when the source can be iterated
+         */
+        @Override
+        public Iterator<DroneOrder> iterator() {
+            List<DroneOrder> rest = new ArrayList<>();
+            List<DroneOrder> late = new ArrayList<>(detractors);
+            for(DroneOrder temp : originalSeq) {
+                if(mustBeDetractor(temp))
+                    late.add(temp);
+                else
+                    rest.add(temp);
+            }
+            rest.addAll(late);
+            return Collections.unmodifiableList(rest).iterator();
+        }
+    }
+
+}
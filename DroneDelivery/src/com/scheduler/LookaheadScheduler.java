@@ -0,0 +1,244 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.tools.LogHistogram;
+import com.tools.NPSCalculator;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+
+/**
+ * Lookahead Scheduler is the dynamic scheduler, except for the choice of the next order:
+ *  1. Algorithm:
+ *      |-- The dynamic scheduler always delivers the shortest order, which gives the least
+ *          total waiting time, but the NPS categories are steps: an order about to become
+ *          neutral is worth more now than a shorter one which stays a promoter anyway
+ *      |-- At each decision, the window(k shortest waiting orders) is ordered exactly
+ *          for the NPS of its k orders: promoters - detractors first, then the least total
+ *          waiting time, so the shortest order first is kept whenever the NPS is the same
+ *      |-- Only the first order of the best sequence is delivered, the others go back
+ *          to the waiting queue and are looked at again with the new orders. With a
+ *          DistanceBucketQueue they go back to the head of their buckets, so they keep
+ *          their place before the newer orders of the same distance
+ *  2. Implementation:
+ *      |-- The drone is back at the same time whatever the order of a set of orders,
+ *          so a dynamic programming over the subsets of the window is exact:
+ *          best(S) = max over j in S of best(S - j) + value of j delivered after S - j
+ *      |-- 2^k states, k * 2^k / 2 transitions, the tables are allocated once
+ *      |-- From PARALLEL_WINDOW orders, each layer of subsets(same number of orders)
+ *          is split over the common fork-join pool, a layer only reads the one before
+ *      |-- Each decision has a compute budget. The subsets are solved in increasing order,
+ *          so when it runs out the subsets of the m shortest orders are all solved:
+ *          the best sequence of these m orders is used, and counted as a fallback.
+ *          In parallel, the layers are not solved that way, the shortest order is delivered
+ *      |-- The time of each decision is recorded in a LogHistogram
+ *
+ * Orders beyond the window and orders still to come are not looked at.
+ *
+ *
+ */
+public class LookaheadScheduler extends InputStreamScheduler {
+
+    public final static int DEFAULT_WINDOW = 8;
+    public final static int MAX_WINDOW = 20;
+    /**
+     * Windows from this size are solved in parallel
+     */
+    public final static int PARALLEL_WINDOW = 14;
+    /**
+     * One millisecond per decision
+     */
+    public final static long DEFAULT_BUDGET = 1000000;
+
+    private final int window;
+    private final long budget;
+    private final boolean parallel;
+
+    /**
+     * Window orders, in the order they were polled: shortest first
+     */
+    private final DroneOrder[] candidates;
+    private final long[] distances;
+    private final long[] promoterDeadlines;
+    private final long[] neutralDeadlines;
+    /**
+     * For each subset of the window: NPS score, total delivery time,
+     * total distance, and the order delivered last in the best sequence
+     */
+    private final int[] scores;
+    private final long[] costs;
+    private final long[] spans;
+    private final byte[] lasts;
+
+    private final LogHistogram decisionTimes = new LogHistogram();
+    private long fallbacks;
+
+    public LookaheadScheduler(Queue<DroneOrder> tasks) {
+        this(tasks, DEFAULT_WINDOW, DEFAULT_BUDGET);
+    }
+
+    /**
+     * @param tasks orders, in time sequence
+     * @param window number of waiting orders ordered exactly at each decision, 1 to MAX_WINDOW
+     * @param budget compute time of one decision, in ns
+     */
+    public LookaheadScheduler(Queue<DroneOrder> tasks, int window, long budget) {
+        super(tasks);
+        if(window < 1 || window > MAX_WINDOW)
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_WINDOW);
+        if(budget <= 0)
+            throw new IllegalArgumentException("Budget must be positive");
+        this.window = window;
+        this.budget = budget;
+        this.parallel = window >= PARALLEL_WINDOW && Runtime.getRuntime().availableProcessors() > 1;
+        candidates = new DroneOrder[window];
+        distances = new long[window];
+        promoterDeadlines = new long[window];
+        neutralDeadlines = new long[window];
+        scores = new int[1 << window];
+        costs = new long[1 << window];
+        spans = new long[1 << window];
+        lasts = new byte[1 << window];
+    }
+
+    /**
+     * Take the window out of the waiting queue, deliver the first order of its best
+     * sequence, and put the others back where they were
+     */
+    @Override
+    protected DroneOrder nextOrder(long departureTime) {
+        Queue<DroneOrder> queue = getQueue();
+        if(window == 1 || queue.size() == 1)
+            return queue.poll();
+        long begin = System.nanoTime();
+        NPSCalculator calculator = getCalculator();
+        int n = 0;
+        while(n < window && !queue.isEmpty()) {
+            DroneOrder order = queue.poll();
+            candidates[n] = order;
+            distances[n] = order.getEdistance() * 60;
+            promoterDeadlines[n] = order.geteTime() + calculator.getPromotersCutoff();
+            neutralDeadlines[n] = order.geteTime() + calculator.getNeutralCutoff();
+            n++;
+        }
+        long deadline = begin + budget;
+        int solved = parallel && n >= PARALLEL_WINDOW
+                ? solveLayers(n, departureTime, deadline)
+                : solve(n, departureTime, deadline);
+        if(solved < n)
+            fallbacks++;
+        // the last order removed from the solved set is the one delivered first
+        int first = 0;
+        for(int mask = (1 << solved) - 1; mask != 0; mask ^= 1 << first)
+            first = lasts[mask];
+        DroneOrder next = candidates[first];
+        if(queue instanceof DistanceBucketQueue) {
+            // last polled first, each one goes back before the ones after it
+            DistanceBucketQueue buckets = (DistanceBucketQueue) queue;
+            for(int i = n - 1; i >= 0; i--)
+                if(i != first)
+                    buckets.offerFirst(candidates[i]);
+        } else {
+            for(int i = 0; i < n; i++)
+                if(i != first)
+                    queue.offer(candidates[i]);
+        }
+        Arrays.fill(candidates, 0, n, null);
+        decisionTimes.record(System.nanoTime() - begin);
+        return next;
+    }
+
+    /**
+     * Solve the subsets in increasing order, every subset comes after its own subsets
+     * @return number of shortest orders whose subsets are all solved, n unless the budget ran out
+     */
+    private int solve(int n, long departureTime, long deadline) {
+        int full = (1 << n) - 1;
+        for(int mask = 1; mask <= full; mask++) {
+            if((mask & 1023) == 0 && System.nanoTime() > deadline)
+                return 31 - Integer.numberOfLeadingZeros(mask);
+            relax(mask, departureTime);
+        }
+        return n;
+    }
+
+    /**
+     * Solve the subsets one layer at a time, in parallel inside a layer
+     * @return n, or 0 if the budget ran out
+     */
+    private int solveLayers(int n, long departureTime, long deadline) {
+        int size = 1 << n;
+        int chunks = Math.max(1, size >>> 12);
+        int chunkSize = size / chunks;
+        for(int layer = 1; layer <= n; layer++) {
+            final int orders = layer;
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int end = (chunk + 1) * chunkSize;
+                for(int mask = chunk * chunkSize; mask < end; mask++)
+                    if(Integer.bitCount(mask) == orders)
+                        relax(mask, departureTime);
+            });
+            if(System.nanoTime() > deadline)
+                return 0;
+        }
+        return n;
+    }
+
+    /**
+     * Best sequence of the orders of mask, from the best sequences of its subsets
+     * with one order less, which are already solved
+     */
+    private void relax(int mask, long departureTime) {
+        int lowest = Integer.numberOfTrailingZeros(mask);
+        long span = spans[mask ^ (1 << lowest)] + distances[lowest] * 2;
+        spans[mask] = span;
+        int bestScore = Integer.MIN_VALUE;
+        long bestCost = Long.MAX_VALUE;
+        int bestLast = 0;
+        for(int bits = mask; bits != 0; bits &= bits - 1) {
+            int j = Integer.numberOfTrailingZeros(bits);
+            int rest = mask ^ (1 << j);
+            // j is delivered after all the other orders of mask
+            long delivered = departureTime + spans[rest] + distances[j];
+            int score = scores[rest];
+            if(delivered <= promoterDeadlines[j])
+                score++;
+            else if(delivered > neutralDeadlines[j])
+                score--;
+            long cost = costs[rest] + delivered;
+            // on a tie the later polled order goes last, so the window keeps its poll order
+            if(score > bestScore || (score == bestScore && cost <= bestCost)) {
+                bestScore = score;
+                bestCost = cost;
+                bestLast = j;
+            }
+        }
+        scores[mask] = bestScore;
+        costs[mask] = bestCost;
+        lasts[mask] = (byte) bestLast;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return compute time of each decision, in ns
+     */
+    public LogHistogram getDecisionTimes() {
+        return decisionTimes;
+    }
+
+    /**
+     * @return number of decisions whose budget ran out before the whole window was solved
+     */
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+}
@@ -0,0 +1,227 @@
+package com.scheduler;
+
+import com.delivery.DroneOrderStore;
+import com.delivery.interfaces.OrderStore;
+import com.tools.Coordinates;
+import com.tools.NPSCalculator;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+
+/**
+ * Multi-warehouse simulation: a region with several warehouses, each with one drone.
+ *  1. Every order is routed to its closest warehouse, by Manhattan distance
+ *     between the customer and the warehouse. A tie goes to the first warehouse.
+ *  2. Each warehouse becomes a shard: its orders are copied into their own
+ *     DroneOrderStore, with coordinates and distance relative to the warehouse.
+ *  3. The shards are scheduled in parallel, one OrderStoreScheduler per shard,
+ *     on a fixed thread pool(one thread per core by default).
+ *  4. The NPS counters of the shards are merged into one report.
+ * Every shard classifies its waiting times with the same calculator.
+ *
+ * The order coordinates and the warehouse locations share the same origin,
+ * eg: a warehouse at "N10E5" serves an order at "N12E5" with distance 2.
+ * The detour of a direction going back on itself is added to that distance.
+ *
+ *
+ */
+public class MultiWarehouseSimulation {
+
+    /**
+     * Warehouse locations, signed coordinates
+     */
+    private int[] warehouseX;
+    private int[] warehouseY;
+    /**
+     * One scheduler per warehouse, null before run()
+     */
+    private OrderStoreScheduler[] shards;
+    private NPSCalculator calculator = NPSCalculator.DEFAULT;
+    private int threads;
+
+    /**
+     * @param warehouses warehouse locations, as directions from the origin such as "N10E5"
+     */
+    public MultiWarehouseSimulation(List<String> warehouses) {
+        this(warehouses, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param warehouses warehouse locations, as directions from the origin such as "N10E5"
+     * @param threads number of shards scheduled at the same time
+     */
+    public MultiWarehouseSimulation(List<String> warehouses, int threads) {
+        if(warehouses.isEmpty())
+            throw new IllegalArgumentException("At least one warehouse is needed");
+        warehouseX = new int[warehouses.size()];
+        warehouseY = new int[warehouses.size()];
+        for(int i = 0; i < warehouses.size(); i++) {
+            int[] xy = DroneOrderStore.parseCoordinates(warehouses.get(i));
+            warehouseX[i] = xy[0];
+            warehouseY[i] = xy[1];
+        }
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Route the orders, then schedule all the shards in parallel
+     * @param orders orders in time sequence
+     * @throws InterruptedException
+     */
+    public void run(OrderStore orders) throws InterruptedException {
+        DroneOrderStore[] stores = route(orders);
+        shards = new OrderStoreScheduler[stores.length];
+        for(int i = 0; i < stores.length; i++) {
+            shards[i] = new OrderStoreScheduler(stores[i]);
+            shards[i].setCalculator(calculator);
+        }
+
+        // biggest shards first, so the small ones fill the gaps at the end
+        Integer[] sequence = new Integer[shards.length];
+        for(int i = 0; i < sequence.length; i++)
+            sequence[i] = i;
+        Arrays.sort(sequence, (a, b) -> Integer.compare(stores[b].size(), stores[a].size()));
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, shards.length));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for(int i : sequence) {
+                OrderStoreScheduler shard = shards[i];
+                futures.add(pool.submit(shard::start));
+            }
+            for(Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Warehouse simulation failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the orders by closest warehouse. The orders keep their time sequence
+     * in each shard, and get coordinates relative to their warehouse.
+     * @param orders
+     * @return one store per warehouse
+     */
+    public DroneOrderStore[] route(OrderStore orders) {
+        int n = orders.size();
+        int[] warehouseOf = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> warehouseOf[i] = closestWarehouse(orders.getX(i), orders.getY(i)));
+
+        int[] counts = new int[warehouseX.length];
+        for(int i = 0; i < n; i++)
+            counts[warehouseOf[i]]++;
+        DroneOrderStore[] stores = new DroneOrderStore[warehouseX.length];
+        for(int w = 0; w < stores.length; w++)
+            stores[w] = new DroneOrderStore(counts[w]);
+        for(int i = 0; i < n; i++) {
+            int w = warehouseOf[i];
+            int dx = orders.getX(i) - warehouseX[w];
+            int dy = orders.getY(i) - warehouseY[w];
+            // a direction going back on itself, such as "N30S30", keeps its detour
+            long detour = orders.getEdistance(i) - Math.abs((long) orders.getX(i)) - Math.abs((long) orders.getY(i));
+            stores[w].add(orders.geteID(i), dx, dy, (int) (Math.abs(dx) + Math.abs(dy) + detour), orders.geteTime(i));
+        }
+        return stores;
+    }
+
+    /**
+     * @param x signed x coordinate of the customer
+     * @param y signed y coordinate of the customer
+     * @return index of the closest warehouse by Manhattan distance
+     */
+    public int closestWarehouse(int x, int y) {
+        int best = 0;
+        long min = Long.MAX_VALUE;
+        for(int w = 0; w < warehouseX.length; w++) {
+            long distance = Math.abs((long) x - warehouseX[w]) + Math.abs((long) y - warehouseY[w]);
+            if(distance < min) {
+                min = distance;
+                best = w;
+            }
+        }
+        return best;
+    }
+
+    public NPSCalculator getCalculator() {
+        return calculator;
+    }
+
+    public void setCalculator(NPSCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    public int getWarehouseCount() {
+        return warehouseX.length;
+    }
+
+    /**
+     * @param warehouse index of the warehouse
+     * @return the scheduler of that warehouse's shard, null before run()
+     */
+    public OrderStoreScheduler getShard(int warehouse) {
+        return shards[warehouse];
+    }
+
+    public int getTotalOrder() {
+        int total = 0;
+        for(OrderStoreScheduler shard : shards)
+            total += shard.getTotalOrder();
+        return total;
+    }
+
+    public int getPromoters() {
+        int total = 0;
+        for(OrderStoreScheduler shard : shards)
+            total += shard.getPromoters();
+        return total;
+    }
+
+    public int getNeutral() {
+        int total = 0;
+        for(OrderStoreScheduler shard : shards)
+            total += shard.getNeutral();
+        return total;
+    }
+
+    public int getDetractors() {
+        int total = 0;
+        for(OrderStoreScheduler shard : shards)
+            total += shard.getDetractors();
+        return total;
+    }
+
+    /**
+     * @return NPS of all the warehouses together
+     */
+    public double getNPS() {
+        return ((getPromoters() - getDetractors())/(double)getTotalOrder())*100;
+    }
+
+    /**
+     * Merged report, one line per warehouse, then the region's NPS:
+     * eg: warehouse 0 N0E0: orders 1200, promoters 900, neutral 200, detractors 100, NPS 66.66
+     * @return report lines
+     */
+    public List<String> getReport() {
+        List<String> report = new ArrayList<>();
+        for(int w = 0; w < shards.length; w++) {
+            OrderStoreScheduler shard = shards[w];
+            report.add("warehouse " + w + " " + Coordinates.format(Coordinates.pack(warehouseX[w], warehouseY[w]))
+                    + ": orders " + shard.getTotalOrder()
+                    + ", promoters " + shard.getPromoters()
+                    + ", neutral " + shard.getNeutral()
+                    + ", detractors " + shard.getDetractors()
+                    + ", NPS " + (shard.getTotalOrder() == 0 ? "-" : String.valueOf(shard.getNPS())));
+        }
+        report.add("NPS " + getNPS());
+        return report;
+    }
+
+}
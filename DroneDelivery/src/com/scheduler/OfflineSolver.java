@@ -0,0 +1,855 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderStore;
+import com.delivery.interfaces.OrderStore;
+import com.tools.NPSCalculator;
+import com.tools.Satisfaction;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+
+/**
+ * Offline Solver sees the whole trace up front, and looks for the single drone
+ * delivery sequence with the best NPS, to tell how far the online policies are from it:
+ *  1. Model:
+ *      |-- The same drone as the schedulers: it leaves with the next order of the sequence
+ *          as soon as it is back and the order came, and is back after twice the delivery time
+ *      |-- Objective: promoters - detractors first, then the least total delivery time
+ *  2. Bound:
+ *      |-- If every order came at the first order time, the most promoters is given by
+ *          Moore-Hodgson(an order is a promoter if the drone is back before its time
+ *          + promoters cutoff + delivery time), the most non-detractors the same way:
+ *          promoters + non-detractors - orders is an upper bound of promoters - detractors
+ *  3. Search:
+ *      |-- Each online policy is run, its sequence is the first incumbent. Moving the
+ *          detractors of a sequence to its end never delays another order, it is tried too
+ *      |-- Large neighborhood search: the sequence is cut into windows, each window is
+ *          reordered by a branch-and-bound, in parallel, without bringing the drone back
+ *          later, so the orders after it are never delayed. The cut moves every round,
+ *          and the window grows up to MAX_WINDOW when no window improves
+ *      |-- Up to EXACT_LIMIT orders, the branch-and-bound then goes over the whole sequence
+ *          from that incumbent, split by its first two orders over a fork-join pool, with a
+ *          shared incumbent. The bound of a node is the Moore-Hodgson bound of the orders left
+ *          from the current time. An order is never started after an idle time another order
+ *          could have been delivered in. A node is also cut when another node delivered the
+ *          same orders, with the drone back no later, and no worse score and cost.
+ *          When it goes to the end, the sequence is optimal
+ *      |-- Both stop at the time limit, the best sequence found is kept. A bigger day whose
+ *          best sequence reaches the bound has the optimal NPS too
+ *
+ * The policies are compared on the same trace with the same calculator. Policies which
+ * drop orders(eg: the working time of the limited schedulers) don't fit the model.
+ *
+ *
+ */
+public class OfflineSolver {
+
+    public final static int EXACT_LIMIT = 30;
+    public final static int DEFAULT_WINDOW = 8;
+    public final static int MAX_WINDOW = 16;
+    /**
+     * Two minutes
+     */
+    public final static long DEFAULT_TIME_LIMIT = 120000;
+    /**
+     * Nodes of the branch-and-bound of one window
+     */
+    private final static long WINDOW_NODES = 1 << 16;
+
+    /**
+     * Policy name --> creates a scheduler for a tasks queue, in registration order
+     */
+    private Map<String, Function<Queue<DroneOrder>, InputStreamScheduler>> policies;
+    private NPSCalculator calculator = NPSCalculator.DEFAULT;
+    private int threads;
+    private int window = DEFAULT_WINDOW;
+    private long timeLimit = DEFAULT_TIME_LIMIT;
+
+    /**
+     * Orders of the last run, by handle: order time, and one way delivery time in seconds
+     */
+    private long[] release;
+    private long[] half;
+    /**
+     * Sequences of the last run, as handles
+     */
+    private Map<String, int[]> sequences;
+    private int[] best;
+    private boolean optimal;
+    private int bound;
+    private long elapsed;
+    private int rounds;
+
+    public OfflineSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads parallelism of the fork-join pool
+     */
+    public OfflineSolver(int threads) {
+        this.threads = Math.max(1, threads);
+        policies = new LinkedHashMap<>();
+        sequences = new LinkedHashMap<>();
+        register("dynamic", tasks -> new InputStreamScheduler(tasks));
+        register("unfair", tasks -> new InputWithWaitScheduler(tasks));
+        register("lookahead", tasks -> new LookaheadScheduler(tasks));
+    }
+
+    /**
+     * Register an online policy to compare, an existing policy with the same name is replaced
+     * @param name
+     * @param factory creates a scheduler for a tasks queue
+     */
+    public void register(String name, Function<Queue<DroneOrder>, InputStreamScheduler> factory) {
+        policies.put(name, factory);
+    }
+
+    /**
+     * Run the policies over the orders, then search the best sequence
+     * @param orders orders in time sequence
+     * @throws InterruptedException
+     */
+    public void run(OrderStore orders) throws InterruptedException {
+        long begin = System.currentTimeMillis();
+        long deadline = begin + timeLimit;
+        int n = orders.size();
+        release = new long[n];
+        half = new long[n];
+        for(int i = 0; i < n; i++) {
+            release[i] = orders.geteTime(i);
+            half[i] = orders.getEdistance(i) * 60;
+        }
+        sequences.clear();
+        best = new int[0];
+        optimal = n == 0;
+        bound = 0;
+        rounds = 0;
+        if(n == 0) {
+            elapsed = 0;
+            return;
+        }
+        runPolicies(orders);
+
+        // the best policy, with its detractors at the end or not, is the first incumbent
+        best = identity(n);
+        for(int[] sequence : sequences.values()) {
+            if(better(sequence, best))
+                best = sequence.clone();
+            int[] moved = detractorsLast(sequence);
+            if(better(moved, best))
+                best = moved;
+        }
+        SequenceSearch root = new SequenceSearch(this, identity(n), n);
+        bound = root.bound(release[0]);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // a good incumbent first, it prunes the branch-and-bound
+            improve(pool, deadline);
+            if(n <= EXACT_LIMIT)
+                optimal = solveExact(pool, deadline);
+            else
+                optimal = score(best) >= bound;
+        } finally {
+            pool.shutdown();
+        }
+        if(optimal)
+            bound = score(best);
+        elapsed = System.currentTimeMillis() - begin;
+    }
+
+    /**
+     * Run every policy over its own cursor, and keep its sequence as handles
+     */
+    private void runPolicies(OrderStore orders) throws InterruptedException {
+        int n = orders.size();
+        DroneOrder[] trace = new DroneOrder[n];
+        Map<DroneOrder, Integer> handles = new IdentityHashMap<>();
+        for(int i = 0; i < n; i++) {
+            trace[i] = DroneOrderStore.toDroneOrder(orders, i);
+            handles.put(trace[i], i);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, policies.size())));
+        try {
+            Map<String, Future<InputStreamScheduler>> futures = new LinkedHashMap<>();
+            for(Map.Entry<String, Function<Queue<DroneOrder>, InputStreamScheduler>> entry : policies.entrySet()) {
+                final Function<Queue<DroneOrder>, InputStreamScheduler> factory = entry.getValue();
+                futures.put(entry.getKey(), pool.submit(() -> {
+                    InputStreamScheduler scheduler = factory.apply(new ArrayDeque<>(Arrays.asList(trace)));
+                    scheduler.setCalculator(calculator);
+                    scheduler.start();
+                    return scheduler;
+                }));
+            }
+            for(Map.Entry<String, Future<InputStreamScheduler>> entry : futures.entrySet()) {
+                List<DroneOrder> result;
+                try {
+                    result = entry.getValue().get().getResult();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Policy " + entry.getKey() + " failed", e.getCause());
+                }
+                if(result.size() != n)
+                    throw new IllegalStateException("Policy " + entry.getKey() + " didn't deliver every order");
+                int[] sequence = new int[n];
+                for(int i = 0; i < n; i++)
+                    sequence[i] = handles.get(result.get(i));
+                sequences.put(entry.getKey(), sequence);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Branch-and-bound over the whole sequence, one task per first two orders
+     * @return whether the search went to the end, the best sequence is then optimal
+     */
+    private boolean solveExact(ForkJoinPool pool, long deadline) {
+        int n = best.length;
+        long[] objective = evaluate(best, 0, n, 0);
+        AtomicReference<Incumbent> incumbent =
+                new AtomicReference<>(new Incumbent((int) objective[0], objective[1], best.clone()));
+        Map<Integer, long[]> memo = new ConcurrentHashMap<>();
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for(int first = 0; first < n; first++) {
+            for(int second = 0; second < n; second++) {
+                if(first == second && n > 1)
+                    continue;
+                final int[] prefix = n > 1 ? new int[] {first, second} : new int[] {first};
+                tasks.add(() -> new SequenceSearch(this, identity(n), n)
+                        .search(prefix, 0, Long.MAX_VALUE, incumbent, memo, Long.MAX_VALUE, deadline));
+                if(n == 1)
+                    break;
+            }
+        }
+        boolean complete = true;
+        for(Future<Boolean> future : pool.invokeAll(tasks)) {
+            try {
+                complete &= future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                complete = false;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Branch-and-bound failed", e.getCause());
+            }
+        }
+        best = incumbent.get().getSequence();
+        return complete;
+    }
+
+    /**
+     * Large neighborhood search on the best sequence, until the time limit,
+     * or until no window of MAX_WINDOW orders can be improved
+     */
+    private void improve(ForkJoinPool pool, long deadline) {
+        int size = Math.min(window, best.length);
+        int offset = 0;
+        int stalled = 0;
+        while(size >= 2 && System.currentTimeMillis() < deadline) {
+            rounds++;
+            if(improveWindows(pool, size, offset, deadline))
+                stalled = 0;
+            else
+                stalled++;
+            offset = (offset + 1) % size;
+            if(stalled >= size) {
+                int[] moved = detractorsLast(best);
+                if(better(moved, best)) {
+                    best = moved;
+                    stalled = 0;
+                } else if(size < Math.min(MAX_WINDOW, best.length)) {
+                    size = Math.min(size + 2, Math.min(MAX_WINDOW, best.length));
+                    stalled = 0;
+                    offset = 0;
+                } else {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reorder every window of the best sequence in parallel, then apply the
+     * improvements from the first window to the last
+     * @return whether the sequence improved
+     */
+    private boolean improveWindows(ForkJoinPool pool, int size, int offset, long deadline) {
+        int n = best.length;
+        long[] finish = finishTimes(best);
+        List<int[]> windows = new ArrayList<>();
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for(int from = offset == 0 ? 0 : offset - size; from < n; from += size) {
+            final int a = Math.max(0, from);
+            final int b = Math.min(n, from + size);
+            if(b - a < 2)
+                continue;
+            final int[] jobs = Arrays.copyOfRange(best, a, b);
+            final long start = a == 0 ? 0 : finish[a - 1];
+            final long end = finish[b - 1];
+            windows.add(new int[] {a, b});
+            tasks.add(() -> {
+                long[] objective = evaluate(jobs, 0, jobs.length, start);
+                AtomicReference<Incumbent> incumbent =
+                        new AtomicReference<>(new Incumbent((int) objective[0], objective[1], null));
+                new SequenceSearch(this, jobs, jobs.length).search(new int[0], start, end, incumbent,
+                        new HashMap<>(), WINDOW_NODES, deadline);
+                return incumbent.get().getSequence();
+            });
+        }
+        List<Future<int[]>> futures = pool.invokeAll(tasks);
+        boolean improved = false;
+        long time = 0;
+        int position = 0;
+        for(int w = 0; w < windows.size(); w++) {
+            int a = windows.get(w)[0];
+            int b = windows.get(w)[1];
+            // drone time before the window, with the windows already applied
+            for(; position < a; position++)
+                time = Math.max(time, release[best[position]]) + half[best[position]] * 2;
+            int[] order;
+            try {
+                order = futures.get(w).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Window search failed", e.getCause());
+            }
+            if(order != null) {
+                // the drone may be back earlier than when the window was solved, check again
+                long[] current = evaluate(best, a, b, time);
+                long[] next = evaluate(order, 0, order.length, time);
+                if(next[2] <= current[2] && (next[0] > current[0] || (next[0] == current[0] && next[1] < current[1]))) {
+                    System.arraycopy(order, 0, best, a, order.length);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * @return 1 for a promoter, 0 for a neutral, -1 for a detractor
+     */
+    private int value(int handle, long start) {
+        Satisfaction satisfaction = calculator.classify(start + half[handle] - release[handle]);
+        if(satisfaction == Satisfaction.PROMOTERS)
+            return 1;
+        return satisfaction == Satisfaction.DETRACTORS ? -1 : 0;
+    }
+
+    /**
+     * The sequence with its detractors moved to its end, shortest first.
+     * The other orders are delivered no later than before.
+     */
+    private int[] detractorsLast(int[] sequence) {
+        int n = sequence.length;
+        int[] moved = new int[n];
+        List<Integer> late = new ArrayList<>();
+        int count = 0;
+        long time = 0;
+        for(int handle : sequence) {
+            long start = Math.max(time, release[handle]);
+            if(calculator.classify(start + half[handle] - release[handle]) == Satisfaction.DETRACTORS) {
+                late.add(handle);
+            } else {
+                moved[count++] = handle;
+                time = start + half[handle] * 2;
+            }
+        }
+        late.sort((a, b) -> half[a] != half[b] ? Long.compare(half[a], half[b]) : Long.compare(release[a], release[b]));
+        for(int handle : late)
+            moved[count++] = handle;
+        return moved;
+    }
+
+    /**
+     * @return whether a has a better objective than b
+     */
+    private boolean better(int[] a, int[] b) {
+        long[] x = evaluate(a, 0, a.length, 0);
+        long[] y = evaluate(b, 0, b.length, 0);
+        return x[0] > y[0] || (x[0] == y[0] && x[1] < y[1]);
+    }
+
+    /**
+     * Deliver sequence[from, to) from the time the drone is back
+     * @return {promoters - detractors, total delivery time, time the drone is back}
+     */
+    long[] evaluate(int[] sequence, int from, int to, long time) {
+        long score = 0;
+        long cost = 0;
+        for(int i = from; i < to; i++) {
+            int handle = sequence[i];
+            long start = Math.max(time, release[handle]);
+            long delivered = start + half[handle];
+            score += value(handle, start);
+            cost += delivered;
+            time = delivered + half[handle];
+        }
+        return new long[] {score, cost, time};
+    }
+
+    private int score(int[] sequence) {
+        return (int) evaluate(sequence, 0, sequence.length, 0)[0];
+    }
+
+    private long[] finishTimes(int[] sequence) {
+        long[] finish = new long[sequence.length];
+        long time = 0;
+        for(int i = 0; i < sequence.length; i++) {
+            time = Math.max(time, release[sequence[i]]) + half[sequence[i]] * 2;
+            finish[i] = time;
+        }
+        return finish;
+    }
+
+    /**
+     * @return {promoters, neutral, detractors} of the sequence
+     */
+    private int[] count(int[] sequence) {
+        int[] counts = new int[3];
+        long time = 0;
+        for(int handle : sequence) {
+            long start = Math.max(time, release[handle]);
+            Satisfaction satisfaction = calculator.classify(start + half[handle] - release[handle]);
+            if(satisfaction == Satisfaction.PROMOTERS)
+                counts[0]++;
+            else if(satisfaction == Satisfaction.NEUTRAL)
+                counts[1]++;
+            else if(satisfaction == Satisfaction.DETRACTORS)
+                counts[2]++;
+            time = start + half[handle] * 2;
+        }
+        return counts;
+    }
+
+    private static int[] identity(int n) {
+        int[] handles = new int[n];
+        for(int i = 0; i < n; i++)
+            handles[i] = i;
+        return handles;
+    }
+
+    /**
+     * Side by side table, one line per policy, then the best sequence found and the bound.
+     * The gaps are in NPS points:
+     *      scheduler             NPS  promoters    neutral detractors   gap(best)  gap(bound)
+     *      dynamic             62.50          5          1          2       12.50       25.00
+     * @return table lines
+     */
+    public List<String> getTable() {
+        List<String> table = new ArrayList<>();
+        table.add(String.format("%-16s %10s %10s %10s %10s %11s %11s",
+                "scheduler", "NPS", "promoters", "neutral", "detractors", "gap(best)", "gap(bound)"));
+        int n = best.length;
+        if(n == 0)
+            return table;
+        double bestNPS = getNPS();
+        double boundNPS = bound * 100.0 / n;
+        for(Map.Entry<String, int[]> entry : sequences.entrySet()) {
+            int[] counts = count(entry.getValue());
+            double nps = (counts[0] - counts[2]) * 100.0 / n;
+            table.add(String.format("%-16s %10.2f %10d %10d %10d %11.2f %11.2f",
+                    entry.getKey(), nps, counts[0], counts[1], counts[2], bestNPS - nps, boundNPS - nps));
+        }
+        int[] counts = count(best);
+        table.add(String.format("%-16s %10.2f %10d %10d %10d %11.2f %11.2f",
+                "offline", bestNPS, counts[0], counts[1], counts[2], 0.0, boundNPS - bestNPS));
+        table.add(String.format("%-16s %10.2f", "bound", boundNPS));
+        table.add(optimal
+                ? String.format("offline: optimal, %.1f s", elapsed / 1000.0)
+                : String.format("offline: best found in %.1f s, %d rounds of windows, the bound is not reached",
+                        elapsed / 1000.0, rounds));
+        return table;
+    }
+
+    /**
+     * @return NPS of the best sequence found
+     */
+    public double getNPS() {
+        return best.length == 0 ? 0 : score(best) * 100.0 / best.length;
+    }
+
+    /**
+     * @return best sequence found, as handles of the store
+     */
+    public int[] getBestSequence() {
+        return best.clone();
+    }
+
+    /**
+     * @param name policy name
+     * @return sequence of the policy, as handles of the store, null if it didn't run
+     */
+    public int[] getSequence(String name) {
+        int[] sequence = sequences.get(name);
+        return sequence == null ? null : sequence.clone();
+    }
+
+    /**
+     * @return whether no sequence has a better NPS than the best sequence
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @return upper bound of promoters - detractors, reached when the best sequence is optimal
+     */
+    public int getBound() {
+        return bound;
+    }
+
+    public NPSCalculator getCalculator() {
+        return calculator;
+    }
+
+    public void setCalculator(NPSCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window first window of the neighborhood search, 2 to MAX_WINDOW orders
+     */
+    public void setWindow(int window) {
+        if(window < 2 || window > MAX_WINDOW)
+            throw new IllegalArgumentException("Window must be between 2 and " + MAX_WINDOW);
+        this.window = window;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * @param timeLimit search time, in ms
+     */
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    long getRelease(int handle) {
+        return release[handle];
+    }
+
+    long getHalf(int handle) {
+        return half[handle];
+    }
+
+}
+
+/**
+ * Best sequence found by a branch-and-bound, shared by its tasks
+ *
+ *
+ */
+class Incumbent {
+
+    private final int score;
+    private final long cost;
+    /**
+     * Handles, null while the incumbent is the sequence the search started from
+     */
+    private final int[] sequence;
+
+    Incumbent(int score, long cost, int[] sequence) {
+        this.score = score;
+        this.cost = cost;
+        this.sequence = sequence;
+    }
+
+    boolean isBeaten(int score, long cost) {
+        return score > this.score || (score == this.score && cost < this.cost);
+    }
+
+    int getScore() {
+        return score;
+    }
+
+    long getCost() {
+        return cost;
+    }
+
+    int[] getSequence() {
+        return sequence;
+    }
+
+}
+
+/**
+ * Depth first branch-and-bound over the orders of a sequence, or of a window of it.
+ * The buffers are allocated once, a search is used by one thread.
+ *
+ *
+ */
+class SequenceSearch {
+
+    /**
+     * Nodes remembered by a search
+     */
+    private final static int MEMO_LIMIT = 1 << 22;
+
+    private final int m;
+    private final int[] jobs;
+    private final long[] release;
+    private final long[] half;
+    private final long[] promoterDue;
+    private final long[] neutralDue;
+    private final long promotersCutoff;
+    private final long neutralCutoff;
+    /**
+     * Positions in jobs: by promoter due time, by neutral due time, shortest first
+     */
+    private final Integer[] byPromoterDue;
+    private final Integer[] byNeutralDue;
+    private final Integer[] byLength;
+    private final boolean[] used;
+    private final int[] sequence;
+    private final long[] heap;
+    private int depth;
+    /**
+     * Bit i: jobs[i] is delivered
+     */
+    private int mask;
+
+    private AtomicReference<Incumbent> incumbent;
+    private Map<Integer, long[]> memo;
+    private long maxEnd;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private boolean aborted;
+
+    /**
+     * @param solver gives the order times and delivery times
+     * @param jobs handles of the orders to sequence
+     * @param m number of orders
+     */
+    SequenceSearch(OfflineSolver solver, int[] jobs, int m) {
+        this.m = m;
+        this.jobs = jobs;
+        release = new long[m];
+        half = new long[m];
+        promoterDue = new long[m];
+        neutralDue = new long[m];
+        promotersCutoff = solver.getCalculator().getPromotersCutoff();
+        neutralCutoff = solver.getCalculator().getNeutralCutoff();
+        byPromoterDue = new Integer[m];
+        byNeutralDue = new Integer[m];
+        byLength = new Integer[m];
+        for(int i = 0; i < m; i++) {
+            release[i] = solver.getRelease(jobs[i]);
+            half[i] = solver.getHalf(jobs[i]);
+            // the drone must be back by then
+            promoterDue[i] = release[i] + promotersCutoff + half[i];
+            neutralDue[i] = release[i] + neutralCutoff + half[i];
+            byPromoterDue[i] = byNeutralDue[i] = byLength[i] = i;
+        }
+        Arrays.sort(byPromoterDue, (a, b) -> Long.compare(promoterDue[a], promoterDue[b]));
+        Arrays.sort(byNeutralDue, (a, b) -> Long.compare(neutralDue[a], neutralDue[b]));
+        Arrays.sort(byLength, (a, b) -> Long.compare(half[a], half[b]));
+        used = new boolean[m];
+        sequence = new int[m];
+        heap = new long[m];
+    }
+
+    /**
+     * Upper bound of promoters - detractors of all the orders, from a time
+     * @param time no order is delivered before
+     */
+    int bound(long time) {
+        return onTime(byPromoterDue, promoterDue, time) + onTime(byNeutralDue, neutralDue, time) - m;
+    }
+
+    /**
+     * Search the sequences starting with a prefix, better than the incumbent
+     * @param prefix positions in jobs delivered first
+     * @param time the drone is back
+     * @param maxEnd latest time the drone can be back from the last order
+     * @param incumbent best sequence, replaced by better ones
+     * @param memo best node seen for each set of delivered orders, shared by the tasks of a search
+     * @param nodeLimit
+     * @param deadline time limit, in ms
+     * @return whether the search went to the end
+     */
+    boolean search(int[] prefix, long time, long maxEnd, AtomicReference<Incumbent> incumbent,
+                   Map<Integer, long[]> memo, long nodeLimit, long deadline) {
+        this.incumbent = incumbent;
+        this.memo = memo;
+        this.maxEnd = maxEnd;
+        this.nodeLimit = nodeLimit;
+        this.deadline = deadline;
+        int score = 0;
+        long cost = 0;
+        for(int position : prefix) {
+            long start = Math.max(time, release[position]);
+            score += value(position, start);
+            cost += start + half[position];
+            time = start + half[position] * 2;
+            used[position] = true;
+            mask |= 1 << position;
+            sequence[depth++] = position;
+        }
+        branch(time, score, cost);
+        return !aborted;
+    }
+
+    private void branch(long time, int score, long cost) {
+        if(aborted)
+            return;
+        if(++nodes > nodeLimit || ((nodes & 4095) == 0 && System.currentTimeMillis() > deadline)) {
+            aborted = true;
+            return;
+        }
+        if(depth == m) {
+            if(time <= maxEnd)
+                offer(score, cost);
+            return;
+        }
+        if(dominated(time, score, cost))
+            return;
+        Incumbent best = incumbent.get();
+        int bound = score + bound(time) + depth;
+        if(bound < best.getScore())
+            return;
+        // total delivery time: shortest first as if every order came, or each order as soon as it came
+        long spt = 0;
+        long earliest = 0;
+        long back = time;
+        long end = time;
+        long first = Long.MAX_VALUE;
+        long second = Long.MAX_VALUE;
+        int firstPosition = -1;
+        for(int position : byLength) {
+            if(used[position])
+                continue;
+            spt += back + half[position];
+            back += half[position] * 2;
+            earliest += Math.max(time, release[position]) + half[position];
+            long finish = Math.max(time, release[position]) + half[position] * 2;
+            end = Math.max(end, finish);
+            if(half[position] > 0) {
+                if(finish < first) {
+                    second = first;
+                    first = finish;
+                    firstPosition = position;
+                } else if(finish < second) {
+                    second = finish;
+                }
+            }
+        }
+        if(Math.max(back, end) > maxEnd)
+            return;
+        if(bound == best.getScore() && cost + Math.max(spt, earliest) >= best.getCost())
+            return;
+        for(int position : byLength) {
+            if(used[position])
+                continue;
+            // another order fits in the idle time before this one, deliver it first
+            if((position == firstPosition ? second : first) <= release[position])
+                continue;
+            long start = Math.max(time, release[position]);
+            used[position] = true;
+            mask |= 1 << position;
+            sequence[depth++] = position;
+            branch(start + half[position] * 2, score + value(position, start), cost + start + half[position]);
+            depth--;
+            mask &= ~(1 << position);
+            used[position] = false;
+        }
+    }
+
+    /**
+     * The orders left only see the time the drone is back: a node with the same delivered
+     * orders, back no later, with no less score and no more cost, leads to as good sequences
+     * @return whether such a node was seen, otherwise this node is remembered
+     */
+    private boolean dominated(long time, int score, long cost) {
+        boolean[] dominated = new boolean[1];
+        long[] node = {time, score, cost};
+        memo.compute(mask, (key, seen) -> {
+            if(seen == null)
+                return memo.size() < MEMO_LIMIT ? node : null;
+            if(seen[0] <= time && seen[1] >= score && seen[2] <= cost) {
+                dominated[0] = true;
+                return seen;
+            }
+            return time <= seen[0] && score >= seen[1] && cost <= seen[2] ? node : seen;
+        });
+        return dominated[0];
+    }
+
+    /**
+     * Moore-Hodgson on the orders left, all of them coming at time
+     * @return most orders the drone can be back from by their due time
+     */
+    private int onTime(Integer[] byDue, long[] due, long time) {
+        int size = 0;
+        int left = 0;
+        int late = 0;
+        for(int position : byDue) {
+            if(used[position])
+                continue;
+            left++;
+            long length = half[position] * 2;
+            // max heap of the kept lengths
+            int i = size++;
+            while(i > 0 && heap[(i - 1) >>> 1] < length) {
+                heap[i] = heap[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            heap[i] = length;
+            time += length;
+            if(time > due[position]) {
+                // drop the longest kept order
+                time -= heap[0];
+                late++;
+                long last = heap[--size];
+                i = 0;
+                while(true) {
+                    int child = 2 * i + 1;
+                    if(child >= size)
+                        break;
+                    if(child + 1 < size && heap[child + 1] > heap[child])
+                        child++;
+                    if(heap[child] <= last)
+                        break;
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = last;
+            }
+        }
+        return left - late;
+    }
+
+    private int value(int position, long start) {
+        long waiting = start + half[position] - release[position];
+        if(waiting <= promotersCutoff)
+            return 1;
+        return waiting <= neutralCutoff ? 0 : -1;
+    }
+
+    private void offer(int score, long cost) {
+        int[] handles = new int[m];
+        for(int i = 0; i < m; i++)
+            handles[i] = jobs[sequence[i]];
+        Incumbent found = new Incumbent(score, cost, handles);
+        while(true) {
+            Incumbent best = incumbent.get();
+            if(!best.isBeaten(score, cost) || incumbent.compareAndSet(best, found))
+                return;
+        }
+    }
+
+}
@@ -0,0 +1,450 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.tools.Coordinates;
+
+import java.util.*;
+
+
+/**
+ * Order Grid is a uniform grid index of orders by location:
+ *      |-- the plane is cut in square cells of cellSize(a power of 2), a cell keeps its
+ *          orders with their packed locations, so a query doesn't look into the orders
+ *      |-- the cells are in an open addressing table keyed by the packed cell coordinates,
+ *          a cell is created the first time an order falls in it and kept afterwards
+ *      |-- add and remove are O(1) plus a scan of one cell, nothing is allocated once
+ *          the cells grew
+ *  Queries, Manhattan distance:
+ *      |-- nearest(x, y, k): visits the cells around the point by rings of the same Manhattan
+ *          distance in cells, from its own cell, and stops when the k-th order found is closer
+ *          than any cell of the next ring. A cell farther than the k-th order is not scanned
+ *      |-- within(x, y, radius): the cells of the square around the point which are not
+ *          farther than the radius, their orders filtered
+ *      |-- inCell(x, y): the orders of the cell of the point
+ *  Only the cells inside the bounding box of the cells ever used are looked up.
+ *  Cell size:
+ *      |-- a query costs a look up per cell of the rings it visits, plus a distance per order
+ *          of these cells: cells about ORDERS_PER_CELL orders big keep both small
+ *      |-- by default the grid adapts: each time the number of orders doubled or halved, or
+ *          the area the orders ever covered grew, the cell size is chosen again, and if it
+ *          changed the orders are put in the new cells, O(1) amortized per order
+ *      |-- with a given cell size, the grid never changes it
+ *
+ * An order must be removed with the location it was added with, it never changes.
+ *
+ *
+ */
+public class OrderGrid {
+
+    public final static int DEFAULT_CELL_SIZE = 4;
+    /**
+     * Number of orders per cell the adaptive grid aims at
+     */
+    public final static int ORDERS_PER_CELL = 2;
+    private final static int INITIAL_TABLE = 64;
+
+    private int shift;
+    private final boolean adaptive;
+    /**
+     * Number of orders when the cell size was chosen, and whether the area grew since
+     */
+    private int builtSize;
+    private boolean areaGrew;
+    /**
+     * Bounding box of the locations ever added
+     */
+    private int minX = Integer.MAX_VALUE;
+    private int maxX = Integer.MIN_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxY = Integer.MIN_VALUE;
+    /**
+     * Open addressing table of the cells, keyed by packed cell coordinates
+     */
+    private long[] keys;
+    private GridCell[] cells;
+    private int cellCount;
+    private int size;
+    /**
+     * Bounding box of the cells ever used, in cell coordinates
+     */
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+    /**
+     * Distances of the orders found by nearest(), ascending
+     */
+    private long[] found = new long[16];
+
+    /**
+     * Adaptive grid, starting with cells of DEFAULT_CELL_SIZE
+     */
+    public OrderGrid() {
+        this(DEFAULT_CELL_SIZE, true);
+    }
+
+    /**
+     * @param cellSize side of a cell, rounded up to a power of 2
+     */
+    public OrderGrid(int cellSize) {
+        this(cellSize, false);
+    }
+
+    private OrderGrid(int cellSize, boolean adaptive) {
+        if(cellSize < 1 || cellSize > 1 << 30)
+            throw new IllegalArgumentException("Invalid cell size " + cellSize);
+        shift = 32 - Integer.numberOfLeadingZeros(cellSize - 1);
+        this.adaptive = adaptive;
+        keys = new long[INITIAL_TABLE];
+        cells = new GridCell[INITIAL_TABLE];
+    }
+
+    /**
+     * Add an order at the location of its direction
+     * @param order
+     */
+    public void add(DroneOrder order) {
+        add(order, order.getDirection().getLocation());
+    }
+
+    /**
+     * @param order
+     * @param location packed location of the order
+     */
+    public void add(DroneOrder order, long location) {
+        int x = Coordinates.x(location);
+        int y = Coordinates.y(location);
+        if(x < minX || x > maxX || y < minY || y > maxY) {
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            areaGrew = true;
+        }
+        put(order, location);
+        size++;
+        if(adaptive && (size >= 2 * builtSize || areaGrew))
+            rebuild();
+    }
+
+    private void put(DroneOrder order, long location) {
+        int cellX = Coordinates.x(location) >> shift;
+        int cellY = Coordinates.y(location) >> shift;
+        GridCell cell = cell(cellX, cellY);
+        if(cell == null) {
+            cell = createCell(cellX, cellY);
+            minCellX = Math.min(minCellX, cellX);
+            maxCellX = Math.max(maxCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellY = Math.max(maxCellY, cellY);
+        }
+        cell.add(order, location);
+    }
+
+    /**
+     * Remove an order, at the location of its direction
+     * @param order
+     * @return whether the order was in the grid
+     */
+    public boolean remove(DroneOrder order) {
+        return remove(order, order.getDirection().getLocation());
+    }
+
+    /**
+     * @param order
+     * @param location packed location the order was added with
+     * @return whether the order was in the grid
+     */
+    public boolean remove(DroneOrder order, long location) {
+        GridCell cell = cell(Coordinates.x(location) >> shift, Coordinates.y(location) >> shift);
+        if(cell == null || !cell.remove(order))
+            return false;
+        size--;
+        if(adaptive && 2 * size <= builtSize)
+            rebuild();
+        return true;
+    }
+
+    /**
+     * Choose the cell size again for the number of orders, and move the orders to the new cells
+     */
+    private void rebuild() {
+        builtSize = size;
+        areaGrew = false;
+        long width = Math.min((long) maxX - minX + 1, 1L << 31);
+        long height = Math.min((long) maxY - minY + 1, 1L << 31);
+        // side^2 of a cell holding ORDERS_PER_CELL orders, rounded down to a power of 2
+        long cellArea = Math.max(1, width * height / Math.max(size, 1) * ORDERS_PER_CELL);
+        int newShift = Math.min(30, (63 - Long.numberOfLeadingZeros(cellArea)) / 2);
+        if(newShift == shift)
+            return;
+        DroneOrder[] orders = new DroneOrder[size];
+        long[] locations = new long[size];
+        int n = 0;
+        for(GridCell cell : cells) {
+            if(cell == null)
+                continue;
+            System.arraycopy(cell.orders, 0, orders, n, cell.size);
+            System.arraycopy(cell.locations, 0, locations, n, cell.size);
+            n += cell.size;
+        }
+        shift = newShift;
+        int length = INITIAL_TABLE;
+        while(length < 4 * n)
+            length *= 2;
+        keys = new long[length];
+        cells = new GridCell[length];
+        cellCount = 0;
+        minCellX = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+        for(int i = 0; i < n; i++)
+            put(orders[i], locations[i]);
+    }
+
+    /**
+     * The k orders closest to a point, closest first
+     * @param x East coordinate of the point
+     * @param y North coordinate of the point
+     * @param k number of orders wanted
+     * @param out receives the orders, at least k long
+     * @return number of orders found, k unless the grid holds less
+     */
+    public int nearest(int x, int y, int k, DroneOrder[] out) {
+        if(k <= 0 || size == 0)
+            return 0;
+        if(found.length < k)
+            found = new long[Math.max(k, found.length * 2)];
+        int cellX = x >> shift;
+        int cellY = y >> shift;
+        long cellSize = 1L << shift;
+        // cells are visited by rings of the same Manhattan distance in cells, from the point's own
+        long rings = Math.max((long) cellX - minCellX, (long) maxCellX - cellX)
+                + Math.max((long) cellY - minCellY, (long) maxCellY - cellY);
+        int count = 0;
+        int seen = 0;
+        for(int r = 0; r <= rings && seen < size; r++) {
+            // any order of ring r is at least this far
+            if(count == k && r >= 2 && found[k - 1] <= (r - 2) * cellSize + 2)
+                break;
+            for(int dx = -r; dx <= r; dx++) {
+                int dy = r - Math.abs(dx);
+                for(int side = -1; side <= 1; side += 2) {
+                    GridCell cell = visible(cellX + dx, cellY + side * dy);
+                    if(cell != null) {
+                        seen += cell.size;
+                        if(count < k || gap(x, cellX + dx, cellSize) + gap(y, cellY + side * dy, cellSize) < found[k - 1])
+                            count = cell.nearest(x, y, k, out, found, count);
+                    }
+                    if(dy == 0)
+                        break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * All the orders within a distance of a point
+     * @param x East coordinate of the point
+     * @param y North coordinate of the point
+     * @param radius largest distance
+     * @param out receives the orders
+     * @return number of orders added to out
+     */
+    public int within(int x, int y, long radius, Collection<? super DroneOrder> out) {
+        if(radius < 0 || size == 0)
+            return 0;
+        long cellSize = 1L << shift;
+        long fromX = Math.max(((long) x - radius) >> shift, minCellX);
+        long toX = Math.min(((long) x + radius) >> shift, maxCellX);
+        long fromY = Math.max(((long) y - radius) >> shift, minCellY);
+        long toY = Math.min(((long) y + radius) >> shift, maxCellY);
+        int count = 0;
+        for(long cellX = fromX; cellX <= toX; cellX++) {
+            long gapX = gap(x, (int) cellX, cellSize);
+            for(long cellY = fromY; cellY <= toY; cellY++) {
+                // the corners of the square are out of the radius
+                if(gapX + gap(y, (int) cellY, cellSize) > radius)
+                    continue;
+                GridCell cell = cell((int) cellX, (int) cellY);
+                if(cell == null)
+                    continue;
+                for(int i = 0; i < cell.size; i++) {
+                    long location = cell.locations[i];
+                    if(Math.abs((long) Coordinates.x(location) - x) + Math.abs((long) Coordinates.y(location) - y) <= radius) {
+                        out.add(cell.orders[i]);
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return distance along one axis from a coordinate to a cell, 0 inside it
+     */
+    private long gap(int coordinate, int cell, long cellSize) {
+        long low = (long) cell << shift;
+        if(coordinate < low)
+            return low - coordinate;
+        long high = low + cellSize - 1;
+        return coordinate > high ? coordinate - high : 0;
+    }
+
+    /**
+     * All the orders of the cell a point falls in
+     * @param x East coordinate of the point
+     * @param y North coordinate of the point
+     * @param out receives the orders
+     * @return number of orders added to out
+     */
+    public int inCell(int x, int y, Collection<? super DroneOrder> out) {
+        GridCell cell = cell(x >> shift, y >> shift);
+        if(cell == null)
+            return 0;
+        for(int i = 0; i < cell.size; i++)
+            out.add(cell.orders[i]);
+        return cell.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return side of a cell
+     */
+    public int getCellSize() {
+        return 1 << shift;
+    }
+
+    /**
+     * Remove all the orders, the cells are kept
+     */
+    public void clear() {
+        for(GridCell cell : cells)
+            if(cell != null)
+                cell.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the cell if it is inside the bounding box and exists, else null
+     */
+    private GridCell visible(int cellX, int cellY) {
+        if(cellX < minCellX || cellX > maxCellX || cellY < minCellY || cellY > maxCellY)
+            return null;
+        return cell(cellX, cellY);
+    }
+
+    private GridCell cell(int cellX, int cellY) {
+        long key = Coordinates.pack(cellX, cellY);
+        int mask = keys.length - 1;
+        for(int slot = hash(key) & mask; cells[slot] != null; slot = (slot + 1) & mask)
+            if(keys[slot] == key)
+                return cells[slot];
+        return null;
+    }
+
+    private GridCell createCell(int cellX, int cellY) {
+        if(2 * (cellCount + 1) > keys.length)
+            rehash(keys.length * 2);
+        long key = Coordinates.pack(cellX, cellY);
+        GridCell cell = new GridCell();
+        insert(key, cell);
+        cellCount++;
+        return cell;
+    }
+
+    private void insert(long key, GridCell cell) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(cells[slot] != null)
+            slot = (slot + 1) & mask;
+        keys[slot] = key;
+        cells[slot] = cell;
+    }
+
+    private void rehash(int length) {
+        long[] oldKeys = keys;
+        GridCell[] oldCells = cells;
+        keys = new long[length];
+        cells = new GridCell[length];
+        for(int i = 0; i < oldCells.length; i++)
+            if(oldCells[i] != null)
+                insert(oldKeys[i], oldCells[i]);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
+
+/**
+ * One cell of an OrderGrid: its orders and their packed locations
+ *
+ *
+ */
+class GridCell {
+
+    DroneOrder[] orders = new DroneOrder[4];
+    long[] locations = new long[4];
+    int size;
+
+    void add(DroneOrder order, long location) {
+        if(size == orders.length) {
+            orders = Arrays.copyOf(orders, size * 2);
+            locations = Arrays.copyOf(locations, size * 2);
+        }
+        orders[size] = order;
+        locations[size] = location;
+        size++;
+    }
+
+    boolean remove(DroneOrder order) {
+        for(int i = 0; i < size; i++) {
+            if(orders[i] == order) {
+                size--;
+                orders[i] = orders[size];
+                locations[i] = locations[size];
+                orders[size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge the orders of this cell into the k closest found so far
+     * @param count number of orders found so far
+     * @return number of orders found
+     */
+    int nearest(int x, int y, int k, DroneOrder[] out, long[] found, int count) {
+        for(int i = 0; i < size; i++) {
+            long location = locations[i];
+            long distance = Math.abs((long) Coordinates.x(location) - x) + Math.abs((long) Coordinates.y(location) - y);
+            if(count == k && distance >= found[k - 1])
+                continue;
+            int j = count < k ? count++ : k - 1;
+            while(j > 0 && found[j - 1] > distance) {
+                found[j] = found[j - 1];
+                out[j] = out[j - 1];
+                j--;
+            }
+            found[j] = distance;
+            out[j] = orders[i];
+        }
+        return count;
+    }
+
+    void clear() {
+        Arrays.fill(orders, 0, size, null);
+        size = 0;
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.scheduler;
+
+import com.delivery.interfaces.OrderStore;
+
+import java.util.Arrays;
+
+
+/**
+ * Binary min heap of order handles, shorter distance comes first,
+ * then the earlier handle. Used as the waiting tasks queue of the
+ * handle based schedulers.
+ *
+ *
+ */
+class OrderHandleHeap {
+
+    private final OrderStore store;
+    /**
+     * Keys: distance in the high 32 bits, handle in the low 32 bits, so comparing
+     * two keys compares the distances then the handles, without reading the store
+     */
+    private long[] heap;
+    private int size;
+
+    OrderHandleHeap(OrderStore store) {
+        this.store = store;
+        heap = new long[64];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void offer(int handle) {
+        if(size == heap.length)
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        // distances of the parsers are below 2^31, the key stays positive
+        long key = store.getEdistance(handle) << 32 | handle;
+        int i = size++;
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(key >= heap[parent])
+                break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = key;
+    }
+
+    int peek() {
+        return (int) heap[0];
+    }
+
+    int poll() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while(i < half) {
+            int child = 2 * i + 1;
+            if(child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if(heap[child] >= last)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return (int) top;
+    }
+
+}
@@ -0,0 +1,455 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderStore;
+import com.delivery.DroneOrderTime;
+import com.tools.DispatchSink;
+import com.tools.LiveOrderQueue;
+import com.tools.OrderLineParser;
+import com.tools.TimeConvert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+
+/**
+ * Long-running order ingestion server on a local TCP port.
+ * Producers connect and push order lines, same format as the input file:
+ *      WM0001 N11W5 05:11:50
+ * and get the dispatch decisions of their own orders back as they are made:
+ *      WM0001 05:11:50
+ * An invalid line, or an order coming before the last accepted one, is
+ * answered with "REJECTED " and the line. When the server is closed, the
+ * NPS line is sent to all the connected producers.
+ *
+ * Threads:
+ *      |-- one IO thread serves all the connections with a Selector, so a
+ *          connection only costs its channel and a small line buffer
+ *      |-- one scheduler thread runs the scheduler on a LiveOrderQueue
+ * The scheduler decides what the drone does at a time once an order coming
+ * after that time has been received, or the server is closed.
+ *
+ *
+ */
+public class OrderIngestionServer implements Closeable {
+
+    private final static int READ_BUFFER_SIZE = 1 << 16;
+    /**
+     * Longer lines are rejected
+     */
+    private final static int MAX_LINE = 256;
+    /**
+     * A producer which doesn't read its decisions is disconnected past this many pending bytes
+     */
+    private final static int MAX_PENDING_OUTPUT = 1 << 20;
+    /**
+     * How long close() waits for the last decisions to be sent, in milliseconds
+     */
+    private final static long DRAIN_TIMEOUT = 5000;
+    private final static byte[] REJECTED = "REJECTED ".getBytes(StandardCharsets.US_ASCII);
+
+    private final InetSocketAddress address;
+    private final LiveOrderQueue tasks;
+    private final InputStreamScheduler scheduler;
+    /**
+     * Optional log of all the decisions, eg: a ChannelDispatchSink to a file
+     */
+    private DispatchSink log;
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread ioThread;
+    private Thread schedulerThread;
+    private volatile boolean running;
+
+    /**
+     * Connection of each order which is not dispatched yet
+     */
+    private final Map<DroneOrder, Connection> owners = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    /**
+     * Connections with new output, waiting for the IO thread
+     */
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Used by the IO thread only
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final OrderLineParser parser = new OrderLineParser();
+
+    /**
+     * @param address local address to listen on, port 0 for any free port
+     * @param factory creates the scheduler for the live tasks queue
+     */
+    public OrderIngestionServer(InetSocketAddress address, Function<Queue<DroneOrder>, InputStreamScheduler> factory) {
+        this.address = address;
+        this.tasks = new LiveOrderQueue();
+        this.scheduler = factory.apply(tasks);
+        this.scheduler.setDispatchSink(new ConnectionDispatchSink());
+    }
+
+    /**
+     * Log all the decisions to a sink as well, to be set before start().
+     * The sink is closed with the server.
+     * @param log
+     */
+    public void setLog(DispatchSink log) {
+        this.log = log;
+    }
+
+    /**
+     * Listen on the port, and start the IO thread and the scheduler thread
+     * @throws IOException
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address, 4096);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        schedulerThread = new Thread(() -> {
+            try {
+                scheduler.start();
+            } finally {
+                // no one takes orders any more
+                tasks.close();
+            }
+        }, "scheduler");
+        ioThread = new Thread(this::serve, "ingestion-io");
+        schedulerThread.start();
+        ioThread.start();
+    }
+
+    /**
+     * @return local port the server listens on
+     * @throws IOException
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public InputStreamScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stop taking orders, let the scheduler dispatch the received ones,
+     * send the last decisions and the NPS, then disconnect everyone.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        tasks.close();
+        try {
+            schedulerThread.join();
+            running = false;
+            selector.wakeup();
+            ioThread.join(DRAIN_TIMEOUT + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for(Connection connection : connections)
+            connection.channel.close();
+        connections.clear();
+        server.close();
+        selector.close();
+        if(log != null)
+            log.close();
+    }
+
+    /**
+     * IO thread: accept, read order lines, write decisions back
+     */
+    private void serve() {
+        long deadline = Long.MAX_VALUE;
+        try {
+            while(running || (!pendingWrites.isEmpty() || hasPendingOutput()) && System.currentTimeMillis() < deadline) {
+                if(!running && deadline == Long.MAX_VALUE)
+                    deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+                selector.select(running ? 0 : 100);
+                Connection pending;
+                while((pending = pendingWrites.poll()) != null)
+                    write(pending);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if(!key.isValid())
+                        continue;
+                    if(key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if(key.isReadable())
+                        read(connection);
+                    if(key.isValid() && key.isWritable())
+                        write(connection);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if(running)
+                e.printStackTrace();
+        }
+    }
+
+    private boolean hasPendingOutput() {
+        for(Connection connection : connections) {
+            synchronized (connection) {
+                if(connection.out != null && connection.out.position() > 0 && !connection.closed)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+        }
+    }
+
+    /**
+     * Read what is available, and handle each complete line
+     */
+    private void read(Connection connection) {
+        try {
+            readBuffer.clear();
+            int n = connection.channel.read(readBuffer);
+            if(n < 0) {
+                // the producer finished sending, it still gets its decisions until the server closes
+                if(connection.lineLength > 0)
+                    handleLine(connection);
+                connection.lineLength = 0;
+                synchronized (connection) {
+                    connection.inputClosed = true;
+                    connection.key.interestOps(interestOps(connection));
+                }
+                return;
+            }
+            readBuffer.flip();
+            while(readBuffer.hasRemaining()) {
+                byte b = readBuffer.get();
+                if(b == '\n') {
+                    handleLine(connection);
+                    connection.lineLength = 0;
+                } else if(connection.lineLength < MAX_LINE) {
+                    connection.line.put(connection.lineLength, b);
+                    connection.lineLength++;
+                } else {
+                    connection.lineLength = MAX_LINE + 1; // too long, rejected at the end of the line
+                }
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void handleLine(Connection connection) {
+        int end = Math.min(connection.lineLength, MAX_LINE);
+        if(end > 0 && connection.line.get(end - 1) == '\r')
+            end--;
+        if(end == 0)
+            return; // blank line
+        if(connection.lineLength <= MAX_LINE && parser.parse(connection.line, 0, end)) {
+            DroneOrder order = new DroneOrder(new DroneOrderID(DroneOrderStore.formatID(parser.geteID())),
+                    new DroneOrderDirection(parser.getOrderDirection(connection.line)),
+                    new DroneOrderTime(parser.geteTime(), parser.isDated()));
+            order.setDeadline(parser.getDeadline());
+            owners.put(order, connection);
+            if(tasks.offer(order))
+                return;
+            owners.remove(order);
+        }
+        byte[] reply = new byte[REJECTED.length + end + 1];
+        System.arraycopy(REJECTED, 0, reply, 0, REJECTED.length);
+        for(int i = 0; i < end; i++)
+            reply[REJECTED.length + i] = connection.line.get(i);
+        reply[reply.length - 1] = '\n';
+        send(connection, reply);
+    }
+
+    /**
+     * Queue a reply, called by both threads
+     */
+    private void send(Connection connection, byte[] reply) {
+        boolean wakeup = false;
+        synchronized (connection) {
+            if(connection.closed)
+                return;
+            if(connection.out == null)
+                connection.out = ByteBuffer.allocate(Math.max(256, Integer.highestOneBit(reply.length) << 1));
+            if(connection.out.remaining() < reply.length) {
+                if(connection.out.position() + reply.length > MAX_PENDING_OUTPUT) {
+                    // the producer doesn't read, drop it
+                    connection.closed = true;
+                } else {
+                    int capacity = connection.out.capacity();
+                    while(capacity - connection.out.position() < reply.length)
+                        capacity <<= 1;
+                    ByteBuffer bigger = ByteBuffer.allocate(capacity);
+                    connection.out.flip();
+                    bigger.put(connection.out);
+                    connection.out = bigger;
+                }
+            }
+            if(!connection.closed)
+                connection.out.put(reply);
+            if(!connection.queued) {
+                connection.queued = true;
+                wakeup = true;
+            }
+        }
+        if(wakeup) {
+            pendingWrites.offer(connection);
+            if(Thread.currentThread() != ioThread)
+                selector.wakeup();
+        }
+    }
+
+    /**
+     * Write the pending output of a connection, IO thread only
+     */
+    private void write(Connection connection) {
+        synchronized (connection) {
+            connection.queued = false;
+            if(connection.closed) {
+                disconnect(connection);
+                return;
+            }
+            if(connection.out == null || !connection.key.isValid())
+                return;
+            try {
+                connection.out.flip();
+                connection.channel.write(connection.out);
+                connection.out.compact();
+            } catch (IOException e) {
+                disconnect(connection);
+                return;
+            }
+            connection.key.interestOps(interestOps(connection));
+        }
+    }
+
+    /**
+     * Read until the producer finishes sending, write while there is pending output
+     */
+    private static int interestOps(Connection connection) {
+        int ops = connection.inputClosed ? 0 : SelectionKey.OP_READ;
+        if(connection.out != null && connection.out.position() > 0)
+            ops |= SelectionKey.OP_WRITE;
+        return ops;
+    }
+
+    private void disconnect(Connection connection) {
+        synchronized (connection) {
+            connection.closed = true;
+            connection.out = null;
+        }
+        connections.remove(connection);
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    /**
+     * One producer connection. The line is only used by the IO thread,
+     * the output is shared with the scheduler thread under the connection's lock.
+     */
+    private static class Connection {
+
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private final ByteBuffer line = ByteBuffer.allocate(MAX_LINE);
+        private int lineLength;
+        private ByteBuffer out;
+        /**
+         * Whether the connection is in pendingWrites
+         */
+        private boolean queued;
+        private boolean closed;
+        /**
+         * The producer shut down its output, no more order comes from it
+         */
+        private boolean inputClosed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Send each decision back to the connection the order came from
+     */
+    private class ConnectionDispatchSink implements DispatchSink {
+
+        @Override
+        public void dispatch(DroneOrder order, long departureTime) {
+            Connection connection = owners.remove(order);
+            if(connection != null)
+                send(connection, (order.getOrderID().getOrderID() + " "
+                        + TimeConvert.timeToStr(departureTime, order.getOrderTime().isDated()) + "\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+            if(log != null)
+                log.dispatch(order, departureTime);
+        }
+
+        @Override
+        public void drop(DroneOrder order, long time) {
+            Connection connection = owners.remove(order);
+            if(connection != null)
+                send(connection, (order.getOrderID().getOrderID() + " dropped "
+                        + TimeConvert.timeToStr(time, order.getOrderTime().isDated()) + "\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+            if(log != null)
+                log.drop(order, time);
+        }
+
+        /**
+         * The order objects are needed to find the connections, handle based schedulers are only logged
+         */
+        @Override
+        public void dispatch(int eID, long departureTime, boolean dated) {
+            if(log != null)
+                log.dispatch(eID, departureTime, dated);
+        }
+
+        @Override
+        public void finish(double nps) {
+            byte[] line = ("NPS " + nps + "\n").getBytes(StandardCharsets.US_ASCII);
+            for(Connection connection : connections)
+                send(connection, line);
+            if(log != null)
+                log.finish(nps);
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+}
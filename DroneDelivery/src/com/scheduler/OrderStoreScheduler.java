@@ -0,0 +1,256 @@
+package com.scheduler;
+
+import com.delivery.DroneOrderStore;
+import com.delivery.interfaces.OrderStore;
+import com.tools.DeliveryOutcome;
+import com.tools.DispatchSink;
+import com.tools.NPSCalculator;
+import com.tools.OutcomeConsumer;
+import com.tools.Satisfaction;
+import com.tools.TimeConvert;
+
+import java.util.*;
+
+
+/**
+ * OrderStoreScheduler runs the same algorithm as InputStreamScheduler
+ * (when only 1 order comes, deliver; when more than 1 order is waiting,
+ * do the shortest) directly on the int handles of an OrderStore.
+ *
+ * The upcoming tasks are the handles from 0 to size() - 1, and the waiting
+ * tasks are kept in a primitive heap of handles, so no order object is
+ * created while scheduling. Orders with the same distance are delivered
+ * in arrival order.
+ * As InputStreamScheduler, the waiting times are classified by an NPSCalculator and the
+ * outcomes handed to the OutcomeConsumers, with a null order: only the easy ID is known.
+ *
+ *
+ */
+public class OrderStoreScheduler {
+
+    /**
+     * Orders, in time sequence
+     */
+    private OrderStore store;
+    /**
+     * Waiting tasks, shorter tasks come first
+     */
+    private OrderHandleHeap queue;
+    /**
+     * Next upcoming handle
+     */
+    private int next;
+    /**
+     * Delivered handles and their departure times, in delivery order
+     */
+    private int[] result;
+    private long[] departures;
+    private int resultSize;
+    /**
+     * Receives the dispatch decisions as they are made. When it is null,
+     * the decisions are kept in result and departures.
+     */
+    private DispatchSink sink;
+    /**
+     * Total Order number, promoters number, neutral number and detractors number, in order to calculate NPS
+     */
+    private int totalOrder;
+    private int promoters;
+    private int neutral;
+    private int detractors;
+    /**
+     * Classifies the waiting times, and receive the outcome of every decision
+     */
+    private NPSCalculator calculator = NPSCalculator.DEFAULT;
+    private OutcomeConsumer[] consumers = new OutcomeConsumer[0];
+    private final DeliveryOutcome outcome = new DeliveryOutcome();
+
+    /**
+     * Initiate the scheduler with the orders of a store
+     * @param store
+     */
+    public OrderStoreScheduler(OrderStore store) {
+        this.store = store;
+        queue = new OrderHandleHeap(store);
+        result = new int[16];
+        departures = new long[result.length];
+    }
+
+    /**
+     * Start scheduling
+     */
+    public void start() {
+        int size = store.size();
+        // Edge case: if there is no tasks, return
+        if(next >= size)
+            return;
+        // push the first task
+        long finishTime = initQueue();
+
+        while(!queue.isEmpty() || next < size) {
+            // Process current task
+            int current = queue.poll();
+            long departureTime = finishTime;
+            long deliveryTime = store.getEdistance(current) * 60; // deliveryTime = distance * 60 (sec)
+            long flyBackTime = deliveryTime;
+            finishTime = departureTime + deliveryTime + flyBackTime;
+
+            // Calculate NPS
+            long timeWait = departureTime + deliveryTime - store.geteTime(current);
+            totalOrder ++;
+            Satisfaction satisfaction = calculator.classify(timeWait);
+            if(satisfaction == Satisfaction.INVALID)
+                System.out.println("Invalid waiting time");
+            else if(satisfaction == Satisfaction.PROMOTERS)
+                promoters ++;
+            else if(satisfaction == Satisfaction.NEUTRAL)
+                neutral ++;
+            else if(satisfaction == Satisfaction.DETRACTORS)
+                detractors ++;
+            if(consumers.length > 0) {
+                outcome.set(null, store.geteID(current), departureTime, deliveryTime, timeWait,
+                        satisfaction, queue.size());
+                for(OutcomeConsumer consumer : consumers)
+                    consumer.accept(outcome);
+            }
+
+            if(sink != null)
+                sink.dispatch(store.geteID(current), departureTime, store.isDated());
+            else
+                addResult(current, departureTime);
+
+            // Add all tasks which starts before previous task finish
+            while(next < size && store.geteTime(next) <= finishTime)
+                queue.offer(next++);
+            //if currently no task
+            if(queue.isEmpty() && next < size)
+                finishTime = initQueue();
+        }
+        for(OutcomeConsumer consumer : consumers)
+            consumer.finish();
+        if(sink != null)
+            sink.finish(getNPS());
+    }
+
+    /**
+     * Initiate the waiting queue with all the tasks which come at the
+     * time of the next upcoming task. The heap delivers the shortest one first.
+     * @return previous tasks finish time
+     */
+    private long initQueue() {
+        long time = store.geteTime(next);
+        while(next < store.size() && store.geteTime(next) == time)
+            queue.offer(next++);
+        return time;
+    }
+
+    private void addResult(int handle, long departureTime) {
+        if(resultSize == result.length) {
+            result = Arrays.copyOf(result, result.length * 2);
+            departures = Arrays.copyOf(departures, departures.length * 2);
+        }
+        result[resultSize] = handle;
+        departures[resultSize] = departureTime;
+        resultSize++;
+    }
+
+    /**
+     * @return number of delivered orders
+     */
+    public int getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * @param i index in delivery order
+     * @return handle of the i-th delivered order
+     */
+    public int getResult(int i) {
+        return result[i];
+    }
+
+    /**
+     * @param i index in delivery order
+     * @return departure time of the i-th delivered order
+     */
+    public long getDepartureTime(int i) {
+        return departures[i];
+    }
+
+    public DispatchSink getDispatchSink() {
+        return sink;
+    }
+
+    /**
+     * Write the dispatch decisions to a sink instead of the result arrays.
+     * The sink is not closed by the scheduler.
+     * @param sink
+     */
+    public void setDispatchSink(DispatchSink sink) {
+        this.sink = sink;
+    }
+
+    public NPSCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Classify the waiting times with other cutoffs than the given table
+     * @param calculator
+     */
+    public void setCalculator(NPSCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * Hand the outcome of every decision to a consumer too, from the next call of start()
+     * @param consumer
+     */
+    public void addOutcomeConsumer(OutcomeConsumer consumer) {
+        consumers = Arrays.copyOf(consumers, consumers.length + 1);
+        consumers[consumers.length - 1] = consumer;
+    }
+
+    public OrderStore getStore() {
+        return store;
+    }
+
+    public int getTotalOrder() {
+        return totalOrder;
+    }
+
+    public int getPromoters() {
+        return promoters;
+    }
+
+    public int getNeutral() {
+        return neutral;
+    }
+
+    public int getDetractors() {
+        return detractors;
+    }
+
+    /**
+     * @return NPS of the delivered orders
+     */
+    public double getNPS() {
+        return ((promoters - detractors)/(double)totalOrder)*100;
+    }
+
+    /**
+     * You can directly print(scheduler)
+     * @return formatted deliver sequence, same format as InputStreamScheduler
+     */
+    @Override
+    public String toString() {
+        StringBuilder print = new StringBuilder();
+        for(int i = 0; i < resultSize; i++) {
+            print.append(DroneOrderStore.formatID(store.geteID(result[i]))).append(' ')
+                    .append(TimeConvert.timeToStr(departures[i], store.isDated())).append('\n');
+        }
+        print.append("NPS ").append(getNPS()).append('\n');
+        return print.toString();
+    }
+
+}
@@ -0,0 +1,350 @@
+package com.scheduler;
+
+import com.delivery.interfaces.OrderStore;
+import com.tools.NPSCalculator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Parameter sweep for scheduler tuning. It takes a list of values for each
+ * tunable of SchedulerParameters, and evaluates every configuration of the
+ * cartesian grid over one shared OrderStore, on a fork-join pool.
+ *
+ * The same algorithm as the Test schedulers is run on the store handles:
+ * the working window works as InputStreamLimitedTimeScheduler, and the
+ * detractor cutoff works as InputWithWaitScheduler.setDetractorCutoff, tuned
+ * apart from the neutral cutoff. Without window and cutoff, it is the dynamic scheduler.
+ *
+ * Only the window, the detractor cutoff and the seconds per unit change the
+ * delivery sequence. So the grid is scheduled once per combination of these,
+ * and the waiting times are sorted and scored against every promoters and
+ * neutral cutoff with binary searches.
+ *
+ * The frontier is the set of configurations no other configuration beats
+ * on both NPS and delivered orders.
+ *
+ *
+ */
+public class ParameterSweep {
+
+    private long[] windowStarts = {0};
+    private long[] windowEnds = {SchedulerParameters.NO_WINDOW};
+    private long[] promotersCutoffs = {NPSCalculator.PROMOTERS};
+    private long[] neutralCutoffs = {NPSCalculator.NEUTRAL};
+    private long[] detractorCutoffs = {SchedulerParameters.NO_DETRACTOR_CUTOFF};
+    private long[] secondsPerUnit = {60};
+    private int threads;
+    /**
+     * Results of the last run, in grid order
+     */
+    private List<SweepResult> results = Collections.emptyList();
+
+    public ParameterSweep() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads parallelism of the fork-join pool
+     */
+    public ParameterSweep(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Values from "from" to "to" inclusive
+     * @param from
+     * @param to
+     * @param step positive step
+     * @return from, from + step, ..., up to "to"
+     */
+    public static long[] range(long from, long to, long step) {
+        if(step <= 0 || from > to)
+            throw new IllegalArgumentException("Invalid range " + from + "-" + to + "/" + step);
+        long[] values = new long[(int) ((to - from) / step) + 1];
+        for(int i = 0; i < values.length; i++)
+            values[i] = from + i * step;
+        return values;
+    }
+
+    public void setWindowStarts(long... windowStarts) {
+        this.windowStarts = windowStarts.clone();
+    }
+
+    public void setWindowEnds(long... windowEnds) {
+        this.windowEnds = windowEnds.clone();
+    }
+
+    public void setPromotersCutoffs(long... promotersCutoffs) {
+        this.promotersCutoffs = promotersCutoffs.clone();
+    }
+
+    public void setNeutralCutoffs(long... neutralCutoffs) {
+        this.neutralCutoffs = neutralCutoffs.clone();
+    }
+
+    public void setDetractorCutoffs(long... detractorCutoffs) {
+        this.detractorCutoffs = detractorCutoffs.clone();
+    }
+
+    public void setSecondsPerUnit(long... secondsPerUnit) {
+        this.secondsPerUnit = secondsPerUnit.clone();
+    }
+
+    /**
+     * Evaluate the whole grid. Invalid combinations, such as a window
+     * ending before it starts, are skipped.
+     * @param orders orders in time sequence, not modified
+     * @return results in grid order
+     */
+    public List<SweepResult> run(OrderStore orders) {
+        // combinations which change the delivery sequence
+        List<long[]> schedules = new ArrayList<>();
+        for(long start : windowStarts)
+            for(long end : windowEnds)
+                for(long detractor : detractorCutoffs)
+                    for(long unit : secondsPerUnit)
+                        if(0 <= start && start <= end && unit > 0)
+                            schedules.add(new long[] {start, end, detractor, unit});
+        // combinations which only change the scoring
+        List<long[]> cutoffs = new ArrayList<>();
+        for(long promoters : promotersCutoffs)
+            for(long neutral : neutralCutoffs)
+                if(0 <= promoters && promoters <= neutral)
+                    cutoffs.add(new long[] {promoters, neutral});
+
+        SweepResult[] grid = new SweepResult[schedules.size() * cutoffs.size()];
+        if(grid.length > 0) {
+            ThreadLocal<SweepEvaluator> evaluators = ThreadLocal.withInitial(() -> new SweepEvaluator(orders));
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new SweepTask(schedules, cutoffs, grid, evaluators, 0, schedules.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        results = Collections.unmodifiableList(Arrays.asList(grid));
+        return results;
+    }
+
+    /**
+     * @return results of the last run, in grid order
+     */
+    public List<SweepResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Configurations no other configuration beats on both NPS and delivered orders
+     * @return frontier, most delivered orders first
+     */
+    public List<SweepResult> getFrontier() {
+        List<SweepResult> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> a.getTotalOrder() != b.getTotalOrder()
+                ? Integer.compare(b.getTotalOrder(), a.getTotalOrder())
+                : Double.compare(b.getNPS(), a.getNPS()));
+        List<SweepResult> frontier = new ArrayList<>();
+        double best = Double.NEGATIVE_INFINITY;
+        for(SweepResult result : sorted) {
+            if(result.getNPS() > best) {
+                frontier.add(result);
+                best = result.getNPS();
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * Report: the frontier, then all the configurations, best NPS first
+     * @return report lines
+     */
+    public List<String> getReport() {
+        List<String> report = new ArrayList<>();
+        report.add("frontier (" + results.size() + " configurations)");
+        for(SweepResult result : getFrontier())
+            report.add(result.toString());
+        report.add("all configurations");
+        List<SweepResult> sorted = new ArrayList<>(results);
+        sorted.sort((a, b) -> Double.compare(b.getNPS(), a.getNPS()));
+        for(SweepResult result : sorted)
+            report.add(result.toString());
+        return report;
+    }
+
+    /**
+     * Fork-join task over a range of schedules, a leaf schedules once and
+     * scores all the cutoffs
+     */
+    private static class SweepTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private final List<long[]> schedules;
+        private final List<long[]> cutoffs;
+        private final SweepResult[] grid;
+        private final ThreadLocal<SweepEvaluator> evaluators;
+        private final int from;
+        private final int to;
+
+        SweepTask(List<long[]> schedules, List<long[]> cutoffs, SweepResult[] grid,
+                  ThreadLocal<SweepEvaluator> evaluators, int from, int to) {
+            this.schedules = schedules;
+            this.cutoffs = cutoffs;
+            this.grid = grid;
+            this.evaluators = evaluators;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SweepTask(schedules, cutoffs, grid, evaluators, from, mid),
+                        new SweepTask(schedules, cutoffs, grid, evaluators, mid, to));
+                return;
+            }
+            long[] schedule = schedules.get(from);
+            SweepEvaluator evaluator = evaluators.get();
+            evaluator.schedule(schedule[0], schedule[1], schedule[2], schedule[3]);
+            for(int i = 0; i < cutoffs.size(); i++) {
+                long[] cutoff = cutoffs.get(i);
+                SchedulerParameters parameters = new SchedulerParameters(schedule[0], schedule[1],
+                        cutoff[0], cutoff[1], schedule[2], schedule[3]);
+                grid[from * cutoffs.size() + i] = evaluator.score(parameters);
+            }
+        }
+    }
+
+}
+
+/**
+ * Runs one configuration of the schedulers on the handles of a store and
+ * keeps the sorted waiting times. Its buffers are reused between
+ * configurations, so one evaluator is used by one thread only.
+ *
+ *
+ */
+class SweepEvaluator {
+
+    private final OrderStore store;
+    private final OrderHandleHeap queue;
+    /**
+     * Upcoming handles: the orders in the window, the detractors at the end
+     */
+    private final int[] sequence;
+    private final int[] late;
+    /**
+     * Waiting time of each delivered order, sorted after scheduling
+     */
+    private final long[] waits;
+    private int delivered;
+
+    SweepEvaluator(OrderStore store) {
+        this.store = store;
+        queue = new OrderHandleHeap(store);
+        sequence = new int[store.size()];
+        late = new int[store.size()];
+        waits = new long[store.size()];
+    }
+
+    /**
+     * Schedule the store with one configuration, same steps as InputStreamLimitedTimeScheduler
+     * @param start start of the working window
+     * @param end end of the working window
+     * @param detractorCutoff longest one way delivery time not delivered last
+     * @param unit seconds per distance unit
+     */
+    void schedule(long start, long end, long detractorCutoff, long unit) {
+        int size = 0;
+        int lateSize = 0;
+        for(int h = 0; h < store.size(); h++) {
+            long time = store.geteTime(h);
+            if(time < start || time > end)
+                continue;
+            if(store.getEdistance(h) * unit > detractorCutoff)
+                late[lateSize++] = h;
+            else
+                sequence[size++] = h;
+        }
+        System.arraycopy(late, 0, sequence, size, lateSize);
+        size += lateSize;
+
+        delivered = 0;
+        queue.clear();
+        int next = 0;
+        if(size == 0)
+            return;
+        long finishTime = store.geteTime(sequence[0]);
+        next = initQueue(next, size);
+
+        while(!queue.isEmpty() || next < size) {
+            int current = queue.poll();
+            long departureTime = finishTime;
+            long deliveryTime = store.getEdistance(current) * unit;
+            finishTime = departureTime + deliveryTime + deliveryTime;
+
+            // out of the working time, as the limited scheduler
+            if(finishTime < start || finishTime > end) {
+                if(queue.isEmpty() && next < size) {
+                    finishTime = store.geteTime(sequence[next]);
+                    next = initQueue(next, size);
+                }
+                continue;
+            }
+
+            waits[delivered++] = departureTime + deliveryTime - store.geteTime(current);
+
+            while(next < size && store.geteTime(sequence[next]) <= finishTime)
+                queue.offer(sequence[next++]);
+            if(queue.isEmpty() && next < size) {
+                finishTime = store.geteTime(sequence[next]);
+                next = initQueue(next, size);
+            }
+        }
+        Arrays.sort(waits, 0, delivered);
+    }
+
+    /**
+     * Offer all the upcoming tasks which come at the time of the next one
+     * @return next upcoming index
+     */
+    private int initQueue(int next, int size) {
+        long time = store.geteTime(sequence[next]);
+        while(next < size && store.geteTime(sequence[next]) == time)
+            queue.offer(sequence[next++]);
+        return next;
+    }
+
+    /**
+     * Score the last schedule with the cutoffs of the parameters
+     * @param parameters
+     * @return NPS counters, invalid waiting times are counted as orders but not in any category
+     */
+    SweepResult score(SchedulerParameters parameters) {
+        int invalid = upperBound(-1);
+        int promoters = upperBound(parameters.getPromotersCutoff());
+        int neutral = upperBound(parameters.getNeutralCutoff());
+        return new SweepResult(parameters, delivered, promoters - invalid, neutral - promoters,
+                delivered - neutral, store.size() - delivered);
+    }
+
+    /**
+     * @return number of waiting times <= value
+     */
+    private int upperBound(long value) {
+        int low = 0;
+        int high = delivered;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(waits[mid] <= value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+}
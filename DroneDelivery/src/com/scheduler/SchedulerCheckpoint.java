@@ -0,0 +1,244 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderTime;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.CRC32;
+
+
+/**
+ * The state of a streaming scheduler between two deliveries, enough to go on
+ * as if the process never stopped:
+ *      |-- finish time of the drone
+ *      |-- total order, promoters, neutral and detractors counters
+ *      |-- waiting orders, in the iteration order of the waiting queue, so the
+ *          queue is rebuilt exactly the same and ties are broken the same way
+ *      |-- orders of the current arrival group, not in the waiting queue yet
+ *      |-- file offset of the next order line, and length of the output file
+ *
+ * Binary format, big endian:
+ *      magic "DDCK", version, finish time, 4 counters, input offset, output offset,
+ *      waiting orders, group orders, CRC32 of everything before.
+ *      Each order is: id length, id, direction length, direction (US-ASCII),
+ *      time (seconds), dated, deadline (seconds, since version 2).
+ * Version 1 checkpoints are still read, their orders have no deadline.
+ *
+ *
+ */
+public class SchedulerCheckpoint {
+
+    private final static int MAGIC = 0x4444434B; // "DDCK"
+    private final static int VERSION = 2;
+
+    private final long finishTime;
+    private final int totalOrder;
+    private final int promoters;
+    private final int neutral;
+    private final int detractors;
+    private final long inputOffset;
+    private final long outputOffset;
+    private final List<DroneOrder> waiting;
+    private final List<DroneOrder> arrivalGroup;
+
+    public SchedulerCheckpoint(long finishTime, int totalOrder, int promoters, int neutral, int detractors,
+                               long inputOffset, long outputOffset,
+                               List<DroneOrder> waiting, List<DroneOrder> arrivalGroup) {
+        this.finishTime = finishTime;
+        this.totalOrder = totalOrder;
+        this.promoters = promoters;
+        this.neutral = neutral;
+        this.detractors = detractors;
+        this.inputOffset = inputOffset;
+        this.outputOffset = outputOffset;
+        this.waiting = waiting;
+        this.arrivalGroup = arrivalGroup;
+    }
+
+    /**
+     * Encode the checkpoint, with its checksum.
+     * The size is computed first, so the orders are copied once into one array.
+     * @return checkpoint bytes
+     */
+    public byte[] toBytes() {
+        long size = 4 + 4 + 8 + 4 * 4 + 8 + 8 + 4 + 4 + 8;
+        for(DroneOrder order : waiting)
+            size += orderSize(order);
+        for(DroneOrder order : arrivalGroup)
+            size += orderSize(order);
+        if(size > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Too many waiting orders for a checkpoint: " + waiting.size());
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(finishTime)
+                .putInt(totalOrder).putInt(promoters).putInt(neutral).putInt(detractors)
+                .putLong(inputOffset).putLong(outputOffset);
+        putOrders(buffer, waiting);
+        putOrders(buffer, arrivalGroup);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * id length, id, direction length, direction, time, dated, deadline
+     */
+    private static int orderSize(DroneOrder order) {
+        return 1 + order.getOrderID().getOrderID().length()
+                + 1 + order.getDirection().getOrderDirection().length() + 8 + 1 + 8;
+    }
+
+    private static void putOrders(ByteBuffer buffer, List<DroneOrder> orders) {
+        buffer.putInt(orders.size());
+        for(DroneOrder order : orders) {
+            putAscii(buffer, order.getOrderID().getOrderID());
+            putAscii(buffer, order.getDirection().getOrderDirection());
+            buffer.putLong(order.geteTime());
+            buffer.put((byte) (order.getOrderTime().isDated() ? 1 : 0));
+            buffer.putLong(order.getDeadline());
+        }
+    }
+
+    /**
+     * IDs and directions are short US-ASCII Strings
+     */
+    private static void putAscii(ByteBuffer buffer, String value) {
+        if(value.length() > 255)
+            throw new IllegalStateException("Field too long for a checkpoint: " + value);
+        buffer.put((byte) value.length());
+        for(int i = 0; i < value.length(); i++)
+            buffer.put((byte) value.charAt(i));
+    }
+
+    /**
+     * Read a checkpoint file
+     * @param path
+     * @return checkpoint
+     * @throws IOException, NoSuchFileException, or if the file is not a whole checkpoint
+     */
+    public static SchedulerCheckpoint read(String path) throws IOException {
+        return fromBytes(Files.readAllBytes(Paths.get(path)));
+    }
+
+    /**
+     * Decode a checkpoint, and check its checksum
+     * @param bytes
+     * @return checkpoint
+     * @throws IOException if the bytes are not a whole checkpoint
+     */
+    public static SchedulerCheckpoint fromBytes(byte[] bytes) throws IOException {
+        if(bytes.length < 8)
+            throw new IOException("Checkpoint is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if(buffer.getLong(bytes.length - 8) != crc.getValue())
+            throw new IOException("Checkpoint is corrupted or truncated");
+        buffer.limit(bytes.length - 8);
+        try {
+            if(buffer.getInt() != MAGIC)
+                throw new IOException("Not a checkpoint file");
+            int version = buffer.getInt();
+            if(version < 1 || version > VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+            long finishTime = buffer.getLong();
+            int totalOrder = buffer.getInt();
+            int promoters = buffer.getInt();
+            int neutral = buffer.getInt();
+            int detractors = buffer.getInt();
+            long inputOffset = buffer.getLong();
+            long outputOffset = buffer.getLong();
+            List<DroneOrder> waiting = getOrders(buffer, version);
+            List<DroneOrder> arrivalGroup = getOrders(buffer, version);
+            return new SchedulerCheckpoint(finishTime, totalOrder, promoters, neutral, detractors,
+                    inputOffset, outputOffset, waiting, arrivalGroup);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Checkpoint is truncated", e);
+        }
+    }
+
+    private static List<DroneOrder> getOrders(ByteBuffer buffer, int version) throws IOException {
+        int size = buffer.getInt();
+        if(size < 0 || size > buffer.remaining())
+            throw new IOException("Checkpoint is corrupted");
+        List<DroneOrder> orders = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            String id = getAscii(buffer);
+            String direction = getAscii(buffer);
+            long time = buffer.getLong();
+            boolean dated = buffer.get() != 0;
+            DroneOrder order = new DroneOrder(new DroneOrderID(id), new DroneOrderDirection(direction),
+                    new DroneOrderTime(time, dated));
+            if(version >= 2)
+                order.setDeadline(buffer.getLong());
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private static String getAscii(ByteBuffer buffer) {
+        char[] value = new char[buffer.get() & 0xFF];
+        for(int i = 0; i < value.length; i++)
+            value[i] = (char) buffer.get();
+        return new String(value);
+    }
+
+    public long getFinishTime() {
+        return finishTime;
+    }
+
+    public int getTotalOrder() {
+        return totalOrder;
+    }
+
+    public int getPromoters() {
+        return promoters;
+    }
+
+    public int getNeutral() {
+        return neutral;
+    }
+
+    public int getDetractors() {
+        return detractors;
+    }
+
+    /**
+     * @return file offset of the first order line not read yet
+     */
+    public long getInputOffset() {
+        return inputOffset;
+    }
+
+    /**
+     * @return length of the output file when the checkpoint was taken
+     */
+    public long getOutputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * @return waiting orders, in the iteration order of the waiting queue
+     */
+    public List<DroneOrder> getWaiting() {
+        return waiting;
+    }
+
+    public List<DroneOrder> getArrivalGroup() {
+        return arrivalGroup;
+    }
+
+    @Override
+    public String toString() {
+        return "finish " + finishTime + ", orders " + totalOrder + ", waiting " + waiting.size()
+                + ", input offset " + inputOffset + ", output offset " + outputOffset;
+    }
+
+}
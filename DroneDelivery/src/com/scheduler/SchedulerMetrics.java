@@ -0,0 +1,324 @@
+package com.scheduler;
+
+import com.tools.DeliveryOutcome;
+import com.tools.LogHistogram;
+import com.tools.OutcomeConsumer;
+import com.tools.TimeConvert;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Scheduler Metrics record what a scheduler did, besides the NPS, in a constant memory:
+ *  1. Waiting time of the customers, from the order to the delivery: a LogHistogram
+ *     gives p50, p90, p99 and max, the tail the NPS average hides.
+ *  2. Waiting queue depth over simulated time: the number of orders still waiting
+ *     when a drone leaves, weighted by the seconds until the next departure.
+ *  3. Busy time(flying) and idle time of the drones, from the first departure to the
+ *     last drone back.
+ *  4. Dispatch decisions per wall-clock second, over windows of one second.
+ * Dropped orders(not delivered) are only counted, with the dispatched ones they are
+ * the orders of the NPS line.
+ *
+ * It is an OutcomeConsumer: the scheduler thread records with accept() and finish(), other
+ * threads read at any time, through the getters or through JMX once register() is called.
+ * With resume(), the metrics cover the orders dispatched since the checkpoint.
+ *
+ *
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean, OutcomeConsumer {
+
+    /**
+     * The clock is read every RATE_SAMPLE decisions only
+     */
+    private final static int RATE_SAMPLE = 64;
+    private final static long SECOND = 1000000000L;
+
+    private final LogHistogram waits = new LogHistogram();
+    private final LogHistogram depths = new LogHistogram();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong busyTime = new AtomicLong();
+    private final AtomicLong firstDeparture = new AtomicLong();
+    private final AtomicLong lastFinish = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final int drones;
+    /**
+     * Last departure and the depth which lasted since, scheduler thread only
+     */
+    private long lastDeparture = Long.MIN_VALUE;
+    private int lastDepth;
+    /**
+     * Current rate window, and the rates of the finished ones
+     */
+    private volatile long windowStart;
+    private volatile long windowDispatched;
+    private volatile double dispatchRate;
+    private volatile double peakDispatchRate;
+    private volatile long started;
+    private volatile long finished;
+    private ObjectName objectName;
+
+    /**
+     * Metrics of a scheduler with one drone
+     */
+    public SchedulerMetrics() {
+        this(1);
+    }
+
+    /**
+     * @param drones number of drones of the scheduler, the idle time is counted for each drone
+     */
+    public SchedulerMetrics(int drones) {
+        this.drones = drones;
+    }
+
+    /**
+     * An order is dispatched, called by the scheduler thread
+     * @param outcome
+     */
+    @Override
+    public void accept(DeliveryOutcome outcome) {
+        if(outcome.isDropped()) {
+            dropped.lazySet(dropped.get() + 1);
+            return;
+        }
+        long timeWait = outcome.getWaitingTime();
+        long departureTime = outcome.getDepartureTime();
+        long flightTime = outcome.getFlightTime();
+        int depth = outcome.getQueueDepth();
+        if(timeWait >= 0)
+            waits.record(timeWait);
+        if(lastDeparture == Long.MIN_VALUE) {
+            firstDeparture.lazySet(departureTime);
+            lastFinish.lazySet(departureTime);
+            started = System.nanoTime();
+            windowStart = started;
+        } else if(departureTime > lastDeparture) {
+            depths.record(lastDepth, departureTime - lastDeparture);
+        }
+        lastDeparture = Math.max(lastDeparture, departureTime);
+        lastDepth = depth;
+        queueDepth.lazySet(depth);
+        busyTime.lazySet(busyTime.get() + flightTime);
+        if(departureTime + flightTime > lastFinish.get())
+            lastFinish.lazySet(departureTime + flightTime);
+
+        long count = dispatched.get() + 1;
+        dispatched.lazySet(count);
+        if(count % RATE_SAMPLE == 0) {
+            long now = System.nanoTime();
+            if(now - windowStart >= SECOND) {
+                dispatchRate = (count - windowDispatched) * (double) SECOND / (now - windowStart);
+                peakDispatchRate = Math.max(peakDispatchRate, dispatchRate);
+                windowDispatched = count;
+                windowStart = now;
+            }
+        }
+    }
+
+    /**
+     * The scheduling is finished, the last depth lasts until the last drone is back
+     */
+    @Override
+    public void finish() {
+        if(lastDeparture == Long.MIN_VALUE)
+            return;
+        if(lastFinish.get() > lastDeparture)
+            depths.record(lastDepth, lastFinish.get() - lastDeparture);
+        lastDeparture = lastFinish.get();
+        lastDepth = 0;
+        queueDepth.set(0);
+        finished = System.nanoTime();
+        // a run shorter than a window
+        if(peakDispatchRate == 0)
+            peakDispatchRate = getMeanDispatchRate();
+    }
+
+    /**
+     * Register as an MBean of the platform MBean server
+     * @param name name key of the ObjectName, such as the scheduler type
+     * @throws JMException if the name is invalid or already registered
+     */
+    public void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.delivery:type=SchedulerMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+    }
+
+    /**
+     * Unregister the MBean, if it is registered
+     */
+    public void unregister() {
+        if(objectName == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if(server.isRegistered(objectName))
+                server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        objectName = null;
+    }
+
+    @Override
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * @return number of orders dropped, not delivered
+     */
+    @Override
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public long getWaitP50() {
+        return waits.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getWaitP90() {
+        return waits.getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getWaitP99() {
+        return waits.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getWaitMax() {
+        return waits.getMax();
+    }
+
+    @Override
+    public double getWaitMean() {
+        return waits.getMean();
+    }
+
+    public LogHistogram getWaits() {
+        return waits;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Override
+    public long getQueueDepthP99() {
+        return depths.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getQueueDepthMax() {
+        return depths.getMax();
+    }
+
+    @Override
+    public double getQueueDepthMean() {
+        return depths.getMean();
+    }
+
+    /**
+     * @return queue depths, each second of simulated time counts once
+     */
+    public LogHistogram getQueueDepths() {
+        return depths;
+    }
+
+    @Override
+    public long getBusyTime() {
+        return busyTime.get();
+    }
+
+    @Override
+    public long getIdleTime() {
+        return Math.max(0, getSpan() * drones - busyTime.get());
+    }
+
+    /**
+     * @return time from the first departure to the last drone back, in seconds
+     */
+    public long getSpan() {
+        return lastFinish.get() - firstDeparture.get();
+    }
+
+    @Override
+    public double getUtilization() {
+        long span = getSpan() * drones;
+        if(span == 0)
+            return 0;
+        return busyTime.get() / (double) span;
+    }
+
+    /**
+     * When no decision came for a while, such as a live server without orders,
+     * the rate is the one since the last window.
+     * @return decisions per second in the last window
+     */
+    @Override
+    public double getDispatchRate() {
+        long start = windowStart;
+        long elapsed = System.nanoTime() - start;
+        if(start != 0 && elapsed >= 2 * SECOND)
+            return (dispatched.get() - windowDispatched) * (double) SECOND / elapsed;
+        return dispatchRate;
+    }
+
+    @Override
+    public double getPeakDispatchRate() {
+        return peakDispatchRate;
+    }
+
+    /**
+     * @return decisions per second from the first decision to the end, or to now
+     */
+    public double getMeanDispatchRate() {
+        if(started == 0)
+            return 0;
+        long end = finished != 0 ? finished : System.nanoTime();
+        if(end == started)
+            return 0;
+        return dispatched.get() * (double) SECOND / (end - started);
+    }
+
+    /**
+     * Summary, one line per metric:
+     * eg: orders 3304, dropped 214
+     *     wait p50 00:12:00, p90 01:05:00, p99 02:40:00, max 03:10:00, mean 00:25:12
+     * @return formatted summary
+     */
+    public List<String> getSummary() {
+        List<String> summary = new ArrayList<String>();
+        summary.add("orders " + (getDispatched() + getDropped()) + ", dropped " + getDropped());
+        summary.add("wait p50 " + TimeConvert.longToStr(getWaitP50())
+                + ", p90 " + TimeConvert.longToStr(getWaitP90())
+                + ", p99 " + TimeConvert.longToStr(getWaitP99())
+                + ", max " + TimeConvert.longToStr(getWaitMax())
+                + ", mean " + TimeConvert.longToStr(Math.round(getWaitMean())));
+        summary.add("queue depth p50 " + depths.getValueAtPercentile(50)
+                + ", p90 " + depths.getValueAtPercentile(90)
+                + ", p99 " + getQueueDepthP99()
+                + ", max " + getQueueDepthMax()
+                + String.format(", mean %.2f", getQueueDepthMean()));
+        summary.add("drones " + drones
+                + ", busy " + TimeConvert.longToStr(getBusyTime())
+                + ", idle " + TimeConvert.longToStr(getIdleTime())
+                + String.format(", utilization %.2f%%", getUtilization() * 100));
+        summary.add(String.format("dispatch rate mean %.0f/s, peak %.0f/s", getMeanDispatchRate(), getPeakDispatchRate()));
+        return summary;
+    }
+
+}
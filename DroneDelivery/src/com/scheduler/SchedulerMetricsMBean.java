@@ -0,0 +1,45 @@
+package com.scheduler;
+
+
+/**
+ * JMX view of the SchedulerMetrics of a running scheduler, eg: in jconsole
+ * under com.delivery:type=SchedulerMetrics.
+ * Times are in seconds of simulated time, rates in decisions per wall-clock second.
+ *
+ *
+ */
+public interface SchedulerMetricsMBean {
+
+    long getDispatched();
+
+    long getDropped();
+
+    long getWaitP50();
+
+    long getWaitP90();
+
+    long getWaitP99();
+
+    long getWaitMax();
+
+    double getWaitMean();
+
+    int getQueueDepth();
+
+    long getQueueDepthP99();
+
+    long getQueueDepthMax();
+
+    double getQueueDepthMean();
+
+    long getBusyTime();
+
+    long getIdleTime();
+
+    double getUtilization();
+
+    double getDispatchRate();
+
+    double getPeakDispatchRate();
+
+}
@@ -0,0 +1,108 @@
+package com.scheduler;
+
+import com.tools.NPSCalculator;
+import com.tools.TimeConvert;
+
+
+/**
+ * The tunables of the schedulers, as one immutable configuration:
+ *      |-- working window      : the drone only delivers orders which come and come back
+ *                                within [windowStart, windowEnd], as InputStreamLimitedTimeScheduler
+ *      |-- promoters cutoff    : waiting time <= cutoff is a promoter, as NPSCalculator.PROMOTERS
+ *      |-- neutral cutoff      : waiting time <= cutoff is neutral, as NPSCalculator.NEUTRAL
+ *      |-- detractor cutoff    : orders whose one way delivery time is longer are delivered last,
+ *                                as InputWithWaitScheduler.setDetractorCutoff
+ *      |-- seconds per unit    : flight time of one distance unit, one way
+ * All the times are in seconds.
+ *
+ *
+ */
+public class SchedulerParameters {
+
+    /**
+     * Window end of a drone which works all the time
+     */
+    public final static long NO_WINDOW = Long.MAX_VALUE;
+    /**
+     * Detractor cutoff of a scheduler which never moves orders to the end
+     */
+    public final static long NO_DETRACTOR_CUTOFF = Long.MAX_VALUE;
+
+    private final long windowStart;
+    private final long windowEnd;
+    private final long promotersCutoff;
+    private final long neutralCutoff;
+    private final long detractorCutoff;
+    private final long secondsPerUnit;
+
+    /**
+     * @param windowStart start of the working window, 0 without window
+     * @param windowEnd end of the working window, NO_WINDOW without window
+     * @param promotersCutoff longest waiting time of a promoter
+     * @param neutralCutoff longest waiting time of a neutral
+     * @param detractorCutoff longest one way delivery time not delivered last, NO_DETRACTOR_CUTOFF to never wait
+     * @param secondsPerUnit flight time of one distance unit, one way
+     */
+    public SchedulerParameters(long windowStart, long windowEnd, long promotersCutoff, long neutralCutoff,
+                               long detractorCutoff, long secondsPerUnit) {
+        if(windowStart < 0 || windowStart > windowEnd)
+            throw new IllegalArgumentException("Working time not permitted");
+        if(promotersCutoff < 0 || promotersCutoff > neutralCutoff)
+            throw new IllegalArgumentException("Promoters cutoff must be between 0 and the neutral cutoff");
+        if(secondsPerUnit <= 0)
+            throw new IllegalArgumentException("Seconds per unit must be positive");
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.promotersCutoff = promotersCutoff;
+        this.neutralCutoff = neutralCutoff;
+        this.detractorCutoff = detractorCutoff;
+        this.secondsPerUnit = secondsPerUnit;
+    }
+
+    /**
+     * @return the parameters hard-coded in the dynamic scheduler
+     */
+    public static SchedulerParameters defaults() {
+        return new SchedulerParameters(0, NO_WINDOW, NPSCalculator.PROMOTERS, NPSCalculator.NEUTRAL,
+                NO_DETRACTOR_CUTOFF, 60);
+    }
+
+    public long getWindowStart() {
+        return windowStart;
+    }
+
+    public long getWindowEnd() {
+        return windowEnd;
+    }
+
+    public long getPromotersCutoff() {
+        return promotersCutoff;
+    }
+
+    public long getNeutralCutoff() {
+        return neutralCutoff;
+    }
+
+    public long getDetractorCutoff() {
+        return detractorCutoff;
+    }
+
+    public long getSecondsPerUnit() {
+        return secondsPerUnit;
+    }
+
+    /**
+     * eg: window 06:00:00-22:00:00, promoters 01:00:00, neutral 03:00:00, detractor off, unit 60s
+     * @return formatted parameters
+     */
+    @Override
+    public String toString() {
+        return "window " + (windowStart == 0 && windowEnd == NO_WINDOW ? "none"
+                        : TimeConvert.longToStr(windowStart) + "-" + (windowEnd == NO_WINDOW ? "none" : TimeConvert.longToStr(windowEnd)))
+                + ", promoters " + TimeConvert.longToStr(promotersCutoff)
+                + ", neutral " + TimeConvert.longToStr(neutralCutoff)
+                + ", detractor " + (detractorCutoff == NO_DETRACTOR_CUTOFF ? "off" : TimeConvert.longToStr(detractorCutoff))
+                + ", unit " + secondsPerUnit + "s";
+    }
+
+}
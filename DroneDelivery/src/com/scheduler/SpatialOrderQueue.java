@@ -0,0 +1,159 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+
+import java.util.*;
+
+
+/**
+ * Spatial Order Queue is a waiting queue which also knows where the waiting orders are:
+ *      |-- poll() and peek() are those of the queue it wraps(the PriorityQueue of
+ *          InputStreamScheduler, or a DistanceBucketQueue), shortest order first
+ *      |-- every waiting order is also in an OrderGrid, for the nearest(), within()
+ *          and inCell() queries
+ *      |-- remove(order) takes any waiting order out: out of the grid at once, and out of
+ *          the wrapped queue when it comes to its head, so the wrapped queue keeps its
+ *          own order and ties
+ *
+ * Iterating goes through the wrapped queue, skipping the removed orders.
+ *
+ *
+ */
+public class SpatialOrderQueue extends AbstractQueue<DroneOrder> {
+
+    private final Queue<DroneOrder> queue;
+    private final OrderGrid grid;
+    /**
+     * Orders removed from the grid, still in the wrapped queue
+     */
+    private final Set<DroneOrder> removed = Collections.newSetFromMap(new IdentityHashMap<DroneOrder, Boolean>());
+
+    /**
+     * @param queue empty waiting queue, poll() gives the shortest waiting order
+     */
+    public SpatialOrderQueue(Queue<DroneOrder> queue) {
+        this(queue, new OrderGrid());
+    }
+
+    /**
+     * @param queue empty waiting queue, poll() gives the shortest waiting order
+     * @param grid empty grid
+     */
+    public SpatialOrderQueue(Queue<DroneOrder> queue, OrderGrid grid) {
+        this.queue = queue;
+        this.grid = grid;
+    }
+
+    @Override
+    public boolean offer(DroneOrder order) {
+        queue.offer(order);
+        grid.add(order);
+        return true;
+    }
+
+    @Override
+    public DroneOrder poll() {
+        while(true) {
+            DroneOrder order = queue.poll();
+            if(order == null || !removed.remove(order)) {
+                if(order != null)
+                    grid.remove(order);
+                return order;
+            }
+        }
+    }
+
+    @Override
+    public DroneOrder peek() {
+        while(true) {
+            DroneOrder order = queue.peek();
+            if(order == null || !removed.contains(order))
+                return order;
+            removed.remove(queue.poll());
+        }
+    }
+
+    /**
+     * Take a waiting order out of the queue, wherever it is
+     * @param o
+     * @return whether the order was waiting
+     */
+    @Override
+    public boolean remove(Object o) {
+        if(!(o instanceof DroneOrder) || !grid.remove((DroneOrder) o))
+            return false;
+        removed.add((DroneOrder) o);
+        return true;
+    }
+
+    /**
+     * The k waiting orders closest to a point, closest first
+     * @see OrderGrid#nearest(int, int, int, DroneOrder[])
+     */
+    public int nearest(int x, int y, int k, DroneOrder[] out) {
+        return grid.nearest(x, y, k, out);
+    }
+
+    /**
+     * All the waiting orders within a distance of a point
+     * @see OrderGrid#within(int, int, long, Collection)
+     */
+    public int within(int x, int y, long radius, Collection<? super DroneOrder> out) {
+        return grid.within(x, y, radius, out);
+    }
+
+    /**
+     * All the waiting orders of the grid cell a point falls in
+     * @see OrderGrid#inCell(int, int, Collection)
+     */
+    public int inCell(int x, int y, Collection<? super DroneOrder> out) {
+        return grid.inCell(x, y, out);
+    }
+
+    @Override
+    public int size() {
+        return grid.size();
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+        grid.clear();
+        removed.clear();
+    }
+
+    /**
+     * @return waiting orders, in the order of the wrapped queue
+     */
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        Iterator<DroneOrder> orders = queue.iterator();
+        return new Iterator<DroneOrder>() {
+            private DroneOrder next;
+
+            @Override
+            public boolean hasNext() {
+                while(next == null && orders.hasNext()) {
+                    DroneOrder order = orders.next();
+                    if(!removed.contains(order))
+                        next = order;
+                }
+                return next != null;
+            }
+
+            @Override
+            public DroneOrder next() {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                DroneOrder order = next;
+                next = null;
+                return order;
+            }
+        };
+    }
+
+    public OrderGrid getGrid() {
+        return grid;
+    }
+
+}
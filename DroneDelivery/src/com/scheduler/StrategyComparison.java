@@ -0,0 +1,144 @@
+package com.scheduler;
+
+import com.delivery.DroneOrder;
+import com.delivery.interfaces.OrderStore;
+import com.delivery.OrderStoreCursor;
+import com.tools.DiscardDispatchSink;
+import com.tools.NPSCalculator;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+
+/**
+ * Run several scheduler strategies over one parsed trace, in parallel.
+ * The trace is parsed once into an OrderStore, which is never modified:
+ * each strategy polls its own OrderStoreCursor, so the runs don't share
+ * any mutable state. The dispatch decisions are discarded, only the NPS
+ * counters are kept, and they are printed side by side.
+ *
+ * The four strategies of Test (dynamic, unfair, limited, unfair_limited)
+ * are registered by default, more can be added with register().
+ * Every strategy classifies its waiting times with the same calculator.
+ *
+ *
+ */
+public class StrategyComparison {
+
+    /**
+     * Strategy name --> creates a scheduler for a tasks queue, in registration order
+     */
+    private Map<String, Function<Queue<DroneOrder>, InputStreamScheduler>> strategies;
+    /**
+     * Finished schedulers, by strategy name
+     */
+    private Map<String, InputStreamScheduler> results;
+    private NPSCalculator calculator = NPSCalculator.DEFAULT;
+    /**
+     * Number of orders in the compared trace
+     */
+    private int orderCount;
+
+    public StrategyComparison() {
+        strategies = new LinkedHashMap<>();
+        results = new LinkedHashMap<>();
+        register("dynamic", tasks -> new InputStreamScheduler(tasks));
+        register("unfair", tasks -> new InputWithWaitScheduler(tasks));
+        register("limited", tasks -> new InputStreamLimitedTimeScheduler(tasks, 6*60*60, 22*60*60));
+        register("unfair_limited", tasks -> new InputStreamLimitedTimeWithWaitScheduler(tasks, 6*60*60, 22*60*60));
+    }
+
+    /**
+     * Register a strategy, an existing strategy with the same name is replaced
+     * @param name
+     * @param factory creates a scheduler for a tasks queue
+     */
+    public void register(String name, Function<Queue<DroneOrder>, InputStreamScheduler> factory) {
+        strategies.put(name, factory);
+    }
+
+    public Set<String> getStrategies() {
+        return strategies.keySet();
+    }
+
+    /**
+     * Run every registered strategy over the orders, at most one per core at the same time
+     * @param orders orders in time sequence
+     * @throws InterruptedException
+     */
+    public void run(OrderStore orders) throws InterruptedException {
+        orderCount = orders.size();
+        results.clear();
+        Map<String, Future<InputStreamScheduler>> futures = new LinkedHashMap<>();
+        int threads = Math.min(strategies.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(threads, 1));
+        try {
+            for(Map.Entry<String, Function<Queue<DroneOrder>, InputStreamScheduler>> entry : strategies.entrySet()) {
+                final Function<Queue<DroneOrder>, InputStreamScheduler> factory = entry.getValue();
+                futures.put(entry.getKey(), pool.submit(() -> {
+                    InputStreamScheduler scheduler = factory.apply(new OrderStoreCursor(orders, 0, orders.size()));
+                    scheduler.setCalculator(calculator);
+                    scheduler.setDispatchSink(new DiscardDispatchSink());
+                    scheduler.start();
+                    return scheduler;
+                }));
+            }
+            for(Map.Entry<String, Future<InputStreamScheduler>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Strategy " + entry.getKey() + " failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public NPSCalculator getCalculator() {
+        return calculator;
+    }
+
+    public void setCalculator(NPSCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    /**
+     * @param name strategy name
+     * @return the finished scheduler of the strategy, null if it didn't run
+     */
+    public InputStreamScheduler getResult(String name) {
+        return results.get(name);
+    }
+
+    /**
+     * Orders which were neither delivered nor counted, eg: out of the working time
+     * @param name strategy name
+     * @return number of dropped orders
+     */
+    public int getDropped(String name) {
+        return orderCount - results.get(name).getTotalOrder();
+    }
+
+    /**
+     * Side by side table, one line per strategy:
+     *      scheduler             NPS  promoters    neutral detractors    dropped
+     *      dynamic             62.50          5          1          2          0
+     * @return table lines
+     */
+    public List<String> getTable() {
+        List<String> table = new ArrayList<>();
+        table.add(String.format("%-16s %10s %10s %10s %10s %10s",
+                "scheduler", "NPS", "promoters", "neutral", "detractors", "dropped"));
+        for(Map.Entry<String, InputStreamScheduler> entry : results.entrySet()) {
+            InputStreamScheduler scheduler = entry.getValue();
+            double nps = ((scheduler.getPromoters() - scheduler.getDetractors())/(double)scheduler.getTotalOrder())*100;
+            table.add(String.format("%-16s %10.2f %10d %10d %10d %10d",
+                    entry.getKey(), nps, scheduler.getPromoters(), scheduler.getNeutral(),
+                    scheduler.getDetractors(), getDropped(entry.getKey())));
+        }
+        return table;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.scheduler;
+
+
+/**
+ * NPS counters of one configuration of a ParameterSweep
+ *
+ *
+ */
+public class SweepResult {
+
+    private final SchedulerParameters parameters;
+    private final int totalOrder;
+    private final int promoters;
+    private final int neutral;
+    private final int detractors;
+    private final int dropped;
+
+    public SweepResult(SchedulerParameters parameters, int totalOrder, int promoters, int neutral,
+                       int detractors, int dropped) {
+        this.parameters = parameters;
+        this.totalOrder = totalOrder;
+        this.promoters = promoters;
+        this.neutral = neutral;
+        this.detractors = detractors;
+        this.dropped = dropped;
+    }
+
+    public SchedulerParameters getParameters() {
+        return parameters;
+    }
+
+    public int getTotalOrder() {
+        return totalOrder;
+    }
+
+    public int getPromoters() {
+        return promoters;
+    }
+
+    public int getNeutral() {
+        return neutral;
+    }
+
+    public int getDetractors() {
+        return detractors;
+    }
+
+    /**
+     * @return orders out of the working window, or which could not come back in time
+     */
+    public int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return NPS of the delivered orders, 0 if nothing was delivered
+     */
+    public double getNPS() {
+        if(totalOrder == 0)
+            return 0;
+        return ((promoters - detractors)/(double)totalOrder)*100;
+    }
+
+    /**
+     * eg: NPS 62.50, delivered 8, dropped 0, window none, promoters 01:00:00, ...
+     * @return formatted result
+     */
+    @Override
+    public String toString() {
+        return String.format("NPS %.2f, delivered %d, dropped %d, ", getNPS(), totalOrder, dropped) + parameters;
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.test;
+
+import com.delivery.DroneOrder;
+import com.scheduler.ConcurrentScheduler;
+import com.tools.DiscardDispatchSink;
+import com.tools.MpscOrderQueue;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+/**
+ * Contention benchmark for the concurrent scheduler.
+ * For each number of producer threads, the same seeded trace is split
+ * between the producers (producer k submits orders k, k + p, k + 2p, ...), and:
+ *      |-- mpsc ingest   : orders/s through MpscOrderQueue, one consumer draining
+ *      |-- locked ingest : orders/s through a LinkedBlockingQueue, for reference
+ *      |-- scheduler     : orders/s submitted to ConcurrentScheduler and dispatched,
+ *                          from the first submit to the last dispatch
+ * The best of the iterations is reported.
+ *
+ * Usage:
+ *      java com.test.ConcurrentSchedulerBenchmark [-producers 1,2,4,8,16,32,64]
+ *          [-orders 1000000] [-seed 42] [-iterations 3]
+ *
+ */
+public class ConcurrentSchedulerBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] producers = {1, 2, 4, 8, 16, 32, 64};
+        int orders = 1000000;
+        long seed = 42;
+        int iterations = 3;
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            if("-producers".equals(args[i])) {
+                String[] temp = args[i + 1].split(",");
+                producers = new int[temp.length];
+                for(int j = 0; j < temp.length; j++)
+                    producers[j] = Integer.parseInt(temp[j]);
+            } else if("-orders".equals(args[i])) {
+                orders = Integer.parseInt(args[i + 1]);
+            } else if("-seed".equals(args[i])) {
+                seed = Long.parseLong(args[i + 1]);
+            } else if("-iterations".equals(args[i])) {
+                iterations = Integer.parseInt(args[i + 1]);
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        DroneOrder[] trace = SchedulerBenchmark.generateTrace(orders, seed);
+        System.out.println(String.format("%-10s %16s %16s %16s %10s",
+                "producers", "mpsc ingest/s", "locked ingest/s", "scheduler/s", "NPS"));
+        for(int p : producers) {
+            long mpsc = Long.MAX_VALUE;
+            long locked = Long.MAX_VALUE;
+            long scheduler = Long.MAX_VALUE;
+            double nps = 0;
+            // the first iteration warms up the code paths as well
+            for(int i = 0; i < iterations; i++) {
+                mpsc = Math.min(mpsc, ingest(trace, p, false));
+                locked = Math.min(locked, ingest(trace, p, true));
+                ConcurrentScheduler result = new ConcurrentScheduler();
+                scheduler = Math.min(scheduler, schedule(trace, p, result));
+                nps = result.getNPS();
+            }
+            System.out.println(String.format("%-10d %16.0f %16.0f %16.0f %10.2f",
+                    p, perSecond(orders, mpsc), perSecond(orders, locked), perSecond(orders, scheduler), nps));
+        }
+    }
+
+    /**
+     * Push the trace through a queue, p producers and one consumer
+     * @return elapsed ns, from the start of the producers to the last order consumed
+     */
+    private static long ingest(DroneOrder[] trace, int p, boolean lockBased) throws InterruptedException {
+        Queue<DroneOrder> queue = lockBased ? new LinkedBlockingQueue<>() : new MpscOrderQueue();
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] threads = startProducers(trace, p, ready, queue::offer);
+        long begin = System.nanoTime();
+        ready.countDown();
+        if(lockBased) {
+            LinkedBlockingQueue<DroneOrder> blocking = (LinkedBlockingQueue<DroneOrder>) queue;
+            for(int i = 0; i < trace.length; i++)
+                blocking.take();
+        } else {
+            for(int i = 0; i < trace.length; i++)
+                queue.poll();
+        }
+        long elapsed = System.nanoTime() - begin;
+        for(Thread thread : threads)
+            thread.join();
+        return elapsed;
+    }
+
+    /**
+     * Submit the trace to a concurrent scheduler from p producers
+     * @return elapsed ns, from the start of the producers to the last dispatch
+     */
+    private static long schedule(DroneOrder[] trace, int p, ConcurrentScheduler scheduler) throws InterruptedException {
+        scheduler.setDispatchSink(new DiscardDispatchSink());
+        scheduler.startDispatcher();
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread[] threads = startProducers(trace, p, ready, scheduler::submit);
+        long begin = System.nanoTime();
+        ready.countDown();
+        for(Thread thread : threads)
+            thread.join();
+        scheduler.shutdown();
+        scheduler.awaitTermination();
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * Start p producers, waiting for the latch, producer k submits orders k, k + p, ...
+     */
+    private static Thread[] startProducers(DroneOrder[] trace, int p, CountDownLatch ready,
+                                           java.util.function.Predicate<DroneOrder> submit) {
+        Thread[] threads = new Thread[p];
+        for(int k = 0; k < p; k++) {
+            final int first = k;
+            threads[k] = new Thread(() -> {
+                try {
+                    ready.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for(int i = first; i < trace.length; i += p)
+                    submit.test(trace[i]);
+            }, "producer-" + k);
+            threads[k].start();
+        }
+        return threads;
+    }
+
+    private static double perSecond(int orders, long ns) {
+        return orders / (ns / 1e9);
+    }
+
+    /**
+     * Print Usage messages in command line
+     */
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.ConcurrentSchedulerBenchmark [-producers 1,2,4,8,16,32,64]\n" +
+                "                                               [-orders 1000000] [-seed 42] [-iterations 3]");
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.test;
+
+import com.tools.TraceConverter;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+
+/**
+ * Convert an order trace between the text format and the binary format.
+ * A binary trace is replayed from a memory mapping, without parsing,
+ * by every command which takes an -input.
+ *
+ * Usage:
+ *      java com.test.ConvertTrace -input path -output path [-to binary|text]
+ *
+ */
+public class ConvertTrace {
+
+    public static void main(String[] args) {
+        String inputFilePath = null;
+        String outputFilePath = null;
+        String to = "binary";
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            if("-input".equals(args[i])) {
+                inputFilePath = args[i + 1];
+            } else if("-output".equals(args[i])) {
+                outputFilePath = args[i + 1];
+            } else if("-to".equals(args[i]) && ("binary".equals(args[i + 1]) || "text".equals(args[i + 1]))) {
+                to = args[i + 1];
+            } else {
+                printUsage();
+                return;
+            }
+        }
+        if(inputFilePath == null || outputFilePath == null) {
+            printUsage();
+            return;
+        }
+
+        long begin = System.nanoTime();
+        long orders;
+        try {
+            if("binary".equals(to))
+                orders = TraceConverter.textToBinary(inputFilePath, outputFilePath);
+            else
+                orders = TraceConverter.binaryToText(inputFilePath, outputFilePath);
+        } catch (NoSuchFileException e) {
+            System.out.println("Error: Input file not found!");
+            return;
+        } catch (IOException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        System.out.println(String.format("%d orders written to %s in %.1f s",
+                orders, outputFilePath, (System.nanoTime() - begin) / 1e9));
+    }
+
+    /**
+     * Print Usage messages in command line
+     */
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.ConvertTrace -input path -output path [-to binary|text]\n" +
+                "    -to: binary, text orders to a binary trace (default)\n" +
+                "         text  , binary trace to text orders");
+    }
+
+}
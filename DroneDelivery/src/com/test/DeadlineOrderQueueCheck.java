@@ -0,0 +1,161 @@
+package com.test;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderTime;
+import com.scheduler.DeadlineOrderQueue;
+import com.scheduler.IndexedHeap;
+
+import java.util.*;
+
+
+/**
+ * Behavior checks of the waiting queue of the DeadlineScheduler:
+ *      |-- IndexedHeap: remove and update at arbitrary places of the heap, against
+ *          a plain sorted list, on seeded random operations
+ *      |-- DeadlineOrderQueue: an expired perishable order given a new deadline is urgent
+ *          again, or an ordinary order without deadline
+ * Prints one line per check, and exits with 1 if one of them fails.
+ *
+ * Usage:
+ *      java com.test.DeadlineOrderQueueCheck [-seed 42]
+ *
+ */
+public class DeadlineOrderQueueCheck {
+
+    private static int failed;
+
+    public static void main(String[] args) {
+        long seed = 42;
+        if(args.length == 2 && "-seed".equals(args[0])) {
+            seed = Long.parseLong(args[1]);
+        } else if(args.length != 0) {
+            System.out.println("Usage: \n    java com.test.DeadlineOrderQueueCheck [-seed 42]");
+            return;
+        }
+        checkHeap(new Random(seed));
+        checkReprioritizeExpired();
+        checkNoDeadline();
+        System.out.println(failed == 0 ? "all checks passed" : failed + " checks failed");
+        if(failed > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Random removes and updates of slots taken anywhere in the heap, with many equal keys.
+     * After each operation the smallest slot must be the reference's, and the heap
+     * must poll in (key, tie) order at the end
+     */
+    private static void checkHeap(Random random) {
+        boolean peekOk = true;
+        boolean pollOk = true;
+        boolean removeOk = true;
+        for(int round = 0; round < 500; round++) {
+            IndexedHeap heap = new IndexedHeap(4);
+            int n = 1 + random.nextInt(60);
+            long[] keys = new long[n];
+            boolean[] present = new boolean[n];
+            for(int slot = 0; slot < n; slot++) {
+                keys[slot] = random.nextInt(10);
+                present[slot] = true;
+                // the slot is its own tie
+                heap.insert(slot, keys[slot], slot);
+            }
+            for(int op = 0; op < 40 && !heap.isEmpty(); op++) {
+                int slot = heap.get(random.nextInt(heap.size()));
+                if(random.nextBoolean()) {
+                    present[slot] = false;
+                    removeOk &= heap.remove(slot) && !heap.contains(slot) && !heap.remove(slot);
+                } else {
+                    keys[slot] = random.nextInt(10);
+                    heap.update(slot, keys[slot]);
+                }
+                List<Integer> rest = expected(keys, present);
+                peekOk &= heap.peek() == (rest.isEmpty() ? -1 : rest.get(0));
+            }
+            List<Integer> polled = new ArrayList<>();
+            for(int slot = heap.poll(); slot >= 0; slot = heap.poll())
+                polled.add(slot);
+            pollOk &= polled.equals(expected(keys, present));
+        }
+        check("heap remove at any place", removeOk);
+        check("heap smallest after remove/update", peekOk);
+        check("heap poll order after remove/update", pollOk);
+    }
+
+    /**
+     * @return slots in the heap, by key then by tie(the slot)
+     */
+    private static List<Integer> expected(long[] keys, boolean[] present) {
+        List<Integer> slots = new ArrayList<>();
+        for(int slot = 0; slot < keys.length; slot++)
+            if(present[slot])
+                slots.add(slot);
+        slots.sort((a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(a, b));
+        return slots;
+    }
+
+    /**
+     * A perishable order expires, gets a later deadline, and is urgent again:
+     * it is taken before a shorter order once that one would make it late
+     */
+    private static void checkReprioritizeExpired() {
+        DeadlineOrderQueue queue = new DeadlineOrderQueue();
+        // latest departure 01:00:00 - 10 * 60 = 00:50:00
+        DroneOrder perishable = order(1, 10, 3600);
+        DroneOrder ordinary = order(2, 1, DroneOrder.NO_DEADLINE);
+        queue.offer(perishable);
+        queue.offer(ordinary);
+
+        check("expired at 00:50:01", queue.expire(3001) == perishable && queue.urgentSize() == 0);
+        check("expired still waiting", queue.contains(perishable) && queue.size() == 2);
+        check("deadline before the order time refused", !queue.reprioritize(perishable, -1));
+        check("ordinary order not reprioritized", !queue.reprioritize(ordinary, 7200));
+
+        // latest departure 02:00:00 - 10 * 60 = 01:50:00
+        check("expired reprioritized", queue.reprioritize(perishable, 7200));
+        check("urgent again", queue.urgentSize() == 1 && queue.peekUrgent() == perishable);
+        check("not expired with its new deadline", queue.expire(3001) == null);
+        // the ordinary order's round trip(120s) from 01:49:00 ends after 01:50:00
+        check("taken before the shorter order", queue.poll(6540) == perishable);
+        check("left the queue", !queue.contains(perishable) && queue.size() == 1 && queue.urgentSize() == 0);
+        check("shorter order next", queue.poll(6540) == ordinary && queue.isEmpty());
+    }
+
+    /**
+     * An expired perishable order given no deadline is an ordinary order:
+     * no longer urgent, no longer found by contains, still polled by distance
+     */
+    private static void checkNoDeadline() {
+        DeadlineOrderQueue queue = new DeadlineOrderQueue();
+        DroneOrder perishable = order(1, 5, 600);
+        DroneOrder longer = order(2, 8, DroneOrder.NO_DEADLINE);
+        queue.offer(longer);
+        queue.offer(perishable);
+        check("expired at 00:05:01", queue.expire(301) == perishable);
+        check("no deadline", queue.reprioritize(perishable, DroneOrder.NO_DEADLINE) && !perishable.hasDeadline());
+        check("ordinary now", !queue.contains(perishable) && queue.urgentSize() == 0 && queue.size() == 2);
+        check("polled by distance", queue.poll(0) == perishable && queue.poll(0) == longer);
+    }
+
+    /**
+     * @param eID
+     * @param distance north of the warehouse
+     * @param deadline in seconds, DroneOrder.NO_DEADLINE if it can wait
+     * @return order at time 0
+     */
+    private static DroneOrder order(int eID, int distance, long deadline) {
+        DroneOrder order = new DroneOrder(new DroneOrderID(String.format("WM%04d", eID)),
+                new DroneOrderDirection("N" + distance + "E0"), new DroneOrderTime(0));
+        order.setDeadline(deadline);
+        return order;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "ok     " : "FAILED ") + name);
+        if(!ok)
+            failed++;
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.test;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderTime;
+import com.scheduler.DistanceBucketQueue;
+
+import java.util.*;
+
+
+/**
+ * Behavior checks of DistanceBucketQueue, the order its orders are polled in:
+ *      |-- ties: orders of the same distance come out in arrival order
+ *      |-- overflow: orders beyond the buckets come out in the same order as in the buckets
+ *      |-- offerFirst: the orders of a lookahead window put back keep their place
+ * Prints one line per check, and exits with 1 if one of them fails.
+ *
+ * Usage:
+ *      java com.test.DistanceBucketQueueCheck
+ *
+ */
+public class DistanceBucketQueueCheck {
+
+    private static int failed;
+
+    public static void main(String[] args) {
+        checkTies();
+        checkOverflow();
+        checkOfferFirst();
+        System.out.println(failed == 0 ? "all checks passed" : failed + " checks failed");
+        if(failed > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Shortest first, arrival order on the same distance
+     */
+    private static void checkTies() {
+        DistanceBucketQueue queue = new DistanceBucketQueue();
+        queue.addAll(Arrays.asList(order(1, 3), order(2, 1), order(3, 3), order(4, 1), order(5, 2)));
+        check("ties in arrival order", drain(queue), 2, 4, 5, 1, 3);
+    }
+
+    /**
+     * With 64 buckets, distances from 64 go to the overflow, after the buckets
+     * and with the same tie order
+     */
+    private static void checkOverflow() {
+        DistanceBucketQueue queue = new DistanceBucketQueue(64);
+        queue.addAll(Arrays.asList(order(1, 100), order(2, 70), order(3, 100), order(4, 5), order(5, 70), order(6, 63)));
+        check("overflow size", queue.getOverflowSize() == 4);
+        List<Integer> iterated = new ArrayList<>();
+        for(DroneOrder temp : queue)
+            iterated.add(temp.geteID());
+        check("overflow iterated as polled", iterated, 4, 6, 2, 5, 1, 3);
+        check("overflow polled after the buckets", drain(queue), 4, 6, 2, 5, 1, 3);
+        check("overflow empty", queue.getOverflowSize() == 0 && queue.isEmpty());
+    }
+
+    /**
+     * A lookahead window polls the shortest orders, delivers one of them and
+     * puts the others back in the reverse order: they come out before the
+     * orders of the same distance which arrived later
+     */
+    private static void checkOfferFirst() {
+        DistanceBucketQueue queue = new DistanceBucketQueue();
+        queue.addAll(Arrays.asList(order(1, 2), order(2, 2), order(3, 2), order(4, 1)));
+        DroneOrder[] window = {queue.poll(), queue.poll(), queue.poll()};
+        // order 1 is delivered, 4 and 2 go back
+        queue.offerFirst(window[2]);
+        queue.offerFirst(window[0]);
+        check("offerFirst keeps the place", drain(queue), 4, 2, 3);
+
+        queue = new DistanceBucketQueue(64);
+        queue.addAll(Arrays.asList(order(1, 100), order(2, 100), order(3, 10)));
+        window = new DroneOrder[] {queue.poll(), queue.poll()};
+        // order 3 is delivered, 1 goes back before 2
+        queue.offerFirst(window[1]);
+        check("offerFirst in the overflow", drain(queue), 1, 2);
+    }
+
+    /**
+     * @param eID
+     * @param distance north of the warehouse
+     * @return order at time 0
+     */
+    private static DroneOrder order(int eID, int distance) {
+        return new DroneOrder(new DroneOrderID(String.format("WM%04d", eID)),
+                new DroneOrderDirection("N" + distance + "E0"), new DroneOrderTime(0));
+    }
+
+    /**
+     * @return eIDs of the orders, in poll order
+     */
+    private static List<Integer> drain(Queue<DroneOrder> queue) {
+        List<Integer> polled = new ArrayList<>();
+        for(DroneOrder temp = queue.poll(); temp != null; temp = queue.poll())
+            polled.add(temp.geteID());
+        return polled;
+    }
+
+    private static void check(String name, List<Integer> actual, Integer... expected) {
+        if(actual.equals(Arrays.asList(expected))) {
+            check(name, true);
+        } else {
+            check(name, false);
+            System.out.println("    expected " + Arrays.asList(expected) + ", got " + actual);
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.println((ok ? "ok     " : "FAILED ") + name);
+        if(!ok)
+            failed++;
+    }
+
+}
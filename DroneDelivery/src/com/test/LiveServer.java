@@ -0,0 +1,152 @@
+package com.test;
+
+import com.delivery.DroneOrder;
+import com.scheduler.FleetScheduler;
+import com.scheduler.InputStreamLimitedTimeScheduler;
+import com.scheduler.InputStreamLimitedTimeWithWaitScheduler;
+import com.scheduler.InputStreamScheduler;
+import com.scheduler.InputWithWaitScheduler;
+import com.scheduler.OrderIngestionServer;
+import com.scheduler.SchedulerMetrics;
+import com.tools.ChannelDispatchSink;
+import com.tools.RollingNPS;
+import com.tools.TimeConvert;
+import com.tools.WriteOrdersToFile;
+
+import javax.management.JMException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.function.Function;
+
+
+/**
+ * Run the order ingestion server until "stop" or the end of the standard input.
+ * Producers connect to the port and push order lines, eg: with netcat
+ *      nc localhost 7000 < orders.txt
+ *
+ * Usage:
+ *      java com.test.LiveServer [-port 7000] [-scheduler dynamic] [-drones 1] [-output path] [-metrics path]
+ *                               [-windows 00:15:00,01:00:00,24:00:00]
+ * Any other line typed in prints the NPS of the last 15 minutes, hour and day, or of the -windows.
+ * With -metrics, the scheduler metrics are in JMX while the server runs, and their summary
+ * is written to the file when it stops.
+ *
+ */
+public class LiveServer {
+
+    public static void main(String[] args) {
+        int port = 7000;
+        String schedulerType = "dynamic";
+        int drones = 1;
+        String outputFilePath = null;
+        String metricsFilePath = null;
+        String windows = "00:15:00,01:00:00,24:00:00";
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            if("-port".equals(args[i]) && args[i + 1].matches("\\d+")) {
+                port = Integer.parseInt(args[i + 1]);
+            } else if("-scheduler".equals(args[i])) {
+                schedulerType = args[i + 1];
+            } else if("-drones".equals(args[i]) && args[i + 1].matches("\\d+")) {
+                drones = Integer.parseInt(args[i + 1]);
+            } else if("-output".equals(args[i])) {
+                outputFilePath = args[i + 1];
+            } else if("-metrics".equals(args[i])) {
+                metricsFilePath = args[i + 1];
+            } else if("-windows".equals(args[i]) && args[i + 1].matches("\\d{2}:\\d{2}:\\d{2}(,\\d{2}:\\d{2}:\\d{2})*")) {
+                windows = args[i + 1];
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        final int fleetSize = drones;
+        Function<Queue<DroneOrder>, InputStreamScheduler> factory;
+        if("dynamic".equals(schedulerType))
+            factory = tasks -> new InputStreamScheduler(tasks);
+        else if("unfair".equals(schedulerType))
+            factory = tasks -> new InputWithWaitScheduler(tasks);
+        else if("limited".equals(schedulerType))
+            factory = tasks -> new InputStreamLimitedTimeScheduler(tasks, 6*60*60, 22*60*60);
+        else if("unfair_limited".equals(schedulerType))
+            factory = tasks -> new InputStreamLimitedTimeWithWaitScheduler(tasks, 6*60*60, 22*60*60);
+        else if("fleet".equals(schedulerType))
+            factory = tasks -> new FleetScheduler(tasks, fleetSize);
+        else {
+            printUsage();
+            return;
+        }
+
+        String[] windowTimes = windows.split(",");
+        long[] windowSeconds = new long[windowTimes.length];
+        for(int i = 0; i < windowTimes.length; i++) {
+            windowSeconds[i] = TimeConvert.strToInt(windowTimes[i]);
+            if(windowSeconds[i] <= 0) {
+                printUsage();
+                return;
+            }
+        }
+
+        OrderIngestionServer server = new OrderIngestionServer(new InetSocketAddress(port), factory);
+        RollingNPS rollingNPS = new RollingNPS(windowSeconds);
+        server.getScheduler().addOutcomeConsumer(rollingNPS);
+        SchedulerMetrics metrics = null;
+        if(metricsFilePath != null) {
+            metrics = new SchedulerMetrics(server.getScheduler().getDroneCount());
+            server.getScheduler().addOutcomeConsumer(metrics);
+            try {
+                metrics.register(schedulerType);
+            } catch (JMException e) {
+                System.out.println("Error: Metrics not registered in JMX: " + e.getMessage());
+            }
+        }
+        try {
+            if(outputFilePath != null)
+                server.setLog(new ChannelDispatchSink(outputFilePath, false));
+            server.start();
+            System.out.println("listening on port " + server.getPort() + ", type \"stop\" to finish");
+            BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+            while((line = console.readLine()) != null && !"stop".equals(line.trim())) {
+                System.out.println("connections " + server.getConnectionCount());
+                System.out.println(rollingNPS);
+            }
+            server.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        InputStreamScheduler scheduler = server.getScheduler();
+        System.out.println("orders " + scheduler.getTotalOrder() + ", promoters " + scheduler.getPromoters()
+                + ", neutral " + scheduler.getNeutral() + ", detractors " + scheduler.getDetractors());
+        if(metrics != null) {
+            metrics.unregister();
+            WriteOrdersToFile.writeLinesToFile(metricsFilePath, metrics.getSummary());
+            System.out.println("metrics_file: " + metricsFilePath);
+        }
+    }
+
+    /**
+     * Print Usage messages in command line
+     */
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.LiveServer [-port 7000] [-scheduler dynamic] [-drones 1] [-output path] [-metrics path]\n" +
+                "                             [-windows 00:15:00,01:00:00,24:00:00]\n" +
+                "    -scheduler: dynamic, unfair, limited, unfair_limited or fleet\n" +
+                "    -output   : also log all the decisions to a file\n" +
+                "    -metrics  : scheduler metrics in JMX, and their summary written to a file at the end\n" +
+                "    -windows  : sliding windows of the NPS printed for any line typed in, default as 00:15:00,01:00:00,24:00:00\n" +
+                "    Type \"stop\" or close the standard input to stop taking orders and send the NPS.");
+    }
+
+}
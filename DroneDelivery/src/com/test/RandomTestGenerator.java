@@ -2,23 +2,98 @@ package com.test;
 
 
 import com.delivery.DroneOrder;
-import com.tools.ReadOrdersFromFile;
-import com.tools.TimeConvert;
+import com.tools.TraceGenerator;
 import com.tools.WriteOrdersToFile;
 
+import java.io.IOException;
 import java.util.*;
 
 
 /**
- * To generate a test file, you need
- * WMXXXX: unique id
- * N5E10 : direction
- * HH:MM:SS : timestamp, sorted
+ * Generate a seeded synthetic trace with TraceGenerator:
+ * WMXXXX: id, going round every 10000 orders
+ * N5E10 : direction, clustered in a few neighbourhoods
+ * [YYYY-MM-DD ]HH:MM:SS : timestamp, sorted, with a lunch and an evening peak
+ * The trace is written as it is generated, in text or as a binary trace
+ * replayed by every command which takes an -input.
  *
+ * Usage:
+ *      java com.test.RandomTestGenerator -output path [-orders 100000] [-days 1] [-seed 42]
+ *          [-date YYYY-MM-DD] [-to text|binary] [-maxdistance 20] [-clusters 8]
+ *          [-profile peaks|flat] [-threads N]
  *
  */
 public class RandomTestGenerator {
 
+    public static void main(String[] args) {
+        String outputFilePath = null;
+        long orders = 100000;
+        int days = 1;
+        long seed = 42;
+        String date = null;
+        String to = "text";
+        int maxDistance = TraceGenerator.DEFAULT_MAX_DISTANCE;
+        int clusters = TraceGenerator.DEFAULT_CLUSTERS;
+        String profile = "peaks";
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            String value = args[i + 1];
+            if("-output".equals(args[i])) {
+                outputFilePath = value;
+            } else if("-orders".equals(args[i]) && value.matches("\\d+")) {
+                orders = Long.parseLong(value);
+            } else if("-days".equals(args[i]) && value.matches("\\d+")) {
+                days = Integer.parseInt(value);
+            } else if("-seed".equals(args[i]) && value.matches("-?\\d+")) {
+                seed = Long.parseLong(value);
+            } else if("-date".equals(args[i]) && value.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                date = value;
+            } else if("-to".equals(args[i]) && ("text".equals(value) || "binary".equals(value))) {
+                to = value;
+            } else if("-maxdistance".equals(args[i]) && value.matches("\\d+")) {
+                maxDistance = Integer.parseInt(value);
+            } else if("-clusters".equals(args[i]) && value.matches("\\d+")) {
+                clusters = Integer.parseInt(value);
+            } else if("-profile".equals(args[i]) && ("peaks".equals(value) || "flat".equals(value))) {
+                profile = value;
+            } else if("-threads".equals(args[i]) && value.matches("\\d+")) {
+                threads = Integer.parseInt(value);
+            } else {
+                printUsage();
+                return;
+            }
+        }
+        if(outputFilePath == null) {
+            printUsage();
+            return;
+        }
+
+        TraceGenerator generator = new TraceGenerator(seed, threads);
+        long begin = System.nanoTime();
+        long written;
+        try {
+            generator.setDays(days);
+            generator.setStartDate(date);
+            generator.setMaxDistance(maxDistance);
+            generator.setClusters(clusters);
+            generator.setPeaks("peaks".equals(profile));
+            if("binary".equals(to))
+                written = generator.writeBinary(outputFilePath, orders);
+            else
+                written = generator.writeText(outputFilePath, orders);
+        } catch (IllegalArgumentException | IOException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        System.out.println(String.format("%d orders written to %s in %.1f s",
+                written, outputFilePath, (System.nanoTime() - begin) / 1e9));
+    }
+
     /**
      * Write a list of order to specific path
      * @param path, path of output file
@@ -31,127 +106,28 @@ public class RandomTestGenerator {
     }
 
     /**
-     * Generate n random Test orders with format: WMXXXX N10S8 HH:MM:SS
-     * @param n, how many random test cases you want to generate
-     * @param xMax, for direction, x-axis max distance. Generator will generate
-     * 		  random x-distance from 0 - xMax
-     * @param yMax, for direction, y-axis max distance. Generator will generate
-     * 		  random y-distance from 0 - yMax
-     * @param tMin, the ground of the first time stamp
-     * @param tMax, the roof of the time stamp,    tMin <= time stamp <= tMax
-     * @return PriorityQueue of the random orders, sorted by its time stamp
-     */
-    public static PriorityQueue<DroneOrder> generateRandomTestOrder(int n, int xMax, int yMax, int tMin, int tMax) {
-        PriorityQueue<DroneOrder> tasks = new PriorityQueue<>(new TimeStampComparator());
-        for(int i = 0; i < n; i ++) {
-            String id = generateRandomID("WM",0, 9);
-            String direction = generateRandomDirection(xMax, yMax);
-            String timestamp = generateRandomTimeStamp(tMin,tMax);
-            if(timestamp == null || id == null || direction == null) {
-                System.out.println("Unvalid generator parameters");
-                continue;
-            }
-//			System.out.println(id+" "+direction+" "+timestamp);
-            DroneOrder temp = ReadOrdersFromFile.parseDroneOrder(id+" "+direction+" "+timestamp);
-//			System.out.println(temp);
-            tasks.offer(temp);
-        }
-        return tasks;
-    }
-
-    /**
-     * Generate order ID, with prefix+digits. Here we generate 4 digits
-     * to match WMXXXX, in which prefix is WM
-     * @param prefix The prefix of the id
-     * @param minRandomDigit Each digit's ground
-     * @param maxRandomDigit Each digit's roof.  minRandomDigit <= digit <= maxRandomDigit
-     * @return String A randomly generated id formatted as : prefix+dddd
+     * Generate n orders of one day, with the default parameters of TraceGenerator
+     * @param n, how many orders you want to generate
+     * @param seed, same seed, same orders
+     * @return Queue of the orders, sorted by their time stamp
      */
-    public static String generateRandomID(String prefix,int minRandomDigit, int maxRandomDigit) {
-        if(minRandomDigit < 0 || maxRandomDigit < 0 || minRandomDigit > maxRandomDigit)
-            return null;
-        StringBuffer id = new StringBuffer();
-        id.append(prefix);
-        id.append(getRandomIntegerBetweenRange(minRandomDigit, maxRandomDigit));
-        id.append(getRandomIntegerBetweenRange(minRandomDigit, maxRandomDigit));
-        id.append(getRandomIntegerBetweenRange(minRandomDigit, maxRandomDigit));
-        id.append(getRandomIntegerBetweenRange(minRandomDigit, maxRandomDigit));
-        return id.toString();
+    public static Queue<DroneOrder> generateRandomTestOrder(int n, long seed) {
+        return new TraceGenerator(seed).generateStore(n).cursor();
     }
 
     /**
-     * Generate random direction, such as N100E50.
-     * Firstly, since x-axis has two choices, randomly choose one each time.
-     * Secondly, since y-axis has two choices, randomly choose one each time.
-     * Thirdly, randomly generate a xDistance which  0 <= xDistance <= xMax
-     * Fourthly, randomly generate a yDistance which 0 <= yDistance <= yMax
-     * @param xMax Roof of xDistance
-     * @param yMax Roof of yDistance
-     * @return String Randomly generated Direction, such as N100E50
+     * Print Usage messages in command line
      */
-    public static String generateRandomDirection(int xMax, int yMax) {
-        if(xMax < 0 || yMax < 0)
-            return null;
-        char[] x = new char[] {'N','S'};
-        char[] y = new char[] {'E','W'};
-        int randomXD = getRandomIntegerBetweenRange(0, 100);
-        int randomYD = getRandomIntegerBetweenRange(0, 100);
-        char xChar = x[randomXD % 2];
-        char yChar = y[randomYD % 2];
-        int xDistance = getRandomIntegerBetweenRange(0, xMax);
-        int yDistance = getRandomIntegerBetweenRange(0, yMax);
-
-        return "" + xChar + xDistance + yChar + yDistance;
-    }
-
-    /**
-     * Generate a random time stamp in seconds, which tMin <= time stamp <= tMax
-     * @param tMin Ground of time stamp, in seconds
-     * @param tMax Roof of time stamp, in seconds
-     * @return String Randomly generated time stamp.
-     */
-    public static String generateRandomTimeStamp(int tMin, int tMax) {
-        if(tMax > 24*60*60)	tMax = 24*60*60;
-        if(tMax < 0)		tMax = 0;
-        if(tMin < 0)		tMin = 0;
-        if(tMin > 24*60*60) tMin = 24*60*60;
-        if(tMin > tMax)	return null;
-
-        long timestamp = getRandomIntegerBetweenRange(tMin, tMax);
-        String formattedTimeStamp = TimeConvert.longToStr(timestamp);
-        return formattedTimeStamp;
-    }
-
-    /**
-     * Get random integer between min and max
-     * @param min
-     * @param max
-     * @return Integer, the random generated integer
-     */
-    public static int getRandomIntegerBetweenRange(double min, double max){
-        double x = (int)(Math.random()*((max-min)+1))+min;
-        return (int)x;
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.RandomTestGenerator -output path [-orders 100000] [-days 1] [-seed 42]\n" +
+                "        [-date YYYY-MM-DD] [-to text|binary] [-maxdistance 20] [-clusters 8]\n" +
+                "        [-profile peaks|flat] [-threads N]\n" +
+                "    -days      : days the orders are spread over, dated from -date(default 2024-03-01) if more than 1\n" +
+                "    -to        : text orders(default), or a binary trace\n" +
+                "    -clusters  : neighbourhoods most orders come from, 0 for uniform locations\n" +
+                "    -profile   : peaks, arrivals with a lunch and an evening peak(default); flat, a constant rate\n" +
+                "    Same seed and options, same trace, whatever the number of threads");
     }
 
 }
-
-/**
- * Comparator, sort time stamp based on the
- * time line
- *
- *
- */
-class TimeStampComparator implements Comparator<DroneOrder> {
-
-    @Override
-    public int compare(DroneOrder o1, DroneOrder o2) {
-        if(o1.geteTime() < o2.geteTime())
-            return -1;
-        else if(o1.geteTime() > o2.geteTime())
-            return 1;
-
-        return 0;
-    }
-
-}
-
@@ -0,0 +1,289 @@
+package com.test;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderStore;
+import com.delivery.DroneOrderTime;
+import com.scheduler.BatchingScheduler;
+import com.scheduler.DeadlineScheduler;
+import com.scheduler.DistanceBucketQueue;
+import com.scheduler.FleetScheduler;
+import com.scheduler.InputStreamLimitedTimeScheduler;
+import com.scheduler.InputStreamLimitedTimeWithWaitScheduler;
+import com.scheduler.InputStreamScheduler;
+import com.scheduler.InputWithWaitScheduler;
+import com.scheduler.LookaheadScheduler;
+import com.scheduler.OrderStoreScheduler;
+import com.tools.DiscardDispatchSink;
+import com.tools.DispatchSink;
+import com.tools.TimeConvert;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+
+/**
+ * Microbenchmark for the scheduler core loops.
+ * It times each of the four schedulers used by Test (dynamic, unfair,
+ * limited, unfair_limited) on seeded synthetic traces, and reports:
+ *      |-- ops/s       : scheduler runs per second
+ *      |-- ns/order    : average time spent per order of the trace
+ *      |-- B/order     : bytes allocated by the scheduling thread per order
+ *      |-- MB/s        : allocation rate while scheduling
+ *      |-- gc          : collections and collection time during measurement
+ *      |-- NPS         : NPS of the schedule, to weigh a slower decision against a better one
+ * The "lookahead" type also reports the 99th percentile of its decision time,
+ * and how many decisions ran out of budget, on the last iteration.
+ *
+ * Every invocation gets a fresh copy of the trace, since the schedulers
+ * poll the tasks queue destructively. Building the copy is not timed.
+ * The "store" type runs OrderStoreScheduler on a DroneOrderStore of the trace,
+ * the "fleet" type runs FleetScheduler with 20 drones, the "lookahead" type
+ * runs LookaheadScheduler with its default window and budget, the "batching" type
+ * runs BatchingScheduler with its default capacity, and the "deadline" type runs
+ * DeadlineScheduler dropping the expired orders. One order in PERISHABLE_EVERY of the
+ * trace is perishable, with a delivery window of an hour, only DeadlineScheduler looks at it.
+ * By default the decisions are kept in the result lists, as Test without a sink does.
+ * With -sink discard they go to a DiscardDispatchSink, which leaves the scheduling
+ * loop alone: its B/order is what the loop itself allocates.
+ * With -queue bucket the streaming schedulers wait on a DistanceBucketQueue
+ * instead of the PriorityQueue, except DeadlineScheduler which has its own queue.
+ * A trace and its copy take about 400 MB of heap per million orders, so the default
+ * sizes stop at 1000000. Larger sizes need a larger heap, eg: -Xmx4g for 10000000.
+ *
+ * Usage:
+ *      java com.test.SchedulerBenchmark [-sizes 1000,100000,1000000]
+ *          [-scheduler dynamic,unfair,limited,unfair_limited,store,fleet,lookahead,batching,deadline]
+ *          [-seed 42] [-warmup 3] [-iterations 5] [-sink list|discard] [-queue heap|bucket]
+ *
+ */
+public class SchedulerBenchmark {
+
+    /**
+     * Scheduler types understood by the benchmark, same names as Test's -scheduler option
+     */
+    public final static String[] SCHEDULERS = {"dynamic", "unfair", "limited", "unfair_limited", "store", "fleet", "lookahead", "batching", "deadline"};
+
+    /**
+     * Number of drones of the "fleet" type
+     */
+    private final static int FLEET_SIZE = 20;
+
+    /**
+     * Max distance of one axis for the synthetic orders
+     */
+    private final static int MAX_AXIS_DISTANCE = 10;
+
+    /**
+     * One order in PERISHABLE_EVERY of the synthetic orders has a deadline
+     */
+    private final static int PERISHABLE_EVERY = 5;
+
+    public static void main(String[] args) {
+        int[] sizes = {1000, 100000, 1000000};
+        String[] schedulers = SCHEDULERS;
+        long seed = 42;
+        int warmup = 3;
+        int iterations = 5;
+        boolean discard = false;
+        boolean bucket = false;
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            if("-sizes".equals(args[i])) {
+                String[] temp = args[i + 1].split(",");
+                sizes = new int[temp.length];
+                for(int j = 0; j < temp.length; j++)
+                    sizes[j] = Integer.parseInt(temp[j]);
+            } else if("-scheduler".equals(args[i])) {
+                schedulers = args[i + 1].split(",");
+            } else if("-seed".equals(args[i])) {
+                seed = Long.parseLong(args[i + 1]);
+            } else if("-warmup".equals(args[i])) {
+                warmup = Integer.parseInt(args[i + 1]);
+            } else if("-iterations".equals(args[i])) {
+                iterations = Integer.parseInt(args[i + 1]);
+            } else if("-sink".equals(args[i]) && ("list".equals(args[i + 1]) || "discard".equals(args[i + 1]))) {
+                discard = "discard".equals(args[i + 1]);
+            } else if("-queue".equals(args[i]) && ("heap".equals(args[i + 1]) || "bucket".equals(args[i + 1]))) {
+                bucket = "bucket".equals(args[i + 1]);
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        System.out.println(String.format("%-16s %10s %12s %12s %12s %10s %14s %8s",
+                "scheduler", "orders", "ops/s", "ns/order", "B/order", "MB/s", "gc(count/ms)", "NPS"));
+        for(int size : sizes) {
+            DroneOrder[] trace = generateTrace(size, seed);
+            DroneOrderStore store = null;
+            for(String type : schedulers) {
+                if("store".equals(type) && store == null)
+                    store = DroneOrderStore.of(Arrays.asList(trace));
+                // Warm up, results are thrown away
+                for(int i = 0; i < warmup; i++)
+                    measure(type, trace, store, discard, bucket);
+                long[] total = new long[4];
+                long[] last = null;
+                for(int i = 0; i < iterations; i++) {
+                    last = measure(type, trace, store, discard, bucket);
+                    for(int j = 0; j < total.length; j++)
+                        total[j] += last[j];
+                }
+                double seconds = total[0] / 1e9;
+                System.out.println(String.format("%-16s %10d %12.3f %12.1f %12.1f %10.1f %14s %8.2f",
+                        type, size,
+                        iterations / seconds,
+                        total[0] / (double) iterations / size,
+                        total[1] / (double) iterations / size,
+                        total[1] / 1e6 / seconds,
+                        total[2] + "/" + total[3],
+                        last[5] == 0 ? 0 : last[4] * 100.0 / last[5]));
+                if("lookahead".equals(type))
+                    System.out.println(String.format("%-16s decision p99 %d ns, %d decisions out of budget",
+                            "", last[6], last[7]));
+            }
+        }
+    }
+
+    /**
+     * Run one scheduler once on a fresh copy of the trace.
+     * @param type scheduler type
+     * @param trace orders sorted by time stamp
+     * @param store the trace as a DroneOrderStore, only used by the "store" type
+     * @param discard whether the decisions go to a DiscardDispatchSink instead of the result lists
+     * @param bucket whether the streaming schedulers wait on a DistanceBucketQueue, not used by "store"
+     * @return {elapsed ns, allocated bytes, gc count, gc ms, promoters - detractors, total order,
+     *          decision p99 ns and decisions out of budget of the "lookahead" type}
+     */
+    public static long[] measure(String type, DroneOrder[] trace, DroneOrderStore store, boolean discard,
+                                 boolean bucket) {
+        InputStreamScheduler scheduler = null;
+        OrderStoreScheduler storeScheduler = null;
+        DispatchSink sink = discard ? new DiscardDispatchSink() : null;
+        if("store".equals(type)) {
+            storeScheduler = new OrderStoreScheduler(store);
+            storeScheduler.setDispatchSink(sink);
+        } else {
+            scheduler = createScheduler(type, new LinkedList<DroneOrder>(Arrays.asList(trace)));
+            scheduler.setDispatchSink(sink);
+            if(bucket && !(scheduler instanceof DeadlineScheduler))
+                scheduler.setQueue(new DistanceBucketQueue());
+        }
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long allocated = allocatedBytes();
+        long begin = System.nanoTime();
+        if(scheduler != null)
+            scheduler.start();
+        else
+            storeScheduler.start();
+        long elapsed = System.nanoTime() - begin;
+        allocated = allocatedBytes() - allocated;
+        long net = scheduler != null ? scheduler.getPromoters() - scheduler.getDetractors()
+                : storeScheduler.getPromoters() - storeScheduler.getDetractors();
+        long orders = scheduler != null ? scheduler.getTotalOrder() : storeScheduler.getTotalOrder();
+        long p99 = 0;
+        long fallbacks = 0;
+        if(scheduler instanceof LookaheadScheduler) {
+            p99 = ((LookaheadScheduler) scheduler).getDecisionTimes().getValueAtPercentile(99);
+            fallbacks = ((LookaheadScheduler) scheduler).getFallbacks();
+        }
+        return new long[] {elapsed, allocated, gcCount() - gcCount, gcTime() - gcTime, net, orders, p99, fallbacks};
+    }
+
+    /**
+     * Create the scheduler the same way Test does
+     * @param type dynamic, unfair, limited, unfair_limited, fleet, lookahead, batching or deadline
+     * @param tasks Orders stream
+     * @return scheduler, not started
+     */
+    public static InputStreamScheduler createScheduler(String type, Queue<DroneOrder> tasks) {
+        if("dynamic".equals(type))
+            return new InputStreamScheduler(tasks);
+        else if("unfair".equals(type))
+            return new InputWithWaitScheduler(tasks);
+        else if("limited".equals(type))
+            return new InputStreamLimitedTimeScheduler(tasks, 6*60*60, 22*60*60);
+        else if("unfair_limited".equals(type))
+            return new InputStreamLimitedTimeWithWaitScheduler(tasks, 6*60*60, 22*60*60);
+        else if("fleet".equals(type))
+            return new FleetScheduler(tasks, FLEET_SIZE);
+        else if("lookahead".equals(type))
+            return new LookaheadScheduler(tasks);
+        else if("batching".equals(type))
+            return new BatchingScheduler(tasks);
+        else if("deadline".equals(type))
+            return new DeadlineScheduler(tasks);
+        throw new IllegalArgumentException("Unknown scheduler: " + type);
+    }
+
+    /**
+     * Generate a seeded trace of n orders within one day, sorted by time stamp.
+     * The same seed always gives the same trace.
+     * @param n number of orders
+     * @param seed random seed
+     * @return orders sorted by time stamp
+     */
+    public static DroneOrder[] generateTrace(int n, long seed) {
+        Random random = new Random(seed);
+        int[] times = new int[n];
+        for(int i = 0; i < n; i++)
+            times[i] = random.nextInt(24*60*60);
+        Arrays.sort(times);
+
+        DroneOrder[] trace = new DroneOrder[n];
+        for(int i = 0; i < n; i++) {
+            String id = "WM" + String.format("%04d", i % 10000);
+            String direction = "" + (random.nextBoolean() ? 'N' : 'S') + random.nextInt(MAX_AXIS_DISTANCE + 1)
+                    + (random.nextBoolean() ? 'E' : 'W') + random.nextInt(MAX_AXIS_DISTANCE + 1);
+            trace[i] = new DroneOrder(new DroneOrderID(id), new DroneOrderDirection(direction),
+                    new DroneOrderTime(TimeConvert.intToStr(times[i])));
+            if(i % PERISHABLE_EVERY == 0)
+                trace[i].setDeadline(times[i] + 60*60);
+        }
+        return trace;
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, 0 if the JVM can't tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            time += Math.max(0, gc.getCollectionTime());
+        return time;
+    }
+
+    /**
+     * Print Usage messages in command line
+     */
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.SchedulerBenchmark [-sizes 1000,100000,1000000] [-scheduler dynamic,unfair,limited,unfair_limited,store,fleet,lookahead,batching,deadline]\n" +
+                "                                     [-seed 42] [-warmup 3] [-iterations 5] [-sink list|discard]\n" +
+                "                                     [-queue heap|bucket]\n" +
+                "    sizes above 1000000 need a larger heap, eg: java -Xmx4g com.test.SchedulerBenchmark -sizes 10000000");
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.test;
+
+import com.delivery.interfaces.OrderStore;
+import com.scheduler.ParameterSweep;
+import com.scheduler.SchedulerParameters;
+import com.tools.ReadOrdersFromFile;
+import com.tools.TimeConvert;
+import com.tools.WriteOrdersToFile;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+
+
+/**
+ * Sweep the scheduler tunables over one input file, and report the NPS frontier.
+ * Each parameter takes a comma separated list of values, or a range "from-to/step".
+ * Times are HH:MM:SS or seconds, "none" means no window, "off" means no detractor cutoff.
+ *
+ * Usage:
+ *      java com.test.SchedulerSweep -input path [-output path] [-threads 4]
+ *          [-windowStart 05:00:00-07:00:00/00:30:00] [-windowEnd 21:00:00,22:00:00,none]
+ *          [-promoters 01:00:00] [-neutral 03:00:00] [-detractor off,02:00:00,03:00:00] [-unit 60]
+ *
+ */
+public class SchedulerSweep {
+
+    public static void main(String[] args) {
+        String inputFilePath = null;
+        String outputFilePath = "/DroneDelivery/testData/sweep.txt";
+        int threads = Runtime.getRuntime().availableProcessors();
+        Map<String, String> ranges = new HashMap<>();
+
+        for(int i = 0; i < args.length; i += 2) {
+            if(i + 1 >= args.length) {
+                printUsage();
+                return;
+            }
+            if("-input".equals(args[i])) {
+                inputFilePath = args[i + 1];
+            } else if("-output".equals(args[i])) {
+                outputFilePath = args[i + 1];
+            } else if("-threads".equals(args[i])) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else if(Arrays.asList("-windowStart", "-windowEnd", "-promoters", "-neutral", "-detractor", "-unit").contains(args[i])) {
+                ranges.put(args[i], args[i + 1]);
+            } else {
+                printUsage();
+                return;
+            }
+        }
+        if(inputFilePath == null) {
+            printUsage();
+            return;
+        }
+
+        ParameterSweep sweep = new ParameterSweep(threads);
+        try {
+            if(ranges.containsKey("-windowStart"))
+                sweep.setWindowStarts(parseValues(ranges.get("-windowStart"), 0));
+            if(ranges.containsKey("-windowEnd"))
+                sweep.setWindowEnds(parseValues(ranges.get("-windowEnd"), SchedulerParameters.NO_WINDOW));
+            if(ranges.containsKey("-promoters"))
+                sweep.setPromotersCutoffs(parseValues(ranges.get("-promoters"), -1));
+            if(ranges.containsKey("-neutral"))
+                sweep.setNeutralCutoffs(parseValues(ranges.get("-neutral"), -1));
+            if(ranges.containsKey("-detractor"))
+                sweep.setDetractorCutoffs(parseValues(ranges.get("-detractor"), SchedulerParameters.NO_DETRACTOR_CUTOFF));
+            if(ranges.containsKey("-unit"))
+                sweep.setSecondsPerUnit(parseValues(ranges.get("-unit"), -1));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            printUsage();
+            return;
+        }
+
+        OrderStore orders;
+        try {
+            orders = ReadOrdersFromFile.openOrderStore(inputFilePath);
+        } catch (NoSuchFileException e) {
+            System.out.println("Error: Input file not found!");
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+
+        long begin = System.nanoTime();
+        sweep.run(orders);
+        long elapsed = System.nanoTime() - begin;
+
+        List<String> report = sweep.getReport();
+        // print the frontier only, the output file has all the configurations
+        for(String line : report) {
+            if("all configurations".equals(line))
+                break;
+            System.out.println(line);
+        }
+        System.out.println(String.format("%d configurations over %d orders in %.1f s",
+                sweep.getResults().size(), orders.size(), elapsed / 1e9));
+        WriteOrdersToFile.writeLinesToFile(outputFilePath, report);
+        System.out.println("output_file: " + outputFilePath);
+    }
+
+    /**
+     * Parse "a,b,c" or "from-to/step", values are HH:MM:SS or seconds
+     * @param values
+     * @param none value of the "none" or "off" keyword, -1 if not allowed
+     * @return parsed values
+     */
+    private static long[] parseValues(String values, long none) {
+        List<Long> parsed = new ArrayList<>();
+        for(String value : values.split(",")) {
+            int dash = value.indexOf('-');
+            int slash = value.indexOf('/');
+            if(dash > 0 && slash > dash) {
+                for(long v : ParameterSweep.range(parseValue(value.substring(0, dash), -1),
+                        parseValue(value.substring(dash + 1, slash), -1), parseValue(value.substring(slash + 1), -1)))
+                    parsed.add(v);
+            } else {
+                parsed.add(parseValue(value, none));
+            }
+        }
+        long[] result = new long[parsed.size()];
+        for(int i = 0; i < result.length; i++)
+            result[i] = parsed.get(i);
+        return result;
+    }
+
+    private static long parseValue(String value, long none) {
+        if(("none".equals(value) || "off".equals(value)) && none != -1)
+            return none;
+        long parsed;
+        try {
+            parsed = value.contains(":") ? TimeConvert.strToInt(value) : Long.parseLong(value);
+        } catch (RuntimeException e) {
+            parsed = -1;
+        }
+        if(parsed < 0)
+            throw new IllegalArgumentException("Invalid value " + value);
+        return parsed;
+    }
+
+    /**
+     * Print Usage messages in command line
+     */
+    private static void printUsage() {
+        System.out.println("Usage: \n" +
+                "    java com.test.SchedulerSweep -input path [-output path] [-threads 4]\n" +
+                "        [-windowStart 05:00:00-07:00:00/00:30:00] [-windowEnd 21:00:00,22:00:00,none]\n" +
+                "        [-promoters 01:00:00] [-neutral 03:00:00] [-detractor off,02:00:00,03:00:00] [-unit 60]\n" +
+                "    Values: comma separated list or range from-to/step, times as HH:MM:SS or seconds.\n" +
+                "    \"none\": no working window, \"off\": no detractor cutoff (detractors are not delivered last)");
+    }
+
+}
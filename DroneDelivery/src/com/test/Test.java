@@ -1,15 +1,35 @@
 package com.test;
 
 import com.delivery.DroneOrder;
+import com.delivery.MappedOrderStore;
+import com.delivery.interfaces.OrderStore;
+import com.scheduler.BatchingScheduler;
+import com.scheduler.DeadlineScheduler;
+import com.scheduler.DistanceBucketQueue;
+import com.scheduler.FleetScheduler;
 import com.scheduler.InputStreamLimitedTimeScheduler;
 import com.scheduler.InputStreamLimitedTimeWithWaitScheduler;
 import com.scheduler.InputStreamScheduler;
 import com.scheduler.InputWithWaitScheduler;
+import com.scheduler.LookaheadScheduler;
+import com.scheduler.MultiWarehouseSimulation;
+import com.scheduler.OfflineSolver;
+import com.scheduler.SchedulerCheckpoint;
+import com.scheduler.SchedulerMetrics;
+import com.scheduler.StrategyComparison;
+import com.tools.ChannelDispatchSink;
+import com.tools.CheckpointWriter;
+import com.tools.NPSCalculator;
+import com.tools.OrderStream;
 import com.tools.ReadOrdersFromFile;
+import com.tools.TimeConvert;
 import com.tools.WriteOrdersToFile;
 
+import javax.management.JMException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.*;
 
 
@@ -23,11 +43,41 @@ public class Test {
          *  2. outputFilePath : Output file path from command line, with default value
          *  3. schedulerType : Indicates the type of scheduler to use, with default as dynamic
          *  4. print : Whether print the result in command line or not. Default is N
+         *  5. drones : Number of drones for the fleet scheduler. Default is 1
+         *  6. warehouses : Warehouse locations for the warehouses scheduler, such as N0E0,N20W10
+         *  7. carryOver : Whether the limited schedulers keep late orders for the next day. Default is N
+         *  8. checkpointFilePath : Where to take checkpoints of the dynamic scheduler, none by default
+         *  9. resume : Whether to go on from the checkpoint, if there is one. Default is N
+         * 10. interval : Milliseconds between two checkpoints. Default is 1000
+         * 11. metricsFilePath : Where to write the metrics summary of the scheduler, none by default
+         * 12. promoters : Longest waiting time of a promoter, HH:MM:SS. Default is 01:00:00
+         * 13. neutral : Longest waiting time of a neutral, HH:MM:SS. Default is 03:00:00
+         * 14. queue : Waiting queue of the streaming schedulers, heap or bucket. Default is heap
+         * 15. window : Number of waiting orders ordered exactly by the lookahead scheduler. Default is 8
+         * 16. timeLimit : Search time of the offline solver, in seconds. Default is 120
+         * 17. capacity : Number of items the drone of the batching scheduler carries. Default is 4
+         * 18. expired : What the deadline scheduler does with the orders which missed their deadline, drop or deliver. Default is drop
+         * 19. detractorCutoff : Longest one way delivery time the unfair scheduler doesn't deliver last, HH:MM:SS. Default is the neutral cutoff
          */
         String inputFilePath = "/DroneDelivery/testData/testfileread.txt";
         String outputFilePath = "/DroneDelivery/testData/result.txt";
         String schedulerType = "dynamic";
         String print = "N";
+        int drones = 1;
+        String warehouses = "N0E0";
+        String carryOver = "N";
+        String checkpointFilePath = null;
+        String resume = "N";
+        long interval = 1000;
+        String metricsFilePath = null;
+        long promotersCutoff = NPSCalculator.PROMOTERS;
+        long neutralCutoff = NPSCalculator.NEUTRAL;
+        String queue = "heap";
+        int window = LookaheadScheduler.DEFAULT_WINDOW;
+        long timeLimit = OfflineSolver.DEFAULT_TIME_LIMIT / 1000;
+        int capacity = BatchingScheduler.DEFAULT_CAPACITY;
+        String expired = "drop";
+        long detractorCutoff = InputWithWaitScheduler.NEUTRAL_CUTOFF;
 
         // If there is args in command line, set the params
         // else print usage messages
@@ -66,6 +116,141 @@ public class Test {
                         return;
                     }
                 }
+                else if("-warehouses".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].charAt(0) != '-') {
+                        warehouses = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-carryover".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].charAt(0) != '-') {
+                        carryOver = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-checkpoint".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].charAt(0) != '-') {
+                        checkpointFilePath = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-resume".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].charAt(0) != '-') {
+                        resume = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-interval".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        interval = Long.parseLong(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-metrics".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].charAt(0) != '-') {
+                        metricsFilePath = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-promoters".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d{2}:\\d{2}:\\d{2}")) {
+                        promotersCutoff = TimeConvert.strToInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-neutral".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d{2}:\\d{2}:\\d{2}")) {
+                        neutralCutoff = TimeConvert.strToInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-detractor".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d{2}:\\d{2}:\\d{2}")) {
+                        detractorCutoff = TimeConvert.strToInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-queue".equals(args[i])) {
+                    if(i + 1 < args.length && ("heap".equals(args[i + 1]) || "bucket".equals(args[i + 1]))) {
+                        queue = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-window".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        window = Integer.parseInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-capacity".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        capacity = Integer.parseInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-expired".equals(args[i])) {
+                    if(i + 1 < args.length && ("drop".equals(args[i + 1]) || "deliver".equals(args[i + 1]))) {
+                        expired = args[i + 1];
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-timelimit".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        timeLimit = Long.parseLong(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
+                else if("-drones".equals(args[i])) {
+                    if(i + 1 < args.length && args[i + 1].matches("\\d+")) {
+                        drones = Integer.parseInt(args[i + 1]);
+                        i += 2;
+                    } else {
+                        printUsage();
+                        return;
+                    }
+                }
                 else {
                     printUsage();
                     return;
@@ -79,52 +264,164 @@ public class Test {
         }
 
 
+        NPSCalculator calculator;
+        try {
+            calculator = new NPSCalculator(promotersCutoff, neutralCutoff);
+        } catch (IllegalArgumentException e) {
+            printError(e.getMessage());
+            return;
+        }
+
+        // Multi-warehouse simulation works on the whole parsed day
+        if("warehouses".equals(schedulerType)) {
+            runWarehouses(inputFilePath, outputFilePath, warehouses, calculator, "Y".equals(print));
+            return;
+        }
+
+        // Comparison runs every strategy over the same parsed day
+        if("compare".equals(schedulerType)) {
+            runComparison(inputFilePath, outputFilePath, calculator);
+            return;
+        }
+
+        // The offline solver sees the whole parsed day, and compares the policies to its best sequence
+        if("offline".equals(schedulerType)) {
+            runOffline(inputFilePath, outputFilePath, calculator, timeLimit);
+            return;
+        }
+
+        // Checkpoints save the waiting queue of the dynamic scheduler
+        if(checkpointFilePath != null && !"dynamic".equals(schedulerType)) {
+            printError("Checkpoints are only supported by the dynamic scheduler");
+            return;
+        }
+
         // Scheduling
-        List<String> order = null;
+        // Create tasks queue which streams incoming tasks from the file,
+        // or from the first order not read yet when resuming.
+        // A binary trace is replayed from its mapping
+        Queue<DroneOrder> tasks = null;
+        OrderStream stream = null;
+        SchedulerCheckpoint checkpoint = null;
         try {
-            order = ReadOrdersFromFile.readLinesFromFile(inputFilePath);
+            if(MappedOrderStore.isBinaryTrace(inputFilePath)) {
+                if(checkpointFilePath != null) {
+                    printError("Checkpoints need a text input");
+                    return;
+                }
+                tasks = new MappedOrderStore(inputFilePath).cursor();
+            } else if(checkpointFilePath != null && "Y".equals(resume) && Files.exists(Paths.get(checkpointFilePath))) {
+                checkpoint = SchedulerCheckpoint.read(checkpointFilePath);
+                System.out.println("Resume from checkpoint: " + checkpoint);
+                tasks = stream = new OrderStream(Paths.get(inputFilePath), checkpoint.getInputOffset());
+            } else {
+                tasks = stream = new OrderStream(inputFilePath);
+            }
         } catch (NoSuchFileException e) {
             printError("Input file not found!");  // if the file not found, print error
             return;
         } catch (IOException e) {
             e.printStackTrace();
-        }
-        // Create tasks queue to store incoming tasks
-        Queue<DroneOrder> tasks = new LinkedList<>();
-        for(String cur : order) {
-            tasks.offer(ReadOrdersFromFile.parseDroneOrder(cur)); // Read orders from file
+            return;
         }
         // Choose Scheduler
+        InputStreamScheduler scheduler = null;
         if("dynamic".equals(schedulerType)) {
             // Use scheduler to schedule tasks
-            InputStreamScheduler scheduler = new InputStreamScheduler(tasks);
-            scheduler.start();  // start scheduling
-            if("Y".equals(print))  // if -print Y, then print in command line
-                System.out.println(scheduler);
-            // Write schedule result to file
-            WriteOrdersToFile.writeLinesToFile(outputFilePath, scheduler.getPrintResult());
+            scheduler = new InputStreamScheduler(tasks);
         } else if("unfair".equals(schedulerType)) {
-            InputWithWaitScheduler scheduler = new InputWithWaitScheduler(tasks);
-            scheduler.start();
-            if("Y".equals(print))
-                System.out.println(scheduler);
-            WriteOrdersToFile.writeLinesToFile(outputFilePath, scheduler.getPrintResult());
+            InputWithWaitScheduler unfair = new InputWithWaitScheduler(tasks);
+            unfair.setDetractorCutoff(detractorCutoff);
+            scheduler = unfair;
         } else if("limited".equals(schedulerType)) {
-            InputStreamLimitedTimeScheduler scheduler = new InputStreamLimitedTimeScheduler(tasks, 6*60*60, 22*60*60);
-            scheduler.start();
-            if("Y".equals(print))
-                System.out.println(scheduler);
-            WriteOrdersToFile.writeLinesToFile(outputFilePath, scheduler.getPrintResult());
+            scheduler = new InputStreamLimitedTimeScheduler(tasks, 6*60*60, 22*60*60, "Y".equals(carryOver));
         } else if("unfair_limited".equals(schedulerType)) {
-            InputStreamLimitedTimeWithWaitScheduler scheduler = new InputStreamLimitedTimeWithWaitScheduler(tasks, 6*60*60, 22*60*60);
-            scheduler.start();
-            if("Y".equals(print))
-                System.out.println(scheduler);
-            WriteOrdersToFile.writeLinesToFile(outputFilePath, scheduler.getPrintResult());
+            scheduler = new InputStreamLimitedTimeWithWaitScheduler(tasks, 6*60*60, 22*60*60, "Y".equals(carryOver));
+        } else if("fleet".equals(schedulerType)) {
+            scheduler = new FleetScheduler(tasks, Math.max(drones, 1));
+        } else if("lookahead".equals(schedulerType)) {
+            try {
+                scheduler = new LookaheadScheduler(tasks, window, LookaheadScheduler.DEFAULT_BUDGET);
+            } catch (IllegalArgumentException e) {
+                printError(e.getMessage());
+                return;
+            }
+        } else if("batching".equals(schedulerType)) {
+            try {
+                scheduler = new BatchingScheduler(tasks, capacity);
+            } catch (IllegalArgumentException e) {
+                printError(e.getMessage());
+                return;
+            }
+        } else if("deadline".equals(schedulerType)) {
+            scheduler = new DeadlineScheduler(tasks,
+                    "deliver".equals(expired) ? DeadlineScheduler.Expired.DELIVER : DeadlineScheduler.Expired.DROP);
         }
         else {
             printSchedulerError();
         }
+        if(scheduler != null) {
+            scheduler.setCalculator(calculator);
+            // Shortest order first with FIFO ties, no comparison per order.
+            // The deadline scheduler has its own queue, with FIFO ties too
+            if("bucket".equals(queue) && !(scheduler instanceof DeadlineScheduler))
+                scheduler.setQueue(new DistanceBucketQueue());
+        }
+        SchedulerMetrics metrics = null;
+        if(scheduler != null && metricsFilePath != null) {
+            // Metrics can be watched through JMX while scheduling
+            metrics = new SchedulerMetrics(scheduler.getDroneCount());
+            scheduler.addOutcomeConsumer(metrics);
+            try {
+                metrics.register(schedulerType);
+            } catch (JMException e) {
+                printError("Metrics not registered in JMX: " + e.getMessage());
+            }
+        }
+        if(scheduler != null) {
+            // Write schedule result to file as the orders are dispatched,
+            // if -print Y, then also print in command line
+            try(ChannelDispatchSink sink = checkpoint == null
+                    ? new ChannelDispatchSink(outputFilePath, "Y".equals(print))
+                    : new ChannelDispatchSink(outputFilePath, checkpoint.getOutputOffset(), "Y".equals(print))) {
+                if(checkpointFilePath != null) {
+                    try(CheckpointWriter writer = new CheckpointWriter(checkpointFilePath)) {
+                        scheduler.enableCheckpoints(writer, stream, sink, interval);
+                        if(checkpoint != null)
+                            scheduler.resume(checkpoint);
+                        scheduler.start();  // start scheduling
+                    }
+                } else {
+                    scheduler.setDispatchSink(sink);
+                    scheduler.start();  // start scheduling
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            if(scheduler instanceof FleetScheduler && "Y".equals(print))
+                System.out.println(((FleetScheduler) scheduler).getUtilizationReport());
+            if(scheduler instanceof BatchingScheduler && "Y".equals(print))
+                System.out.println(((BatchingScheduler) scheduler).getTripReport());
+            if(scheduler instanceof InputStreamLimitedTimeScheduler && "Y".equals(carryOver) && "Y".equals(print))
+                System.out.println("dropped " + ((InputStreamLimitedTimeScheduler) scheduler).getDropped());
+            if(scheduler instanceof DeadlineScheduler && "Y".equals(print))
+                System.out.println(((DeadlineScheduler) scheduler).getDeadlineReport());
+        }
+        if(metrics != null) {
+            metrics.unregister();
+            List<String> summary = metrics.getSummary();
+            if("Y".equals(print))
+                for(String line : summary)
+                    System.out.println(line);
+            WriteOrdersToFile.writeLinesToFile(metricsFilePath, summary);
+            System.out.println("metrics_file: " + metricsFilePath);
+        }
+        try {
+            if(stream != null)
+                stream.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
 
         // Print the output file path in command line
         printResultFilePath(outputFilePath);
@@ -132,14 +429,133 @@ public class Test {
     }
 
 
+    /**
+     * Route the orders to their closest warehouse, schedule the warehouses
+     * in parallel and write the merged NPS report to the output file.
+     * @param inputFilePath
+     * @param outputFilePath
+     * @param warehouses warehouse locations, such as N0E0,N20W10
+     * @param calculator classifies the waiting times of every warehouse
+     * @param print whether print the report in command line
+     */
+    private static void runWarehouses(String inputFilePath, String outputFilePath, String warehouses,
+                                      NPSCalculator calculator, boolean print) {
+        OrderStore orders = null;
+        try {
+            orders = ReadOrdersFromFile.openOrderStore(inputFilePath);
+        } catch (NoSuchFileException e) {
+            printError("Input file not found!");
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        List<String> locations = Arrays.asList(warehouses.split(","));
+        for(String location : locations) {
+            if(!location.matches("[NEWS]\\d+[NEWS]\\d+")) {
+                printError("Invalid warehouse location: " + location);
+                return;
+            }
+        }
+        MultiWarehouseSimulation simulation = new MultiWarehouseSimulation(locations);
+        simulation.setCalculator(calculator);
+        try {
+            simulation.run(orders);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<String> report = simulation.getReport();
+        if(print)
+            for(String line : report)
+                System.out.println(line);
+        WriteOrdersToFile.writeLinesToFile(outputFilePath, report);
+        printResultFilePath(outputFilePath);
+    }
+
+    /**
+     * Parse the input once, run all the strategies in parallel, then print
+     * the side by side NPS table and write it to the output file.
+     * @param inputFilePath
+     * @param outputFilePath
+     * @param calculator classifies the waiting times of every strategy
+     */
+    private static void runComparison(String inputFilePath, String outputFilePath, NPSCalculator calculator) {
+        OrderStore orders = null;
+        try {
+            orders = ReadOrdersFromFile.openOrderStore(inputFilePath);
+        } catch (NoSuchFileException e) {
+            printError("Input file not found!");
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        StrategyComparison comparison = new StrategyComparison();
+        comparison.setCalculator(calculator);
+        try {
+            comparison.run(orders);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<String> table = comparison.getTable();
+        for(String line : table)
+            System.out.println(line);
+        WriteOrdersToFile.writeLinesToFile(outputFilePath, table);
+        printResultFilePath(outputFilePath);
+    }
+
+    /**
+     * Parse the input once, run the online policies, search the best sequence
+     * of the whole day, then print the gap table and write it to the output file.
+     * @param inputFilePath
+     * @param outputFilePath
+     * @param calculator classifies the waiting times of every sequence
+     * @param timeLimit search time, in seconds
+     */
+    private static void runOffline(String inputFilePath, String outputFilePath, NPSCalculator calculator,
+                                   long timeLimit) {
+        OrderStore orders = null;
+        try {
+            orders = ReadOrdersFromFile.openOrderStore(inputFilePath);
+        } catch (NoSuchFileException e) {
+            printError("Input file not found!");
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        OfflineSolver solver = new OfflineSolver();
+        solver.setCalculator(calculator);
+        solver.setTimeLimit(timeLimit * 1000);
+        try {
+            solver.run(orders);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        List<String> table = solver.getTable();
+        for(String line : table)
+            System.out.println(line);
+        WriteOrdersToFile.writeLinesToFile(outputFilePath, table);
+        printResultFilePath(outputFilePath);
+    }
+
     /**
      * Print Usage messages in command line
      */
     private static void printUsage() {
         System.out.println("Usage(Jar File): \n" +
-                "    java -jar DroneDelivery.jar -input input_file_path [-output output_file_path] [-scheduler scheduler_type] [-print Y/N]\n" +
+                "    java -jar DroneDelivery.jar -input input_file_path [-output output_file_path] [-scheduler scheduler_type] [-print Y/N] [-drones N] [-warehouses N0E0,...] [-carryover Y/N]\n" +
+                "        [-checkpoint checkpoint_file_path] [-resume Y/N] [-interval ms] [-metrics metrics_file_path]\n" +
+                "        [-promoters HH:MM:SS] [-neutral HH:MM:SS] [-queue heap|bucket] [-window N] [-timelimit seconds]\n" +
+                "        [-capacity N] [-expired drop|deliver] [-detractor HH:MM:SS]\n" +
                 "Usage(.class File): \n" +
-                "    java com.test.Test -input input_file_path [-output output_file_path] [-scheduler scheduler_type] [-print Y/N]\n" +
+                "    java com.test.Test -input input_file_path [-output output_file_path] [-scheduler scheduler_type] [-print Y/N] [-drones N] [-warehouses N0E0,...] [-carryover Y/N]\n" +
+                "        [-checkpoint checkpoint_file_path] [-resume Y/N] [-interval ms] [-metrics metrics_file_path]\n" +
+                "        [-promoters HH:MM:SS] [-neutral HH:MM:SS] [-queue heap|bucket] [-window N] [-timelimit seconds]\n" +
+                "        [-capacity N] [-expired drop|deliver] [-detractor HH:MM:SS]\n" +
                 "	\n" +
                 "Options: \n" +
                 "    -output    : Output file path, default as \"./result.txt\"   \n" +
@@ -147,7 +563,38 @@ public class Test {
                 "                 unfair  , (Detractors Tasks always be delivered at the very last)\n" +
                 "                 limited , (only deliver from 6am - 10pm + dynamic mode)\n" +
                 "                 unfair_limited , (unfair mode + limited mode)\n" +
-                "    -print     : print result in terminal or not. \"Y\" print; \"N\" not print, default as \"N\"");
+                "                 fleet   , (dynamic mode with several drones, see -drones)\n" +
+                "                 lookahead , (dynamic mode, the next order is chosen for the best NPS of the window, see -window)\n" +
+                "                 batching , (dynamic mode, the drone carries several orders per trip, see -capacity)\n" +
+                "                 deadline , (dynamic mode, unless a perishable order would miss its deadline, see -expired)\n" +
+                "                 warehouses , (orders go to the closest warehouse, warehouses run in parallel, see -warehouses)\n" +
+                "                 compare , (run dynamic, unfair, limited and unfair_limited in parallel, print NPS side by side)\n" +
+                "                 offline , (search the best sequence of the whole day, print the gap of dynamic, unfair and lookahead)\n" +
+                "    -print     : print result in terminal or not. \"Y\" print; \"N\" not print, default as \"N\"\n" +
+                "    -drones    : number of drones of the fleet scheduler, default as 1\n" +
+                "    -warehouses: warehouse locations of the warehouses scheduler, default as \"N0E0\"\n" +
+                "    -carryover : limited modes, orders not delivered by 10pm wait for 6am the next day, default as \"N\"\n" +
+                "    -checkpoint: dynamic mode, save the scheduler state to this file while scheduling\n" +
+                "    -resume    : \"Y\" go on from the checkpoint file if there is one, default as \"N\"\n" +
+                "    -interval  : milliseconds between two checkpoints, default as 1000\n" +
+                "    -metrics   : write wait time percentiles, queue depth, drone busy/idle time and decision rate\n" +
+                "                 to this file, they are also in JMX while scheduling\n" +
+                "    -promoters : longest waiting time of a promoter, default as 01:00:00\n" +
+                "    -neutral   : longest waiting time of a neutral, default as 03:00:00\n" +
+                "    -detractor : unfair mode, orders whose one way delivery time is longer are delivered last,\n" +
+                "                 default as the -neutral cutoff\n" +
+                "    -queue     : waiting queue, \"heap\" PriorityQueue(default) or \"bucket\" DistanceBucketQueue,\n" +
+                "                 bucket delivers orders of the same distance in arrival order\n" +
+                "    -window    : lookahead mode, number of shortest waiting orders ordered exactly at each decision,\n" +
+                "                 1 to 20, default as 8; the orders not chosen keep their place in the queue,\n" +
+                "                 ties in arrival order with -queue bucket\n" +
+                "    -timelimit : offline mode, search time in seconds, default as 120\n" +
+                "    -capacity  : batching mode, number of items the drone carries per trip, 1 to 8, default as 4\n" +
+                "    -expired   : deadline mode, perishable orders which can no longer make their deadline are\n" +
+                "                 \"drop\" not delivered, counted as detractors(default), or \"deliver\" delivered late\n" +
+                "    -input     : text orders, or a binary trace made by com.test.ConvertTrace\n" +
+                "    Order times are \"HH:MM:SS\", or \"YYYY-MM-DD HH:MM:SS\" for several days,\n" +
+                "    an optional \"HH:MM:SS\" after the time is the delivery window of a perishable order");
     }
 
     /**
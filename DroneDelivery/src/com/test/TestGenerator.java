@@ -18,7 +18,7 @@ class TestGenerator {
     @Test
     void test() {
 
-//			Queue<DroneOrder> tasks = RandomTestGenerator.generateRandomTestOrder(100, 20, 20, 0, 60*60*24);
+//			Queue<DroneOrder> tasks = RandomTestGenerator.generateRandomTestOrder(100, 42);
 //			ArrayList<DroneOrder> temp = new ArrayList<>();
 //			while(!tasks.isEmpty()) {
 //				temp.add(tasks.poll());
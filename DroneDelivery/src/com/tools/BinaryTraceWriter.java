@@ -0,0 +1,123 @@
+package com.tools;
+
+import com.delivery.MappedOrderStore;
+import com.delivery.interfaces.OrderStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Write orders to a binary trace, in the format read by MappedOrderStore.
+ * The records are buffered, and the header, which holds the number of
+ * orders, is written when the writer is closed.
+ *
+ *
+ */
+public class BinaryTraceWriter implements Closeable {
+
+    private final static int BUFFER_SIZE = 1 << 16;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long count;
+    private boolean dated;
+
+    /**
+     * Create or truncate a binary trace
+     * @param path
+     * @param dated whether the times are epoch seconds
+     * @throws IOException
+     */
+    public BinaryTraceWriter(String path, boolean dated) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        channel.position(MappedOrderStore.HEADER_SIZE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.dated = dated;
+    }
+
+    /**
+     * Add an order to the end of the trace, orders should be added in time sequence
+     * @param eID easy ID
+     * @param x signed x coordinate, East is positive
+     * @param y signed y coordinate, North is positive
+     * @param distance Manhattan distance
+     * @param eTime time in seconds, epoch seconds if dated
+     * @throws IOException
+     */
+    public void add(int eID, int x, int y, int distance, long eTime) throws IOException {
+        if(buffer.remaining() < MappedOrderStore.RECORD_SIZE)
+            flush();
+        buffer.putInt(eID).putInt(x).putInt(y).putInt(distance).putLong(eTime);
+        count++;
+    }
+
+    /**
+     * Add all the orders of a store
+     * @param store
+     * @throws IOException
+     */
+    public void addAll(OrderStore store) throws IOException {
+        for(int h = 0; h < store.size(); h++)
+            add(store.geteID(h), store.getX(h), store.getY(h), (int) store.getEdistance(h), store.geteTime(h));
+    }
+
+    /**
+     * Add encoded records to the end of the trace, eg: a block made by TraceGenerator
+     * @param records whole little-endian records, from the position to the limit
+     * @throws IOException
+     */
+    public void write(ByteBuffer records) throws IOException {
+        if(records.remaining() % MappedOrderStore.RECORD_SIZE != 0)
+            throw new IllegalArgumentException("Not whole records: " + records.remaining() + " bytes");
+        flush();
+        count += records.remaining() / MappedOrderStore.RECORD_SIZE;
+        while(records.hasRemaining())
+            channel.write(records);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * @return number of orders added
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Write the remaining records and the header
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            buffer.put(MappedOrderStore.MAGIC)
+                    .putInt(MappedOrderStore.VERSION)
+                    .putInt(MappedOrderStore.RECORD_SIZE)
+                    .putInt(dated ? MappedOrderStore.FLAG_DATED : 0)
+                    .putLong(count)
+                    .putLong(0);
+            buffer.flip();
+            long position = 0;
+            while(buffer.hasRemaining())
+                position += channel.write(buffer, position);
+            buffer.clear();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
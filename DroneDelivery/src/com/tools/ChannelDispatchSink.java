@@ -0,0 +1,273 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Write the dispatch decisions straight to a buffered channel, as US-ASCII
+ * "WMXXXX HH:MM:SS" lines, same format as WriteOrdersToFile. Dated
+ * orders are written as "WMXXXX YYYY-MM-DD HH:MM:SS", dropped orders as
+ * "WMXXXX dropped HH:MM:SS", with the time of the drop.
+ * Times of the day are copied from a precomputed 86,400 entries table, so
+ * writing a record doesn't allocate anything.
+ *
+ *
+ */
+public class ChannelDispatchSink implements DispatchSink {
+
+    private final static int BUFFER_SIZE = 1 << 16;
+    private final static int SECONDS_OF_DAY = 24 * 60 * 60;
+    /**
+     * "HH:MM:SS" of every second of the day, 8 bytes each
+     */
+    private final static byte[] TIME_TABLE = buildTimeTable();
+    private final static byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private final static byte[] DROPPED = " dropped".getBytes();
+
+    private WritableByteChannel channel;
+    /**
+     * Optional second channel, which is flushed but never closed (eg: System.out)
+     */
+    private WritableByteChannel echo;
+    private ByteBuffer buffer;
+    /**
+     * {year, month, day} of the last dated line, reused by putDate
+     */
+    private final long[] date = new long[3];
+    /**
+     * Bytes written to the channel so far, including the resumed part
+     */
+    private long position;
+
+    /**
+     * Write to a channel, the channel is closed with the sink
+     * @param channel
+     */
+    public ChannelDispatchSink(WritableByteChannel channel) {
+        this(channel, null);
+    }
+
+    /**
+     * Write to a file, and optionally print the same lines in command line
+     * @param path output file path
+     * @param print whether to also write to System.out
+     * @throws IOException
+     */
+    public ChannelDispatchSink(String path, boolean print) throws IOException {
+        this(FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                print ? Channels.newChannel(new FileOutputStream(java.io.FileDescriptor.out)) : null);
+    }
+
+    /**
+     * Resume writing to a file after a checkpoint: the file is cut back to
+     * offset, and the next decisions are written from there
+     * @param path output file path
+     * @param offset length of the output when the checkpoint was taken
+     * @param print whether to also write to System.out
+     * @throws IOException, or if the file is shorter than offset
+     */
+    public ChannelDispatchSink(String path, long offset, boolean print) throws IOException {
+        this(openAt(path, offset),
+                print ? Channels.newChannel(new FileOutputStream(java.io.FileDescriptor.out)) : null);
+        this.position = offset;
+    }
+
+    private static FileChannel openAt(String path, long offset) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE);
+        if(channel.size() < offset) {
+            channel.close();
+            throw new IOException("Output " + path + " is shorter than the checkpoint: "
+                    + channel.size() + " < " + offset);
+        }
+        channel.truncate(offset);
+        channel.position(offset);
+        return channel;
+    }
+
+    private ChannelDispatchSink(WritableByteChannel channel, WritableByteChannel echo) {
+        this.channel = channel;
+        this.echo = echo;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    @Override
+    public void dispatch(DroneOrder order, long departureTime) {
+        String id = order.getOrderID().getOrderID();
+        ensure(id.length() + 1 + 32 + LINE_SEPARATOR.length);
+        for(int i = 0; i < id.length(); i++)
+            buffer.put((byte) id.charAt(i));
+        putDateTime(departureTime, order.getOrderTime().isDated());
+    }
+
+    @Override
+    public void drop(DroneOrder order, long time) {
+        String id = order.getOrderID().getOrderID();
+        ensure(id.length() + DROPPED.length + 32 + LINE_SEPARATOR.length);
+        for(int i = 0; i < id.length(); i++)
+            buffer.put((byte) id.charAt(i));
+        buffer.put(DROPPED);
+        putDateTime(time, order.getOrderTime().isDated());
+    }
+
+    @Override
+    public void dispatch(int eID, long departureTime, boolean dated) {
+        ensure(2 + 10 + 1 + 32 + LINE_SEPARATOR.length);
+        buffer.put((byte) 'W').put((byte) 'M');
+        int digits = 1;
+        for(int temp = eID / 10; temp > 0; temp /= 10)
+            digits++;
+        for(int i = digits; i < 4; i++)
+            buffer.put((byte) '0');
+        putNumber(eID, digits);
+        putDateTime(departureTime, dated);
+    }
+
+    @Override
+    public void finish(double nps) {
+        byte[] line = ("NPS " + nps).getBytes();
+        ensure(line.length + LINE_SEPARATOR.length);
+        buffer.put(line).put(LINE_SEPARATOR);
+        flush();
+    }
+
+    /**
+     * Write " YYYY-MM-DD HH:MM:SS" of epoch seconds if dated, else " HH:MM:SS",
+     * and the line separator
+     */
+    private void putDateTime(long time, boolean dated) {
+        if(dated) {
+            long days = Math.floorDiv(time, SECONDS_OF_DAY);
+            putDate(days);
+            time -= days * SECONDS_OF_DAY;
+        }
+        putTime(time);
+    }
+
+    /**
+     * Write " HH:MM:SS" and the line separator, same format as TimeConvert.longToStr
+     */
+    private void putTime(long time) {
+        buffer.put((byte) ' ');
+        if(time >= 0 && time < SECONDS_OF_DAY) {
+            buffer.put(TIME_TABLE, (int) time * 8, 8);
+        } else {
+            // beyond the end of the day, hours can have more than 2 digits
+            time = Math.max(time, 0);
+            long hours = time / 3600;
+            long secondsLeft = time - hours * 3600;
+            long minutes = secondsLeft / 60;
+            long seconds = secondsLeft - minutes * 60;
+            putTwoDigits(hours);
+            buffer.put((byte) ':');
+            putTwoDigits(minutes);
+            buffer.put((byte) ':');
+            putTwoDigits(seconds);
+        }
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Write " YYYY-MM-DD" of an epoch day
+     */
+    private void putDate(long days) {
+        TimeConvert.civilFromDays(days, date);
+        buffer.put((byte) ' ');
+        putTwoDigits(date[0] / 100);
+        putTwoDigits(date[0] % 100);
+        buffer.put((byte) '-');
+        putTwoDigits(date[1]);
+        buffer.put((byte) '-');
+        putTwoDigits(date[2]);
+    }
+
+    private void putTwoDigits(long value) {
+        if(value < 10)
+            buffer.put((byte) '0');
+        int digits = 1;
+        for(long temp = value / 10; temp > 0; temp /= 10)
+            digits++;
+        putNumber(value, digits);
+    }
+
+    private void putNumber(long value, int digits) {
+        int end = buffer.position() + digits;
+        for(int i = end - 1; i >= end - digits; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Flush the buffer if it can't hold n more bytes
+     */
+    private void ensure(int n) {
+        if(buffer.remaining() < n)
+            flush();
+    }
+
+    /**
+     * Write the buffered bytes to the channel(s)
+     */
+    public void flush() {
+        try {
+            buffer.flip();
+            if(echo != null) {
+                ByteBuffer copy = buffer.duplicate();
+                while(copy.hasRemaining())
+                    echo.write(copy);
+            }
+            while(buffer.hasRemaining())
+                position += channel.write(buffer);
+            buffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flush the buffer, eg: before a checkpoint
+     * @return bytes written to the output so far
+     */
+    public long flushPosition() {
+        flush();
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private static byte[] buildTimeTable() {
+        byte[] table = new byte[SECONDS_OF_DAY * 8];
+        for(int t = 0; t < SECONDS_OF_DAY; t++) {
+            int hours = t / 3600;
+            int minutes = t / 60 % 60;
+            int seconds = t % 60;
+            int i = t * 8;
+            table[i] = (byte) ('0' + hours / 10);
+            table[i + 1] = (byte) ('0' + hours % 10);
+            table[i + 2] = ':';
+            table[i + 3] = (byte) ('0' + minutes / 10);
+            table[i + 4] = (byte) ('0' + minutes % 10);
+            table[i + 5] = ':';
+            table[i + 6] = (byte) ('0' + seconds / 10);
+            table[i + 7] = (byte) ('0' + seconds % 10);
+        }
+        return table;
+    }
+
+}
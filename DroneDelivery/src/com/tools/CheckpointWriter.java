@@ -0,0 +1,139 @@
+package com.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+
+/**
+ * Encode and write checkpoints to a file from a background thread, so the
+ * scheduler only pays for copying its state, never for encoding it or for the disk.
+ *      |-- the submitted state must not change afterwards, it is encoded by the writer
+ *      |-- a checkpoint is written to "path.tmp", forced to the disk, then
+ *          renamed over path: path always holds a whole checkpoint
+ *      |-- if the writer is still busy when a newer checkpoint comes, the
+ *          older one is skipped, only the latest state matters
+ *      |-- close() writes the last submitted checkpoint, then stops the thread
+ *
+ *
+ */
+public class CheckpointWriter implements Closeable {
+
+    private final Path path;
+    private final Path temp;
+    private final Thread thread;
+    /**
+     * Latest checkpoint not written yet, guarded by this
+     */
+    private Supplier<byte[]> pending;
+    private boolean closed;
+    private long written;
+    private IOException failure;
+
+    /**
+     * Start the writer thread
+     * @param path checkpoint file path
+     */
+    public CheckpointWriter(String path) {
+        this.path = Paths.get(path);
+        this.temp = Paths.get(path + ".tmp");
+        thread = new Thread(this::run, "checkpoint-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hand a checkpoint to the writer, replacing the one not written yet
+     * @param checkpoint encodes the checkpoint, called by the writer thread
+     * @throws IOException if a previous checkpoint couldn't be written
+     */
+    public synchronized void submit(Supplier<byte[]> checkpoint) throws IOException {
+        if(failure != null)
+            throw failure;
+        if(closed)
+            throw new IOException("The checkpoint writer is closed");
+        pending = checkpoint;
+        notifyAll();
+    }
+
+    private void run() {
+        while(true) {
+            Supplier<byte[]> checkpoint;
+            synchronized (this) {
+                while(pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if(pending == null)
+                    return;
+                checkpoint = pending;
+                pending = null;
+            }
+            try {
+                write(checkpoint.get());
+                synchronized (this) {
+                    written++;
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                return;
+            }
+        }
+    }
+
+    private void write(byte[] checkpoint) throws IOException {
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint);
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return number of checkpoints written to the disk so far
+     */
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Write the last submitted checkpoint and stop the writer thread
+     * @throws IOException if a checkpoint couldn't be written
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if(failure != null)
+                throw failure;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.tools;
+
+
+/**
+ * Coordinates Tool class packs the signed coordinates of a location
+ * into one long, so a location is kept and compared without any object:
+ *      |-- x(East positive) in the high 32 bits, y(North positive) in the low 32 bits
+ *      |-- the warehouse is at 0, eg: "N50E40" --> x = 40, y = 50
+ *
+ *
+ */
+
+public class Coordinates {
+
+    /**
+     * Location of the warehouse
+     */
+    public final static long ORIGIN = 0;
+
+    /**
+     * @param x East coordinate, negative to the West
+     * @param y North coordinate, negative to the South
+     * @return packed location
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param location packed location
+     * @return East coordinate, negative to the West
+     */
+    public static int x(long location) {
+        return (int) (location >> 32);
+    }
+
+    /**
+     * @param location packed location
+     * @return North coordinate, negative to the South
+     */
+    public static int y(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Manhattan distance between two locations
+     * @param a packed location
+     * @param b packed location
+     * @return distance
+     */
+    public static long distance(long a, long b) {
+        return Math.abs((long) x(a) - x(b)) + Math.abs((long) y(a) - y(b));
+    }
+
+    /**
+     * Convert a direction such as "N50E40" to a packed location.
+     * A leg goes along the y-axis for N/S, along the x-axis for E/W.
+     * @param direction
+     * @return packed location
+     */
+    public static long parse(String direction) {
+        int i = 1;
+        while(!isDirectionLetter(direction.charAt(i)))
+            i++;
+        int x = 0;
+        int y = 0;
+        for(int leg = 0; leg < 2; leg++) {
+            char letter = direction.charAt(leg == 0 ? 0 : i);
+            int value = leg == 0 ? Integer.parseInt(direction.substring(1, i))
+                    : Integer.parseInt(direction.substring(i + 1));
+            if(letter == 'N')
+                y += value;
+            else if(letter == 'S')
+                y -= value;
+            else if(letter == 'E')
+                x += value;
+            else
+                x -= value;
+        }
+        return pack(x, y);
+    }
+
+    /**
+     * Format a location as a direction, N/S then E/W: 40, 50 --> "N50E40"
+     * @param location packed location
+     * @return direction
+     */
+    public static String format(long location) {
+        int x = x(location);
+        int y = y(location);
+        return "" + (y >= 0 ? 'N' : 'S') + Math.abs(y) + (x >= 0 ? 'E' : 'W') + Math.abs(x);
+    }
+
+    /**
+     * Format a location reached by a given Manhattan distance as a direction.
+     * A distance longer than the location keeps its opposite legs, so the
+     * direction parses back to both: 0, 0 at distance 60 --> "N30S30"
+     * @param location packed location
+     * @param distance sum of the two legs
+     * @return direction
+     */
+    public static String format(long location, long distance) {
+        int x = x(location);
+        int y = y(location);
+        long extra = distance - Math.abs((long) x) - Math.abs((long) y);
+        if(extra <= 0)
+            return format(location);
+        // two legs only go back on one axis, the other one is 0
+        if(x == 0)
+            return "N" + (distance + y) / 2 + "S" + (distance - y) / 2;
+        return "E" + (distance + x) / 2 + "W" + (distance - x) / 2;
+    }
+
+    private static boolean isDirectionLetter(char c) {
+        return c == 'N' || c == 'E' || c == 'W' || c == 'S';
+    }
+
+}
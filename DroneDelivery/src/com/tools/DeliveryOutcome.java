@@ -0,0 +1,126 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+
+/**
+ * The outcome of one dispatch decision, handed to the OutcomeConsumers of a scheduler.
+ * A scheduler has one DeliveryOutcome and fills it again for every order, so
+ * nothing is allocated per order: a consumer must copy what it keeps, never the outcome.
+ *
+ *
+ */
+public class DeliveryOutcome {
+
+    private DroneOrder order;
+    private int eID;
+    private long departureTime;
+    private long deliveryTime;
+    private long flightTime;
+    private long waitingTime;
+    private Satisfaction satisfaction;
+    private int queueDepth;
+    private boolean dropped;
+
+    /**
+     * Fill the outcome of the next decision
+     * @param order delivered order, null for the schedulers working on easy IDs only
+     * @param eID easy ID of the delivered order
+     * @param departureTime in seconds
+     * @param deliveryTime one way delivery time, in seconds
+     * @param waitingTime from the order to the delivery, in seconds
+     * @param satisfaction NPS category of the waiting time
+     * @param queueDepth number of orders still waiting when the drone leaves
+     */
+    public void set(DroneOrder order, int eID, long departureTime, long deliveryTime, long waitingTime,
+                    Satisfaction satisfaction, int queueDepth) {
+        set(order, eID, departureTime, deliveryTime, deliveryTime * 2, waitingTime, satisfaction, queueDepth);
+    }
+
+    /**
+     * Fill the outcome of the next decision, for an order which is not a round trip of its own
+     * @param order delivered order, null for the schedulers working on easy IDs only
+     * @param eID easy ID of the delivered order
+     * @param departureTime in seconds
+     * @param deliveryTime time from the departure to the delivery, in seconds
+     * @param flightTime flight time charged to this order, in seconds:
+     *                   the whole trip for the first order of a multi-stop trip, 0 for the others
+     * @param waitingTime from the order to the delivery, in seconds
+     * @param satisfaction NPS category of the waiting time
+     * @param queueDepth number of orders still waiting when the drone leaves
+     */
+    public void set(DroneOrder order, int eID, long departureTime, long deliveryTime, long flightTime,
+                    long waitingTime, Satisfaction satisfaction, int queueDepth) {
+        this.order = order;
+        this.eID = eID;
+        this.departureTime = departureTime;
+        this.deliveryTime = deliveryTime;
+        this.flightTime = flightTime;
+        this.waitingTime = waitingTime;
+        this.satisfaction = satisfaction;
+        this.queueDepth = queueDepth;
+        this.dropped = false;
+    }
+
+    /**
+     * Fill the outcome of an order which is dropped, not delivered: it counts as a
+     * detractor, the drone doesn't fly for it
+     * @param order dropped order
+     * @param eID easy ID of the dropped order
+     * @param time when the order is dropped, in seconds
+     * @param waitingTime from the order to the drop, in seconds
+     * @param queueDepth number of orders still waiting
+     */
+    public void setDropped(DroneOrder order, int eID, long time, long waitingTime, int queueDepth) {
+        set(order, eID, time, 0, 0, waitingTime, Satisfaction.DETRACTORS, queueDepth);
+        this.dropped = true;
+    }
+
+    /**
+     * @return delivered order, null for the schedulers working on easy IDs only
+     */
+    public DroneOrder getOrder() {
+        return order;
+    }
+
+    public int geteID() {
+        return eID;
+    }
+
+    public long getDepartureTime() {
+        return departureTime;
+    }
+
+    public long getDeliveryTime() {
+        return deliveryTime;
+    }
+
+    /**
+     * @return delivery and fly back time, in seconds, the whole trip for
+     *          the first order of a multi-stop trip and 0 for the others
+     */
+    public long getFlightTime() {
+        return flightTime;
+    }
+
+    public long getWaitingTime() {
+        return waitingTime;
+    }
+
+    public Satisfaction getSatisfaction() {
+        return satisfaction;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return whether the order is dropped, not delivered: the departure time is
+     *          the time of the drop, the delivery and flight times are 0
+     */
+    public boolean isDropped() {
+        return dropped;
+    }
+
+}
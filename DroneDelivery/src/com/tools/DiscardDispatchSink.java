@@ -0,0 +1,34 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+
+/**
+ * Drop the dispatch decisions, when only the NPS counters of
+ * the scheduler matter, eg: comparisons and benchmarks
+ *
+ *
+ */
+public class DiscardDispatchSink implements DispatchSink {
+
+    @Override
+    public void dispatch(DroneOrder order, long departureTime) {
+    }
+
+    @Override
+    public void dispatch(int eID, long departureTime, boolean dated) {
+    }
+
+    @Override
+    public void drop(DroneOrder order, long time) {
+    }
+
+    @Override
+    public void finish(double nps) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
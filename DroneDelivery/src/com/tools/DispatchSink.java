@@ -0,0 +1,46 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+import java.io.Closeable;
+
+
+/**
+ * DispatchSink receives the dispatch decisions of a scheduler as they are made,
+ * instead of the scheduler keeping them in its result lists.
+ * Each decision is one "WMXXXX HH:MM:SS" record, "WMXXXX dropped HH:MM:SS"
+ * for an order which is not delivered, and the NPS line
+ * is written once the scheduling is finished.
+ *
+ *
+ */
+public interface DispatchSink extends Closeable {
+
+    /**
+     * An order is dispatched
+     * @param order delivered order
+     * @param departureTime in seconds
+     */
+    void dispatch(DroneOrder order, long departureTime);
+
+    /**
+     * An order is dispatched, for the schedulers working on easy IDs only
+     * @param eID easy ID of the delivered order, eg: WM1234 --> 1234
+     * @param departureTime in seconds, epoch seconds if dated
+     * @param dated whether the time is written with its date
+     */
+    void dispatch(int eID, long departureTime, boolean dated);
+
+    /**
+     * An order is dropped, not delivered, eg: a perishable order which missed its deadline
+     * @param order dropped order
+     * @param time when the order is dropped, in seconds
+     */
+    void drop(DroneOrder order, long time);
+
+    /**
+     * The scheduling is finished, write the NPS line
+     * @param nps
+     */
+    void finish(double nps);
+}
@@ -0,0 +1,142 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * LiveOrderQueue is a Queue of orders which are still coming, such as orders
+ * received over the network. Producers offer() orders, and a scheduler pulls
+ * them as it does from a file:
+ *      |-- peek(), poll() and isEmpty() wait until an order comes or the queue is closed
+ *      |-- once closed and drained, the queue is empty and the scheduler finishes
+ * So the scheduler only decides what to do at a time once it has seen an
+ * order coming after that time, or the end of the stream.
+ *
+ * Orders must be offered in time sequence, an order coming before the
+ * last accepted one is refused.
+ *
+ *
+ */
+public class LiveOrderQueue extends AbstractQueue<DroneOrder> implements Closeable {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final ArrayDeque<DroneOrder> orders = new ArrayDeque<>();
+    /**
+     * Time of the last accepted order
+     */
+    private long lastTime = Long.MIN_VALUE;
+    private boolean closed;
+
+    /**
+     * Accept an order, if it doesn't come before the last accepted one
+     * @param order
+     * @return false if the order is out of time sequence, or the queue is closed
+     */
+    @Override
+    public boolean offer(DroneOrder order) {
+        lock.lock();
+        try {
+            if(closed || order.geteTime() < lastTime)
+                return false;
+            lastTime = order.geteTime();
+            orders.offer(order);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until an order comes or the queue is closed
+     * @return head order, null if the queue is closed and drained
+     */
+    @Override
+    public DroneOrder peek() {
+        lock.lock();
+        try {
+            while(orders.isEmpty() && !closed)
+                notEmpty.await();
+            return orders.peek();
+        } catch (InterruptedException e) {
+            // stop waiting, the caller sees the end of the stream
+            Thread.currentThread().interrupt();
+            return orders.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until an order comes or the queue is closed
+     * @return head order, null if the queue is closed and drained
+     */
+    @Override
+    public DroneOrder poll() {
+        lock.lock();
+        try {
+            DroneOrder order = peek();
+            if(order != null)
+                orders.poll();
+            return order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * @return number of orders received and not polled yet, doesn't wait
+     */
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return orders.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException a live queue can only be polled
+     */
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        throw new UnsupportedOperationException("A live queue can only be polled");
+    }
+
+    /**
+     * No more order comes, the waiting scheduler goes on with the received orders
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
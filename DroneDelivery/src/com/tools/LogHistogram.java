@@ -0,0 +1,118 @@
+package com.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A histogram of non-negative long values with a constant memory, whatever
+ * the range of the values, in the way of a high dynamic range histogram:
+ *      |-- values below 2 * SUB_BUCKETS have a bucket each, they are exact
+ *      |-- above, each power of 2 is cut into SUB_BUCKETS buckets, so a value
+ *          is known within 1 / SUB_BUCKETS of itself (less than 1%)
+ *      |-- the whole long range takes 7296 buckets
+ * A percentile is reported as the highest value of its bucket, never more than the max.
+ *
+ * One thread records, any thread can read while it goes on: the counters are
+ * written with lazySet, the readers see a recent state, never a torn value.
+ *
+ *
+ */
+public class LogHistogram {
+
+    private final static int SUB_BUCKET_BITS = 7;
+    private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private final static int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value once
+     * @param value non-negative
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Record a value several times, such as a queue depth weighted by the
+     * seconds it lasted
+     * @param value non-negative
+     * @param times
+     */
+    public void record(long value, long times) {
+        if(value < 0)
+            throw new IllegalArgumentException("Negative value " + value);
+        if(times <= 0)
+            return;
+        int index = bucket(value);
+        counts.lazySet(index, counts.get(index) + times);
+        count.lazySet(count.get() + times);
+        total.lazySet(total.get() + value * times);
+        if(value > max.get())
+            max.lazySet(value);
+    }
+
+    /**
+     * @param value
+     * @return index of the bucket of the value
+     */
+    static int bucket(long value) {
+        if(value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @param index
+     * @return highest value of the bucket
+     */
+    static long highestValue(int index) {
+        if(index < 2 * SUB_BUCKETS)
+            return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return value which percentile % of the recorded values are not above, 0 if empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        long recorded = count.get();
+        if(recorded == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * recorded));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if(seen >= rank)
+                return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the recorded values, 0 if empty
+     */
+    public double getMean() {
+        long recorded = count.get();
+        if(recorded == 0)
+            return 0;
+        return total.get() / (double) recorded;
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Read orders from a memory-mapped file, one line at a time, without
+ * creating any String. Each line is US-ASCII and formatted as:
+ *      WMdddd [NEWS]d+[NEWS]d+ HH:MM:SS
+ * The three fields are validated and decoded in a single scan of the bytes
+ * by an OrderLineParser.
+ * Invalid lines are skipped and counted, blank lines are ignored.
+ *
+ * Usage:
+ *      while(reader.next()) { reader.geteID(); reader.geteTime(); ... }
+ *
+ * The file is mapped in windows, so files larger than 2GB can be read.
+ *
+ *
+ */
+public class MappedOrderReader implements Closeable {
+
+    /**
+     * Size of one mapped window of the file
+     */
+    private final static long WINDOW = 1L << 28;
+
+    private FileChannel channel;
+    private long fileSize;
+    /**
+     * Current mapped window, and the file offset of its first byte
+     */
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    /**
+     * File offset of the next unread line
+     */
+    private long position;
+    private long lineStart;
+    private long invalidLines;
+
+    /**
+     * Decodes the lines, and keeps the fields of the current order
+     */
+    private final OrderLineParser parser = new OrderLineParser();
+
+    /**
+     * Open a file for reading
+     * @param path
+     * @throws IOException, NoSuchFileException
+     */
+    public MappedOrderReader(String path) throws IOException {
+        this(Paths.get(path), 0);
+    }
+
+    /**
+     * Open a file for reading, starting at a line boundary
+     * @param path
+     * @param offset file offset of the first line to read
+     * @throws IOException, NoSuchFileException
+     */
+    public MappedOrderReader(Path path, long offset) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        position = offset;
+    }
+
+    /**
+     * Move to the next valid order
+     * @return false if there is no more order in the file
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        while(position < fileSize) {
+            if(buffer == null || position < bufferStart || position >= bufferStart + buffer.limit())
+                map(position);
+            int begin = (int) (position - bufferStart);
+            int limit = buffer.limit();
+            int end = begin;
+            while(end < limit && buffer.get(end) != '\n')
+                end++;
+            if(end == limit && bufferStart + limit < fileSize) {
+                // the line crosses the end of the window
+                if(begin == 0)
+                    throw new IOException("Line too long at offset " + position);
+                map(position);
+                continue;
+            }
+            lineStart = position;
+            position = bufferStart + Math.min(end + 1, limit);
+            int lineEnd = end;
+            if(lineEnd > begin && buffer.get(lineEnd - 1) == '\r')
+                lineEnd--;
+            if(lineEnd == begin)
+                continue; // blank line
+            if(parser.parse(buffer, begin, lineEnd))
+                return true;
+            invalidLines++;
+        }
+        return false;
+    }
+
+    private void map(long offset) throws IOException {
+        bufferStart = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, fileSize - offset));
+    }
+
+    /**
+     * @return easy ID of the current order, eg: WM1234 --> 1234
+     */
+    public int geteID() {
+        return parser.geteID();
+    }
+
+    /**
+     * @return signed x coordinate of the current order, East is positive
+     */
+    public int getX() {
+        return parser.getX();
+    }
+
+    /**
+     * @return signed y coordinate of the current order, North is positive
+     */
+    public int getY() {
+        return parser.getY();
+    }
+
+    /**
+     * @return Manhattan distance of the current order
+     */
+    public int getEdistance() {
+        return parser.getEdistance();
+    }
+
+    /**
+     * @return time of the current order, in seconds
+     */
+    public long geteTime() {
+        return parser.geteTime();
+    }
+
+    /**
+     * @return latest delivery time of the current order, DroneOrder.NO_DEADLINE if none
+     */
+    public long getDeadline() {
+        return parser.getDeadline();
+    }
+
+    /**
+     * @return whether the current order has a date, its time is then in epoch seconds
+     */
+    public boolean isDated() {
+        return parser.isDated();
+    }
+
+    /**
+     * Build the direction field of the current order as a String, such as "N50E40".
+     * This is the only getter which allocates.
+     * @return direction as written in the file
+     */
+    public String getOrderDirection() {
+        return parser.getOrderDirection(buffer);
+    }
+
+    /**
+     * @return file offset of the current order's line
+     */
+    public long getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * @return file offset of the next unread line
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return number of skipped invalid lines
+     */
+    public long getInvalidLines() {
+        return invalidLines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Lock-free multi-producer / single-consumer queue of orders.
+ *      |-- any number of threads offer() at the same time: one atomic swap of
+ *          the tail, then the old tail is linked to the new node. No lock, no retry loop.
+ *      |-- one consumer thread (the dispatcher) peeks and polls. When no order
+ *          is waiting it spins for a while, then parks until a producer unparks it.
+ *      |-- after close(), offers are refused, and the consumer sees the end of the
+ *          stream once every order accepted before is consumed.
+ *
+ * Like LiveOrderQueue, peek(), poll() and isEmpty() wait for the next order,
+ * so a scheduler pulls from it as from a file.
+ *
+ *
+ */
+public class MpscOrderQueue extends AbstractQueue<DroneOrder> implements Closeable {
+
+    /**
+     * Times the consumer checks for an order before parking,
+     * spinning on a single processor only delays the producers
+     */
+    private final static int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 1 << 10 : 1;
+
+    /**
+     * Consumer side: the last consumed node, its next node is the head
+     */
+    private Node head;
+    /**
+     * Producer side: the last offered node
+     */
+    private final AtomicReference<Node> tail;
+    /**
+     * Producers between the closed check and the end of their offer
+     */
+    private final LongAdder offering = new LongAdder();
+    private volatile boolean closed;
+    /**
+     * The consumer thread, when it is parked or about to.
+     * The first producer which takes it unparks it, the others don't pay for it.
+     */
+    private final AtomicReference<Thread> waiter = new AtomicReference<>();
+
+    public MpscOrderQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Add an order, from any thread
+     * @param order
+     * @return false if the queue is closed
+     */
+    @Override
+    public boolean offer(DroneOrder order) {
+        Objects.requireNonNull(order);
+        offering.increment();
+        try {
+            if(closed)
+                return false;
+            Node node = new Node(order);
+            Node prev = tail.getAndSet(node);
+            prev.next = node;
+            if(waiter.get() != null)
+                wakeUp();
+            return true;
+        } finally {
+            offering.decrement();
+        }
+    }
+
+    /**
+     * Consumer only. Wait until an order comes or the queue is closed and drained.
+     * @return head order, null at the end of the stream
+     */
+    @Override
+    public DroneOrder peek() {
+        Node next = head.next;
+        int spins = 0;
+        while(next == null) {
+            if(closed && offering.sum() == 0 && tail.get() == head && head.next == null)
+                return null;
+            if(++spins < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                waiter.set(Thread.currentThread());
+                // check again after publishing the waiter, so a producer can't miss it
+                if(head.next == null && !closed)
+                    LockSupport.park(this);
+                waiter.set(null);
+                spins = 0;
+                if(Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    return head.next == null ? null : head.next.order;
+                }
+            }
+            next = head.next;
+        }
+        return next.order;
+    }
+
+    /**
+     * Consumer only. Wait until an order comes or the queue is closed and drained.
+     * @return head order, null at the end of the stream
+     */
+    @Override
+    public DroneOrder poll() {
+        DroneOrder order = peek();
+        if(order != null) {
+            Node next = head.next;
+            head = next;
+            next.order = null; // the node becomes the sentinel
+        }
+        return order;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * No more order is accepted, the consumer goes on with the accepted ones
+     */
+    @Override
+    public void close() {
+        closed = true;
+        wakeUp();
+    }
+
+    private void wakeUp() {
+        Thread consumer = waiter.getAndSet(null);
+        if(consumer != null)
+            LockSupport.unpark(consumer);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @throws UnsupportedOperationException the length of a concurrent stream is unknown
+     */
+    @Override
+    public int size() {
+        throw new UnsupportedOperationException("The size of a concurrent stream is unknown");
+    }
+
+    /**
+     * @throws UnsupportedOperationException a stream can only be polled
+     */
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        throw new UnsupportedOperationException("A stream can only be polled");
+    }
+
+    private static class Node {
+
+        private DroneOrder order;
+        private volatile Node next;
+
+        Node(DroneOrder order) {
+            this.order = order;
+        }
+    }
+
+}
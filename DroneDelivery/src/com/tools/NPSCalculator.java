@@ -10,6 +10,9 @@ package com.tools;
  * 1 < Waiting Time <= 3 hours : Neutral
  * 3 < Waiting Time            : Detractors
  *
+ * The table is DEFAULT, other cutoffs can be used by creating a calculator,
+ * the schedulers take one with setCalculator().
+ *
  *
  */
 
@@ -19,19 +22,55 @@ public class NPSCalculator {
     public final static int  DETRACTORS = 60 * 60 * 3;
 
     /**
-     * Calculate which category the watingTime belongs to.
+     * The given table
+     */
+    public final static NPSCalculator DEFAULT = new NPSCalculator(PROMOTERS, NEUTRAL);
+
+    private final long promotersCutoff;
+    private final long neutralCutoff;
+
+    /**
+     * @param promotersCutoff longest waiting time of a promoter, in seconds
+     * @param neutralCutoff longest waiting time of a neutral, in seconds
+     */
+    public NPSCalculator(long promotersCutoff, long neutralCutoff) {
+        if(promotersCutoff < 0 || promotersCutoff > neutralCutoff)
+            throw new IllegalArgumentException("Promoters cutoff must be between 0 and the neutral cutoff");
+        this.promotersCutoff = promotersCutoff;
+        this.neutralCutoff = neutralCutoff;
+    }
+
+    /**
+     * Calculate which category the waitingTime belongs to.
+     * @param waitingTime in seconds
+     * @return category
+     */
+    public Satisfaction classify(long waitingTime) {
+        if(waitingTime < 0)
+            return Satisfaction.INVALID;
+        else if(waitingTime <= promotersCutoff)
+            return Satisfaction.PROMOTERS;
+        else if(waitingTime <= neutralCutoff)
+            return Satisfaction.NEUTRAL;
+        else
+            return Satisfaction.DETRACTORS;
+    }
+
+    public long getPromotersCutoff() {
+        return promotersCutoff;
+    }
+
+    public long getNeutralCutoff() {
+        return neutralCutoff;
+    }
+
+    /**
+     * Calculate which category the watingTime belongs to, with the given table.
      * All the calculations are second based.
      * @param waitingTime in seconds
      * @return category, including "Invalid", "Promoters", "Neutral", "Detractors".
      */
     public static String calculateSatisfaction(long waitingTime) {
-        if(waitingTime < 0)
-            return "Invalid";
-        else if(waitingTime <= PROMOTERS)   // shorter than 1 hour
-            return "Promoters";
-        else if(waitingTime <= NEUTRAL) // shorter than 3 hours
-            return "Neutral";
-        else
-            return "Detractors";
+        return DEFAULT.classify(waitingTime).getLabel();
     }
 }
@@ -0,0 +1,232 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * Validate and decode one US-ASCII order line, without creating any String:
+ *      WMdddd [NEWS]d+[NEWS]d+ [YYYY-MM-DD ]HH:MM:SS[ HH:MM:SS]
+ * The three fields are checked in a single scan of the bytes, with the same
+ * rules as DroneOrder, DroneOrderDirection and DroneOrderTime. With a date,
+ * the time is in epoch seconds, as in DroneOrderTime. The optional last
+ * field is the delivery window of a perishable order: its deadline is the
+ * time plus the window. Following fields, separated by a space, are ignored.
+ *
+ * The fields of the last valid line are kept until the next valid line,
+ * so one parser is reused for all the lines of a file or a connection.
+ *
+ *
+ */
+public class OrderLineParser {
+
+    private int eID;
+    private int x;
+    private int y;
+    private int distance;
+    private long eTime;
+    private long deadline;
+    private boolean dated;
+    /**
+     * Direction field of the last valid line in its buffer
+     */
+    private int directionStart;
+    private int directionEnd;
+
+    /**
+     * Parse the bytes of a line, the position of the buffer is not changed
+     * @param buffer
+     * @param i first byte of the line
+     * @param end end of the line, exclusive, without the line separator
+     * @return whether the line is a valid order
+     */
+    public boolean parse(ByteBuffer buffer, int i, int end) {
+        // OrderID: WM + 4 digits
+        if(end - i < 6 || buffer.get(i) != 'W' || buffer.get(i + 1) != 'M')
+            return false;
+        int id = 0;
+        for(int k = i + 2; k < i + 6; k++) {
+            int d = buffer.get(k) - '0';
+            if(d < 0 || d > 9)
+                return false;
+            id = id * 10 + d;
+        }
+        i += 6;
+        if(i >= end || buffer.get(i++) != ' ')
+            return false;
+
+        // Direction: [NEWS]d+[NEWS]d+
+        int dirStart = i;
+        int xAxis = 0;
+        int yAxis = 0;
+        int legs = 0;
+        for(int leg = 0; leg < 2; leg++) {
+            if(i >= end)
+                return false;
+            byte letter = buffer.get(i++);
+            if(letter != 'N' && letter != 'E' && letter != 'W' && letter != 'S')
+                return false;
+            int value = 0;
+            int digits = 0;
+            while(i < end) {
+                int d = buffer.get(i) - '0';
+                if(d < 0 || d > 9)
+                    break;
+                if(++digits > 9)
+                    return false; // too large for an int
+                value = value * 10 + d;
+                i++;
+            }
+            if(digits == 0)
+                return false;
+            legs += value;
+            if(letter == 'N')
+                yAxis += value;
+            else if(letter == 'S')
+                yAxis -= value;
+            else if(letter == 'E')
+                xAxis += value;
+            else
+                xAxis -= value;
+        }
+        int dirEnd = i;
+        if(i >= end || buffer.get(i++) != ' ')
+            return false;
+
+        // Date: optional YYYY-MM-DD
+        long epochDay = 0;
+        boolean withDate = end - i >= 11 && buffer.get(i + 4) == '-';
+        if(withDate) {
+            if(buffer.get(i + 7) != '-' || buffer.get(i + 10) != ' ')
+                return false;
+            int century = twoDigits(buffer, i);
+            int yearOfCentury = twoDigits(buffer, i + 2);
+            int month = twoDigits(buffer, i + 5);
+            int day = twoDigits(buffer, i + 8);
+            if(century < 0 || yearOfCentury < 0 || month < 0 || day < 0)
+                return false;
+            int year = century * 100 + yearOfCentury;
+            if(!TimeConvert.isValidDate(year, month, day))
+                return false;
+            epochDay = TimeConvert.daysFromCivil(year, month, day);
+            if(epochDay < 0)
+                return false; // same as DroneOrderTime, no time before 1970
+            i += 11;
+        }
+
+        // Time: HH:MM:SS
+        if(end - i < 8 || buffer.get(i + 2) != ':' || buffer.get(i + 5) != ':')
+            return false;
+        int hour = twoDigits(buffer, i);
+        int minute = twoDigits(buffer, i + 3);
+        int second = twoDigits(buffer, i + 6);
+        if(hour < 0 || minute < 0 || second < 0)
+            return false;
+        // same range check as TimeConvert.strToInt
+        if(hour > 24 || minute > 60 || second > 60)
+            return false;
+        i += 8;
+        // Delivery window: optional HH:MM:SS
+        long window = -1;
+        if(end - i >= 9 && buffer.get(i) == ' ' && buffer.get(i + 3) == ':' && buffer.get(i + 6) == ':'
+                && (end - i == 9 || buffer.get(i + 9) == ' ')) {
+            int windowHour = twoDigits(buffer, i + 1);
+            int windowMinute = twoDigits(buffer, i + 4);
+            int windowSecond = twoDigits(buffer, i + 7);
+            if(windowHour < 0 || windowMinute < 0 || windowSecond < 0
+                    || windowHour > 24 || windowMinute > 60 || windowSecond > 60)
+                return false;
+            window = windowHour * 3600 + windowMinute * 60 + windowSecond;
+            i += 9;
+        }
+        // following fields are ignored, as the String parser does
+        if(i < end && buffer.get(i) != ' ')
+            return false;
+
+        this.eID = id;
+        this.x = xAxis;
+        this.y = yAxis;
+        this.distance = legs;
+        this.eTime = epochDay * TimeConvert.SECONDS_OF_DAY + hour * 3600 + minute * 60 + second;
+        this.deadline = window < 0 ? DroneOrder.NO_DEADLINE : this.eTime + window;
+        this.dated = withDate;
+        this.directionStart = dirStart;
+        this.directionEnd = dirEnd;
+        return true;
+    }
+
+    /**
+     * @return the two digits number at i, -1 if they are not digits
+     */
+    private static int twoDigits(ByteBuffer buffer, int i) {
+        int high = buffer.get(i) - '0';
+        int low = buffer.get(i + 1) - '0';
+        if(high < 0 || high > 9 || low < 0 || low > 9)
+            return -1;
+        return high * 10 + low;
+    }
+
+    /**
+     * @return easy ID of the last order, eg: WM1234 --> 1234
+     */
+    public int geteID() {
+        return eID;
+    }
+
+    /**
+     * @return signed x coordinate of the last order, East is positive
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return signed y coordinate of the last order, North is positive
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return Manhattan distance of the last order
+     */
+    public int getEdistance() {
+        return distance;
+    }
+
+    /**
+     * @return time of the last order, in seconds, epoch seconds if dated
+     */
+    public long geteTime() {
+        return eTime;
+    }
+
+    /**
+     * @return latest delivery time of the last order, in seconds as its time,
+     *          DroneOrder.NO_DEADLINE if it has no delivery window
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * @return whether the last order has a date
+     */
+    public boolean isDated() {
+        return dated;
+    }
+
+    /**
+     * Build the direction field of the last order as a String, such as "N50E40"
+     * @param buffer the buffer the line was parsed from, not modified since
+     * @return direction as written in the line
+     */
+    public String getOrderDirection(ByteBuffer buffer) {
+        char[] direction = new char[directionEnd - directionStart];
+        for(int k = 0; k < direction.length; k++)
+            direction[k] = (char) buffer.get(directionStart + k);
+        return new String(direction);
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.tools;
+
+import com.delivery.DroneOrder;
+import com.delivery.DroneOrderDirection;
+import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderStore;
+import com.delivery.DroneOrderTime;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+
+
+/**
+ * OrderStream is a Queue view of an order file, which the schedulers
+ * pull from lazily: a line is only parsed when it reaches the head of
+ * the queue. The memory used only depends on the orders currently waiting
+ * in the scheduler, not on the size of the file.
+ *
+ * Since the length of a stream is unknown, size() and iterator() are
+ * not supported. Use isEmpty(), peek() and poll() as the schedulers do.
+ *
+ *
+ */
+public class OrderStream extends AbstractQueue<DroneOrder> implements Closeable {
+
+    private MappedOrderReader reader;
+    /**
+     * Parsed head of the stream, null if not parsed yet
+     */
+    private DroneOrder head;
+    private boolean finished;
+
+    /**
+     * Open an order file as a stream
+     * @param path
+     * @throws IOException, NoSuchFileException
+     */
+    public OrderStream(String path) throws IOException {
+        reader = new MappedOrderReader(path);
+    }
+
+    /**
+     * Open an order file as a stream, starting at a line boundary
+     * @param path
+     * @param offset file offset of the first line
+     * @throws IOException, NoSuchFileException
+     */
+    public OrderStream(Path path, long offset) throws IOException {
+        reader = new MappedOrderReader(path, offset);
+    }
+
+    @Override
+    public DroneOrder peek() {
+        if(head == null && !finished) {
+            try {
+                if(reader.next()) {
+                    head = new DroneOrder(new DroneOrderID(DroneOrderStore.formatID(reader.geteID())),
+                            new DroneOrderDirection(reader.getOrderDirection()),
+                            new DroneOrderTime(reader.geteTime(), reader.isDated()));
+                    head.setDeadline(reader.getDeadline());
+                } else {
+                    finished = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return head;
+    }
+
+    @Override
+    public DroneOrder poll() {
+        DroneOrder order = peek();
+        head = null;
+        return order;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * File offset of the line of the head order, or of the end of the
+     * stream if there is no order left.
+     * @return offset to reopen the stream from
+     */
+    public long getPosition() {
+        if(peek() != null)
+            return reader.getLineStart();
+        return reader.getPosition();
+    }
+
+    /**
+     * @return number of invalid lines skipped so far
+     */
+    public long getInvalidLines() {
+        return reader.getInvalidLines();
+    }
+
+    /**
+     * Orders can only come from the file
+     * @throws UnsupportedOperationException
+     */
+    @Override
+    public boolean offer(DroneOrder order) {
+        throw new UnsupportedOperationException("OrderStream is read only");
+    }
+
+    /**
+     * @throws UnsupportedOperationException the length of a stream is unknown
+     */
+    @Override
+    public int size() {
+        throw new UnsupportedOperationException("The size of a stream is unknown");
+    }
+
+    /**
+     * @throws UnsupportedOperationException a stream can only be polled
+     */
+    @Override
+    public Iterator<DroneOrder> iterator() {
+        throw new UnsupportedOperationException("A stream can only be polled");
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
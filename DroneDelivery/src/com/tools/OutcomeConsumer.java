@@ -0,0 +1,25 @@
+package com.tools;
+
+
+/**
+ * OutcomeConsumer receives the outcome of every dispatch decision of a scheduler,
+ * besides its NPS counters and its dispatch sink, eg: SchedulerMetrics, RollingNPS.
+ * Consumers are called by the scheduler thread, in the order they were added.
+ *
+ *
+ */
+public interface OutcomeConsumer {
+
+    /**
+     * An order is dispatched. The outcome is filled again for the next order,
+     * copy what is kept.
+     * @param outcome
+     */
+    void accept(DeliveryOutcome outcome);
+
+    /**
+     * The scheduling is finished
+     */
+    default void finish() {
+    }
+}
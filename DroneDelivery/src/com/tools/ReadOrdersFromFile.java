@@ -3,7 +3,10 @@ package com.tools;
 import com.delivery.DroneOrder;
 import com.delivery.DroneOrderDirection;
 import com.delivery.DroneOrderID;
+import com.delivery.DroneOrderStore;
 import com.delivery.DroneOrderTime;
+import com.delivery.MappedOrderStore;
+import com.delivery.interfaces.OrderStore;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
@@ -38,14 +41,59 @@ public class ReadOrdersFromFile {
     }
 
     /**
-     * Convert a String Order to a DroneOrder Object
+     * Read all the orders of a file into a DroneOrderStore, using the
+     * byte level MappedOrderReader. No String is created while parsing.
+     * Invalid lines are skipped.
+     * @param path
+     * @return orders in file sequence
+     * @throws IOException, NoSuchFileException
+     */
+    public static DroneOrderStore readOrderStore(String path) throws IOException {
+        try(MappedOrderReader reader = new MappedOrderReader(path)) {
+            DroneOrderStore store = new DroneOrderStore((int) Math.min(Files.size(Paths.get(path)) / 20 + 1, Integer.MAX_VALUE - 8));
+            while(reader.next()) {
+                store.add(reader.geteID(), reader.getX(), reader.getY(), reader.getEdistance(), reader.geteTime());
+                if(reader.isDated())
+                    store.setDated(true);
+            }
+            store.trimToSize();
+            return store;
+        }
+    }
+
+    /**
+     * Open the orders of a file as an OrderStore: a binary trace is
+     * memory-mapped as it is, a text file is parsed into a DroneOrderStore.
+     * @param path
+     * @return orders in file sequence
+     * @throws IOException, NoSuchFileException
+     */
+    public static OrderStore openOrderStore(String path) throws IOException {
+        if(MappedOrderStore.isBinaryTrace(path))
+            return new MappedOrderStore(path);
+        return readOrderStore(path);
+    }
+
+    /**
+     * Convert a String Order to a DroneOrder Object, the time
+     * can be "HH:MM:SS" or "YYYY-MM-DD HH:MM:SS". An optional
+     * "HH:MM:SS" after the time is the delivery window of a perishable
+     * order, eg: "WM001 N11W5 05:11:50 00:30:00" must be delivered by 05:41:50
      * @param line -- String Order
      * @return DroneOrder
      */
     public static DroneOrder parseDroneOrder(String line) {
         String[] temp = line.split(" ");
+        boolean dated = temp.length > 3 && temp[2].indexOf('-') > 0;
+        String time = dated ? temp[2] + " " + temp[3] : temp[2];
         DroneOrder order =
-                new DroneOrder(new DroneOrderID(temp[0]), new DroneOrderDirection(temp[1]), new DroneOrderTime(temp[2]));
+                new DroneOrder(new DroneOrderID(temp[0]), new DroneOrderDirection(temp[1]), new DroneOrderTime(time));
+        int window = dated ? 4 : 3;
+        if(temp.length > window && temp[window].matches("\\d{2}:\\d{2}:\\d{2}")) {
+            int seconds = TimeConvert.strToInt(temp[window]);
+            if(seconds >= 0)
+                order.setDeadline(order.geteTime() + seconds);
+        }
         return order;
     }
 
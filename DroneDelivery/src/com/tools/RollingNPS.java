@@ -0,0 +1,230 @@
+package com.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Rolling NPS keeps the NPS of the last minutes, hours or days of a stream,
+ * besides the whole-run NPS of the scheduler:
+ *      |-- each window is a ring of time buckets, each bucket counts the
+ *          promoters, neutral and detractors dispatched in its time range
+ *      |-- a record adds one to one bucket, moving to a new bucket clears it
+ *          first: O(1) per order, memory fixed by the number of buckets
+ *      |-- a window ends at the latest record and covers its last buckets, so it
+ *          is between (buckets - 1) / buckets of its length and its whole length
+ * Times are the departure times of the orders, in seconds, epoch seconds if dated.
+ * It is an OutcomeConsumer, a scheduler feeds it with every decision.
+ *
+ * One thread records, any thread can read while it goes on: every bucket carries
+ * the number of the time range it counts, a reader retries a bucket which is
+ * being cleared, so it never mixes two time ranges.
+ *
+ *
+ */
+public class RollingNPS implements OutcomeConsumer {
+
+    public final static int DEFAULT_BUCKETS = 60;
+
+    private final NPSWindow[] windows;
+
+    /**
+     * Windows of DEFAULT_BUCKETS buckets each
+     * @param windowSeconds length of each window, such as 15 min, 1 hour, 1 day
+     */
+    public RollingNPS(long... windowSeconds) {
+        this(DEFAULT_BUCKETS, windowSeconds);
+    }
+
+    /**
+     * @param buckets number of buckets of each window
+     * @param windowSeconds length of each window
+     */
+    public RollingNPS(int buckets, long... windowSeconds) {
+        if(buckets < 1)
+            throw new IllegalArgumentException("A window needs at least one bucket");
+        if(windowSeconds.length == 0)
+            throw new IllegalArgumentException("No window");
+        windows = new NPSWindow[windowSeconds.length];
+        for(int i = 0; i < windowSeconds.length; i++) {
+            if(windowSeconds[i] < 1)
+                throw new IllegalArgumentException("Invalid window length " + windowSeconds[i]);
+            windows[i] = new NPSWindow(windowSeconds[i], buckets);
+        }
+    }
+
+    /**
+     * Count a dispatched order, called by the scheduler thread
+     * @param outcome
+     */
+    @Override
+    public void accept(DeliveryOutcome outcome) {
+        record(outcome.getDepartureTime(), outcome.getSatisfaction());
+    }
+
+    /**
+     * Count an order in every window
+     * @param time departure time, in seconds, never before the previous record
+     * @param satisfaction category of the order, invalid ones are not counted
+     */
+    public void record(long time, Satisfaction satisfaction) {
+        int category;
+        if(satisfaction == Satisfaction.PROMOTERS)
+            category = NPSWindow.PROMOTERS;
+        else if(satisfaction == Satisfaction.NEUTRAL)
+            category = NPSWindow.NEUTRAL;
+        else if(satisfaction == Satisfaction.DETRACTORS)
+            category = NPSWindow.DETRACTORS;
+        else
+            return;
+        for(NPSWindow window : windows)
+            window.record(time, category);
+    }
+
+    public int getWindowCount() {
+        return windows.length;
+    }
+
+    /**
+     * @param window index of the window
+     * @return length of the window, in seconds
+     */
+    public long getWindowLength(int window) {
+        return windows[window].length;
+    }
+
+    /**
+     * @param window index of the window
+     * @return {promoters, neutral, detractors} in the window now
+     */
+    public long[] getCounts(int window) {
+        return windows[window].counts();
+    }
+
+    /**
+     * @param window index of the window
+     * @return NPS of the orders in the window now, 0 if there is none
+     */
+    public double getNPS(int window) {
+        long[] counts = getCounts(window);
+        long total = counts[0] + counts[1] + counts[2];
+        if(total == 0)
+            return 0;
+        return ((counts[0] - counts[2]) / (double) total) * 100;
+    }
+
+    /**
+     * One window per line:
+     * eg: 01:00:00 NPS 42.5, orders 120
+     * @return formatted NPS of every window
+     */
+    @Override
+    public String toString() {
+        StringBuilder print = new StringBuilder();
+        for(int i = 0; i < windows.length; i++) {
+            long[] counts = getCounts(i);
+            long total = counts[0] + counts[1] + counts[2];
+            double nps = total == 0 ? 0 : ((counts[0] - counts[2]) / (double) total) * 100;
+            if(i > 0)
+                print.append('\n');
+            print.append(TimeConvert.longToStr(windows[i].length))
+                    .append(" NPS ").append(String.format("%.1f", nps))
+                    .append(", orders ").append(total);
+        }
+        return print.toString();
+    }
+
+}
+
+/**
+ * One sliding window: a ring of buckets, the bucket of time t being
+ * (t / width) % buckets. stamps[b] is the number (t / width) of the time
+ * range bucket b counts, -1 while it is being cleared. A bucket whose time
+ * range is out of the window is not counted, whatever it holds.
+ *
+ *
+ */
+class NPSWindow {
+
+    final static int PROMOTERS = 0;
+    final static int NEUTRAL = 1;
+    final static int DETRACTORS = 2;
+    private final static int CLEARING = -1;
+
+    final long length;
+    private final long width;
+    private final int buckets;
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray counts;
+    /**
+     * Number of the time range of the latest record, -1 before the first one
+     */
+    private final AtomicLong current = new AtomicLong(-1);
+
+    NPSWindow(long length, int buckets) {
+        this.length = length;
+        this.buckets = (int) Math.min(buckets, length);
+        this.width = (length + this.buckets - 1) / this.buckets;
+        stamps = new AtomicLongArray(this.buckets);
+        counts = new AtomicLongArray(this.buckets * 3);
+        for(int b = 0; b < this.buckets; b++)
+            stamps.set(b, CLEARING);
+    }
+
+    void record(long time, int category) {
+        long number = time / width;
+        long latest = current.get();
+        if(number > latest) {
+            // only the bucket taken over is cleared, the skipped ones are
+            // left to the readers, which ignore the buckets of expired time ranges
+            int bucket = (int) (number % buckets);
+            if(stamps.get(bucket) != number)
+                clear(bucket, number);
+            current.lazySet(number);
+        } else {
+            // a late order counts in the latest time range
+            number = latest;
+        }
+        int slot = (int) (number % buckets) * 3 + category;
+        counts.lazySet(slot, counts.get(slot) + 1);
+    }
+
+    /**
+     * Volatile writes, so a reader which sees a cleared count sees the stamp changed.
+     * Once per bucket width, the counting itself uses lazySet.
+     */
+    private void clear(int bucket, long number) {
+        stamps.set(bucket, CLEARING);
+        for(int c = 0; c < 3; c++)
+            counts.set(bucket * 3 + c, 0);
+        stamps.set(bucket, number);
+    }
+
+    /**
+     * @return {promoters, neutral, detractors} of the buckets in the window
+     */
+    long[] counts() {
+        long[] total = new long[3];
+        long latest = current.get();
+        if(latest < 0)
+            return total;
+        for(int b = 0; b < buckets; b++) {
+            while(true) {
+                long stamp = stamps.get(b);
+                long p = counts.get(b * 3 + PROMOTERS);
+                long n = counts.get(b * 3 + NEUTRAL);
+                long d = counts.get(b * 3 + DETRACTORS);
+                if(stamps.get(b) != stamp)
+                    continue;  // cleared meanwhile, read it again
+                if(stamp != CLEARING && stamp > latest - buckets) {
+                    total[PROMOTERS] += p;
+                    total[NEUTRAL] += n;
+                    total[DETRACTORS] += d;
+                }
+                break;
+            }
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.tools;
+
+
+/**
+ * NPS category of a delivered order, as classified by NPSCalculator
+ * from the waiting time of the customer.
+ *
+ *
+ */
+public enum Satisfaction {
+
+    INVALID("Invalid"),
+    PROMOTERS("Promoters"),
+    NEUTRAL("Neutral"),
+    DETRACTORS("Detractors");
+
+    private final String label;
+
+    Satisfaction(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return "Invalid", "Promoters", "Neutral" or "Detractors"
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+}
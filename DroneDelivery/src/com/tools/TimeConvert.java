@@ -5,12 +5,16 @@ package com.tools;
  * TimeConvert Tool class is used to operate
  * time. Such as convert HH:MM:SS to seconds
  * and etc.
+ * Dated times are epoch seconds: seconds since 1970-01-01 00:00:00,
+ * so a time without date is a time of 1970-01-01.
  *
  *
  */
 
 public class TimeConvert {
 
+    public final static int SECONDS_OF_DAY = 24 * 60 * 60;
+
     /**
      * Convert HH:MM:SS to seconds. 00:00:00 --> 0 (seconds)
      * If time is invalid, throw an exception or return -1
@@ -91,4 +95,111 @@ public class TimeConvert {
 
     }
 
+    /**
+     * Convert "YYYY-MM-DD" and "HH:MM:SS" to epoch seconds.
+     * 2024-03-01 01:00:00 --> 1709254800
+     * @param date YYYY-MM-DD
+     * @param HHMMSS
+     * @return epoch seconds, -1 if the date or the time is invalid
+     */
+    public static long dateTimeToEpoch(String date, String HHMMSS) {
+        int time = strToInt(HHMMSS);
+        if(time < 0 || !date.matches("\\d{4}-\\d{2}-\\d{2}"))
+            return -1;
+        int year = Integer.parseInt(date.substring(0, 4));
+        int month = Integer.parseInt(date.substring(5, 7));
+        int day = Integer.parseInt(date.substring(8, 10));
+        if(!isValidDate(year, month, day))
+            return -1;
+        return daysFromCivil(year, month, day) * SECONDS_OF_DAY + time;
+    }
+
+    /**
+     * Convert epoch seconds to "YYYY-MM-DD HH:MM:SS"
+     * @param epochSeconds
+     * @return YYYY-MM-DD HH:MM:SS
+     */
+    public static String epochToStr(long epochSeconds) {
+        long days = Math.floorDiv(epochSeconds, SECONDS_OF_DAY);
+        long[] date = civilFromDays(days);
+        return String.format("%04d-%02d-%02d ", date[0], date[1], date[2])
+                + longToStr(epochSeconds - days * SECONDS_OF_DAY);
+    }
+
+    /**
+     * Convert a time to String, with the date if it is dated
+     * @param time seconds, epoch seconds if dated
+     * @param dated
+     * @return YYYY-MM-DD HH:MM:SS if dated, else HH:MM:SS
+     */
+    public static String timeToStr(long time, boolean dated) {
+        return dated ? epochToStr(time) : longToStr(time);
+    }
+
+    /**
+     * @param year
+     * @param month 1 to 12
+     * @param day 1 to 31
+     * @return whether the day exists in the proleptic Gregorian calendar
+     */
+    public static boolean isValidDate(int year, int month, int day) {
+        if(month < 1 || month > 12 || day < 1)
+            return false;
+        int length = month == 2 ? (isLeapYear(year) ? 29 : 28)
+                : (month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31);
+        return day <= length;
+    }
+
+    public static boolean isLeapYear(long year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    /**
+     * Days since 1970-01-01, without allocating anything
+     * @param year
+     * @param month 1 to 12
+     * @param day 1 to 31
+     * @return epoch day
+     */
+    public static long daysFromCivil(long year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        long era = Math.floorDiv(year, 400);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * Inverse of daysFromCivil
+     * @param days days since 1970-01-01
+     * @return {year, month, day}
+     */
+    public static long[] civilFromDays(long days) {
+        long[] date = new long[3];
+        civilFromDays(days, date);
+        return date;
+    }
+
+    /**
+     * Inverse of daysFromCivil, into an array of the caller:
+     * no allocation, for the writers which convert every line
+     * @param days days since 1970-01-01
+     * @param date receives {year, month, day}
+     */
+    public static void civilFromDays(long days, long[] date) {
+        days += 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        date[0] = year;
+        date[1] = month;
+        date[2] = day;
+    }
+
 }
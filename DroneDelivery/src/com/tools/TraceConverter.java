@@ -0,0 +1,75 @@
+package com.tools;
+
+import com.delivery.DroneOrderStore;
+import com.delivery.MappedOrderStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+
+/**
+ * Convert order traces between the text format, one "WMXXXX N5E3 HH:MM:SS"
+ * order per line as read by ReadOrdersFromFile and written by WriteOrdersToFile,
+ * and the binary format read by MappedOrderStore.
+ *
+ * A text trace is either all dated or all undated, since a binary trace
+ * has one time representation. Invalid text lines are skipped, as the
+ * readers do.
+ *
+ *
+ */
+public class TraceConverter {
+
+    /**
+     * Convert a text trace to a binary trace
+     * @param textPath
+     * @param binaryPath
+     * @return number of orders written
+     * @throws IOException, NoSuchFileException, or if dated and undated orders are mixed
+     */
+    public static long textToBinary(String textPath, String binaryPath) throws IOException {
+        try(MappedOrderReader reader = new MappedOrderReader(textPath)) {
+            boolean hasOrder = reader.next();
+            boolean dated = hasOrder && reader.isDated();
+            try(BinaryTraceWriter writer = new BinaryTraceWriter(binaryPath, dated)) {
+                while(hasOrder) {
+                    if(reader.isDated() != dated)
+                        throw new IOException("Dated and undated orders are mixed at offset " + reader.getLineStart());
+                    writer.add(reader.geteID(), reader.getX(), reader.getY(), reader.getEdistance(), reader.geteTime());
+                    hasOrder = reader.next();
+                }
+                return writer.getCount();
+            }
+        }
+    }
+
+    /**
+     * Convert a binary trace to a text trace. The directions are written
+     * as N/S + E/W from the coordinates, such as "S10E0", or with their
+     * opposite legs when the distance is longer, such as "N30S30".
+     * @param binaryPath
+     * @param textPath
+     * @return number of orders written
+     * @throws IOException, NoSuchFileException, or if the file is not a binary trace
+     */
+    public static long binaryToText(String binaryPath, String textPath) throws IOException {
+        MappedOrderStore store = new MappedOrderStore(binaryPath);
+        try(BufferedWriter writer = Files.newBufferedWriter(Paths.get(textPath), StandardCharsets.US_ASCII)) {
+            StringBuilder line = new StringBuilder();
+            for(int h = 0; h < store.size(); h++) {
+                long location = Coordinates.pack(store.getX(h), store.getY(h));
+                line.setLength(0);
+                line.append(DroneOrderStore.formatID(store.geteID(h))).append(' ')
+                        .append(Coordinates.format(location, store.getEdistance(h))).append(' ')
+                        .append(TimeConvert.timeToStr(store.geteTime(h), store.isDated()));
+                writer.write(line.toString());
+                writer.newLine();
+            }
+            return store.size();
+        }
+    }
+
+}
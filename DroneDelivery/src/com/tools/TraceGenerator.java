@@ -0,0 +1,538 @@
+package com.tools;
+
+import com.delivery.DroneOrderStore;
+import com.delivery.MappedOrderStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+/**
+ * Trace Generator makes seeded synthetic order traces, already in time sequence:
+ *  1. Arrivals:
+ *      |-- A Poisson process whose rate changes along the day: low at night, a plateau from
+ *          7am to 10pm, a lunch peak around 12:30 and an evening peak around 19:00
+ *          (or a flat rate, see setPeaks()). The rate is constant within a minute
+ *      |-- Given the number of orders, the arrival times of a Poisson process are the order
+ *          statistics of that many draws from the rate profile. The sorted uniforms are cumulative
+ *          sums of exponential spacings, divided by their total: the orders are generated
+ *          already sorted, and mapped to times through the cumulated rate of the minutes
+ *  2. Locations:
+ *      |-- Most orders come from a few neighbourhoods(clusters): a center, a spread, and a
+ *          weight decreasing with the rank of the cluster, the location is drawn from a normal
+ *          distribution around the center. BACKGROUND of the orders are uniform in the area
+ *      |-- Coordinates are within maxDistance of the warehouse on each axis
+ *  3. Parallel and reproducible:
+ *      |-- The orders are split in blocks of BLOCK orders. The sum of the spacings of each block
+ *          (a Gamma variable) and the SplittableRandom of each block are drawn first, in block
+ *          order, from the seed: a block then generates its orders on any thread, and the trace
+ *          only depends on the seed and the parameters, not on the number of threads
+ *      |-- The blocks are generated and encoded by a pool of threads, a few blocks ahead, and
+ *          written to the file in block order: the memory used does not depend on the size
+ *          of the trace
+ *  4. Output: text orders, one "WMXXXX N5E3 [YYYY-MM-DD ]HH:MM:SS" per line, a binary trace
+ *     read by MappedOrderStore, or a DroneOrderStore in memory.
+ *
+ * IDs are WM + 4 digits, as everywhere else: they go round every 10000 orders.
+ * Several days need a date, the trace starts on DEFAULT_START_DATE unless setStartDate() is called.
+ *
+ *
+ */
+public class TraceGenerator {
+
+    public final static int DEFAULT_MAX_DISTANCE = 20;
+    public final static int DEFAULT_CLUSTERS = 8;
+    public final static String DEFAULT_START_DATE = "2024-03-01";
+    /**
+     * Orders of one block: the unit of work of a thread, and of the buffers
+     */
+    public final static int BLOCK = 1 << 16;
+    /**
+     * Share of the orders uniform in the area, the others are in the clusters
+     */
+    private final static double BACKGROUND = 0.2;
+    private final static int MINUTES_OF_DAY = 24 * 60;
+    /**
+     * Longest text line: "WMXXXX " + 2 signed legs + " YYYY-MM-DD HH:MM:SS\n"
+     */
+    private final static int MAX_LINE = 7 + 2 * 11 + 21;
+
+    private final long seed;
+    private final int threads;
+    private int days = 1;
+    private String startDate;
+    private int maxDistance = DEFAULT_MAX_DISTANCE;
+    private int clusters = DEFAULT_CLUSTERS;
+    private boolean peaks = true;
+
+    /**
+     * @param seed same seed and parameters, same trace
+     */
+    public TraceGenerator(long seed) {
+        this(seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param seed same seed and parameters, same trace
+     * @param threads number of threads generating the blocks
+     */
+    public TraceGenerator(long seed, int threads) {
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Write a text trace
+     * @param path
+     * @param orders number of orders
+     * @return number of orders written
+     * @throws IOException
+     */
+    public long writeText(String path, long orders) throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            TracePlan plan = plan(orders);
+            byte[][] dates = plan.dated ? dateBytes(plan.startDay) : null;
+            run(plan, block -> {
+                ByteBuffer buffer = ByteBuffer.wrap(new byte[block.count * MAX_LINE]);
+                encodeText(block, dates, buffer);
+                buffer.flip();
+                return buffer;
+            }, buffer -> {
+                while(buffer.hasRemaining())
+                    channel.write(buffer);
+            });
+            return orders;
+        }
+    }
+
+    /**
+     * Write a binary trace, in the format read by MappedOrderStore
+     * @param path
+     * @param orders number of orders
+     * @return number of orders written
+     * @throws IOException
+     */
+    public long writeBinary(String path, long orders) throws IOException {
+        TracePlan plan = plan(orders);
+        try(BinaryTraceWriter writer = new BinaryTraceWriter(path, plan.dated)) {
+            run(plan, block -> {
+                ByteBuffer buffer = ByteBuffer.allocate(block.count * MappedOrderStore.RECORD_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for(int i = 0; i < block.count; i++)
+                    buffer.putInt(block.ids[i]).putInt(block.xs[i]).putInt(block.ys[i])
+                            .putInt(Math.abs(block.xs[i]) + Math.abs(block.ys[i]))
+                            .putLong(epochTime(plan, block.times[i]));
+                buffer.flip();
+                return buffer;
+            }, writer::write);
+            return writer.getCount();
+        }
+    }
+
+    /**
+     * Generate the trace in memory
+     * @param orders number of orders
+     * @return orders in time sequence
+     */
+    public DroneOrderStore generateStore(int orders) {
+        TracePlan plan = plan(orders);
+        DroneOrderStore store = new DroneOrderStore(Math.max(orders, 1));
+        store.setDated(plan.dated);
+        try {
+            run(plan, block -> block, block -> {
+                for(int i = 0; i < block.count; i++)
+                    store.add(block.ids[i], block.xs[i], block.ys[i],
+                            Math.abs(block.xs[i]) + Math.abs(block.ys[i]), epochTime(plan, block.times[i]));
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return store;
+    }
+
+    /**
+     * Draw everything which is sequential: the clusters, then the spacing sum and the
+     * random of every block, so the blocks can be generated in any order
+     */
+    private TracePlan plan(long orders) {
+        if(orders < 0)
+            throw new IllegalArgumentException("Invalid number of orders " + orders);
+        TracePlan plan = new TracePlan();
+        plan.orders = orders;
+        plan.dated = startDate != null || days > 1;
+        if(plan.dated) {
+            long epoch = TimeConvert.dateTimeToEpoch(startDate != null ? startDate : DEFAULT_START_DATE, "00:00:00");
+            if(epoch < 0)
+                throw new IllegalArgumentException("Invalid start date " + startDate);
+            plan.startDay = epoch / TimeConvert.SECONDS_OF_DAY;
+        }
+        plan.cumulatedRate = cumulatedRate(peaks);
+
+        SplittableRandom root = new SplittableRandom(seed);
+        plan.centerX = new int[clusters];
+        plan.centerY = new int[clusters];
+        plan.spreads = new double[clusters];
+        plan.cumulatedWeight = new double[clusters];
+        double total = 0;
+        for(int c = 0; c < clusters; c++) {
+            int range = maxDistance * 3 / 4;
+            plan.centerX[c] = root.nextInt(2 * range + 1) - range;
+            plan.centerY[c] = root.nextInt(2 * range + 1) - range;
+            plan.spreads[c] = Math.max(0.5, maxDistance * (0.03 + 0.12 * root.nextDouble()));
+            total += 1.0 / (c + 1);
+            plan.cumulatedWeight[c] = total;
+        }
+        for(int c = 0; c < clusters; c++)
+            plan.cumulatedWeight[c] /= total;
+
+        int blocks = (int) ((orders + BLOCK - 1) / BLOCK);
+        plan.prefixes = new double[blocks + 1];
+        plan.randoms = new SplittableRandom[blocks];
+        for(int b = 0; b < blocks; b++) {
+            int count = (int) Math.min(BLOCK, orders - (long) b * BLOCK);
+            plan.prefixes[b + 1] = plan.prefixes[b] + gamma(root, count);
+            plan.randoms[b] = root.split();
+        }
+        // the spacing after the last order
+        plan.total = plan.prefixes[blocks] + exponential(root);
+        return plan;
+    }
+
+    /**
+     * Generate the blocks on the pool, a few ahead, and hand them to the sink in block order
+     */
+    private <T> void run(TracePlan plan, Encoder<T> encoder, Sink<T> sink) throws IOException {
+        int blocks = plan.randoms.length;
+        if(blocks == 0)
+            return;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, blocks));
+        try {
+            ArrayDeque<Future<T>> pending = new ArrayDeque<Future<T>>();
+            int next = 0;
+            for(int written = 0; written < blocks; written++) {
+                while(next < blocks && pending.size() < threads * 2) {
+                    int b = next++;
+                    pending.add(pool.submit(() -> encoder.encode(generate(plan, b))));
+                }
+                try {
+                    sink.accept(pending.poll().get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Trace generation failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Trace generation interrupted", e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Generate the orders of one block
+     */
+    private TraceBlock generate(TracePlan plan, int b) {
+        SplittableRandom random = plan.randoms[b];
+        long start = (long) b * BLOCK;
+        TraceBlock block = new TraceBlock((int) Math.min(BLOCK, plan.orders - start));
+        int n = block.count;
+
+        // spacings of the block, scaled to the sum drawn in the plan
+        double[] spacings = new double[n];
+        double sum = 0;
+        for(int i = 0; i < n; i++) {
+            spacings[i] = exponential(random);
+            sum += spacings[i];
+        }
+        double prefix = plan.prefixes[b];
+        double length = plan.prefixes[b + 1] - prefix;
+        double[] rate = plan.cumulatedRate;
+        double cumulated = 0;
+        int minute = -1;
+        for(int i = 0; i < n; i++) {
+            cumulated += spacings[i];
+            // the last order of the block ends exactly on the prefix of the next one
+            double u = (i == n - 1 ? plan.prefixes[b + 1] : prefix + length * (cumulated / sum)) / plan.total;
+            double position = Math.min(u * days, days - 1e-9);
+            int day = (int) position;
+            double fraction = position - day;
+            if(minute < 0 || fraction < rate[minute]) {
+                minute = Arrays.binarySearch(rate, fraction);
+                minute = minute >= 0 ? minute : -minute - 2;
+            }
+            while(minute < MINUTES_OF_DAY - 1 && fraction >= rate[minute + 1])
+                minute++;
+            int second = (int) (60 * (fraction - rate[minute]) / (rate[minute + 1] - rate[minute]));
+            block.times[i] = (long) day * TimeConvert.SECONDS_OF_DAY + minute * 60 + Math.min(Math.max(second, 0), 59);
+            block.ids[i] = (int) ((start + i) % 10000);
+            location(plan, random, block, i);
+        }
+        return block;
+    }
+
+    private void location(TracePlan plan, SplittableRandom random, TraceBlock block, int i) {
+        double r = random.nextDouble();
+        int x;
+        int y;
+        if(r < BACKGROUND || clusters == 0) {
+            x = random.nextInt(2 * maxDistance + 1) - maxDistance;
+            y = random.nextInt(2 * maxDistance + 1) - maxDistance;
+        } else {
+            double w = (r - BACKGROUND) / (1 - BACKGROUND);
+            int c = 0;
+            while(c < clusters - 1 && w >= plan.cumulatedWeight[c])
+                c++;
+            // polar method: two normal deviates
+            double a;
+            double b;
+            double s;
+            do {
+                a = 2 * random.nextDouble() - 1;
+                b = 2 * random.nextDouble() - 1;
+                s = a * a + b * b;
+            } while(s >= 1 || s == 0);
+            double f = plan.spreads[c] * Math.sqrt(-2 * Math.log(s) / s);
+            x = (int) Math.round(plan.centerX[c] + a * f);
+            y = (int) Math.round(plan.centerY[c] + b * f);
+            x = Math.max(-maxDistance, Math.min(maxDistance, x));
+            y = Math.max(-maxDistance, Math.min(maxDistance, y));
+        }
+        block.xs[i] = x;
+        block.ys[i] = y;
+    }
+
+    /**
+     * Cumulated arrival rate at the start of each minute of the day, from 0 to 1
+     */
+    private static double[] cumulatedRate(boolean peaks) {
+        double[] cumulated = new double[MINUTES_OF_DAY + 1];
+        for(int m = 0; m < MINUTES_OF_DAY; m++) {
+            double hour = (m + 0.5) / 60;
+            double rate = 1;
+            if(peaks) {
+                double day = 1 / (1 + Math.exp(-2 * (hour - 7))) / (1 + Math.exp(2 * (hour - 22)));
+                rate = 0.05 + day + 1.5 * bump(hour, 12.5, 0.75) + 2 * bump(hour, 19, 1.25);
+            }
+            cumulated[m + 1] = cumulated[m] + rate;
+        }
+        for(int m = 1; m <= MINUTES_OF_DAY; m++)
+            cumulated[m] /= cumulated[MINUTES_OF_DAY];
+        return cumulated;
+    }
+
+    private static double bump(double hour, double center, double width) {
+        double z = (hour - center) / width;
+        return Math.exp(-0.5 * z * z);
+    }
+
+    private static double exponential(SplittableRandom random) {
+        return -Math.log(1 - random.nextDouble());
+    }
+
+    private static double normal(SplittableRandom random) {
+        double a;
+        double b;
+        double s;
+        do {
+            a = 2 * random.nextDouble() - 1;
+            b = 2 * random.nextDouble() - 1;
+            s = a * a + b * b;
+        } while(s >= 1 || s == 0);
+        return a * Math.sqrt(-2 * Math.log(s) / s);
+    }
+
+    /**
+     * Marsaglia and Tsang: a Gamma(shape, 1) variable, shape at least 1
+     */
+    private static double gamma(SplittableRandom random, int shape) {
+        double d = shape - 1.0 / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        while(true) {
+            double x;
+            double v;
+            do {
+                x = normal(random);
+                v = 1 + c * x;
+            } while(v <= 0);
+            v = v * v * v;
+            double u = random.nextDouble();
+            if(u < 1 - 0.0331 * x * x * x * x || Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v)))
+                return d * v;
+        }
+    }
+
+    private long epochTime(TracePlan plan, long time) {
+        return plan.dated ? plan.startDay * TimeConvert.SECONDS_OF_DAY + time : time;
+    }
+
+    /**
+     * "YYYY-MM-DD " of every day of the trace
+     */
+    private byte[][] dateBytes(long startDay) {
+        byte[][] dates = new byte[days][];
+        for(int d = 0; d < days; d++) {
+            long[] date = TimeConvert.civilFromDays(startDay + d);
+            dates[d] = String.format("%04d-%02d-%02d ", date[0], date[1], date[2]).getBytes();
+        }
+        return dates;
+    }
+
+    private static void encodeText(TraceBlock block, byte[][] dates, ByteBuffer buffer) {
+        byte[] out = buffer.array();
+        int p = 0;
+        for(int i = 0; i < block.count; i++) {
+            out[p++] = 'W';
+            out[p++] = 'M';
+            int id = block.ids[i];
+            out[p++] = (byte) ('0' + id / 1000);
+            out[p++] = (byte) ('0' + id / 100 % 10);
+            out[p++] = (byte) ('0' + id / 10 % 10);
+            out[p++] = (byte) ('0' + id % 10);
+            out[p++] = ' ';
+            int y = block.ys[i];
+            out[p++] = (byte) (y >= 0 ? 'N' : 'S');
+            p = putInt(out, p, Math.abs(y));
+            int x = block.xs[i];
+            out[p++] = (byte) (x >= 0 ? 'E' : 'W');
+            p = putInt(out, p, Math.abs(x));
+            out[p++] = ' ';
+            long time = block.times[i];
+            int day = (int) (time / TimeConvert.SECONDS_OF_DAY);
+            int seconds = (int) (time - (long) day * TimeConvert.SECONDS_OF_DAY);
+            if(dates != null) {
+                System.arraycopy(dates[day], 0, out, p, dates[day].length);
+                p += dates[day].length;
+            }
+            p = putTwoDigits(out, p, seconds / 3600);
+            out[p++] = ':';
+            p = putTwoDigits(out, p, seconds / 60 % 60);
+            out[p++] = ':';
+            p = putTwoDigits(out, p, seconds % 60);
+            out[p++] = '\n';
+        }
+        buffer.position(p);
+    }
+
+    private static int putInt(byte[] out, int p, int value) {
+        if(value >= 10)
+            p = putInt(out, p, value / 10);
+        out[p++] = (byte) ('0' + value % 10);
+        return p;
+    }
+
+    private static int putTwoDigits(byte[] out, int p, int value) {
+        out[p++] = (byte) ('0' + value / 10);
+        out[p++] = (byte) ('0' + value % 10);
+        return p;
+    }
+
+    /**
+     * @param days number of days the orders are spread over, 1 by default
+     */
+    public void setDays(int days) {
+        if(days < 1)
+            throw new IllegalArgumentException("Invalid number of days " + days);
+        this.days = days;
+    }
+
+    /**
+     * @param startDate first day of a dated trace, YYYY-MM-DD, null for an undated trace of one day
+     */
+    public void setStartDate(String startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * @param maxDistance largest coordinate on each axis
+     */
+    public void setMaxDistance(int maxDistance) {
+        if(maxDistance < 0)
+            throw new IllegalArgumentException("Invalid max distance " + maxDistance);
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * @param clusters number of neighbourhoods, 0 for orders uniform in the area
+     */
+    public void setClusters(int clusters) {
+        if(clusters < 0)
+            throw new IllegalArgumentException("Invalid number of clusters " + clusters);
+        this.clusters = clusters;
+    }
+
+    /**
+     * @param peaks true for the lunch and evening peaks(default), false for a flat rate
+     */
+    public void setPeaks(boolean peaks) {
+        this.peaks = peaks;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Encode a generated block, on the thread which generated it
+     */
+    private interface Encoder<T> {
+        T encode(TraceBlock block) throws IOException;
+    }
+
+    /**
+     * Receive the encoded blocks in block order
+     */
+    private interface Sink<T> {
+        void accept(T encoded) throws IOException;
+    }
+
+}
+
+/**
+ * Everything drawn before the blocks, shared by them read only
+ */
+class TracePlan {
+    long orders;
+    boolean dated;
+    long startDay;
+    double[] cumulatedRate;
+    int[] centerX;
+    int[] centerY;
+    double[] spreads;
+    double[] cumulatedWeight;
+    /**
+     * prefixes[b]: sum of the spacings before block b, total: sum of all the spacings
+     */
+    double[] prefixes;
+    double total;
+    SplittableRandom[] randoms;
+}
+
+/**
+ * Orders of one block, times in seconds from the start of the trace
+ */
+class TraceBlock {
+    final int count;
+    final int[] ids;
+    final int[] xs;
+    final int[] ys;
+    final long[] times;
+
+    TraceBlock(int count) {
+        this.count = count;
+        ids = new int[count];
+        xs = new int[count];
+        ys = new int[count];
+        times = new long[count];
+    }
+}
@@ -43,7 +43,7 @@ public class WriteOrdersToFile {
         for(DroneOrder cur : orders) {
             String printable = cur.getOrderID().getOrderID() + " "
                     + cur.getDirection().getOrderDirection() + " "
-                    + TimeConvert.longToStr(cur.geteTime());
+                    + TimeConvert.timeToStr(cur.geteTime(), cur.getOrderTime().isDated());
             printOrder.add(printable);
         }
         writeLinesToFile(path, printOrder);